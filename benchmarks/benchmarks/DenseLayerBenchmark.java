@@ -0,0 +1,171 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pws.AI.NeuralNetwork.NeuralNetwork;
+import pws.AI.NeuralNetwork.Precision;
+
+/**
+ * Compares the dense layer kernels with the EJML matrix operations, for evaluating and for training on one data point.
+ * The train benchmarks change the weights every call, that doesn't change how long a call takes.
+ * The Vector and Scalar benchmarks run the same code, the JVM arguments of the fork decide which kernels are used.
+ * The Vector benchmarks need at least Java 16 and src-vector on the classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DenseLayerBenchmark {
+
+	private static final String VECTOR = "--add-modules=jdk.incubator.vector";
+	private static final String SCALAR = "-Dpws.kernels=scalar";
+
+	//The size of every layer, the first is the input and the last is the output
+	@Param({"5,5,5,3", "8,32,32,4", "64,256,256,16"})
+	public String layers;
+
+	@Param({"DOUBLE", "FLOAT"})
+	public Precision precision;
+
+	private NeuralNetwork network;
+	private float[] input;
+	private float[] output;
+	private float[] target;
+
+	//The same weights as the network, used for the EJML benchmark
+	private DMatrixRMaj[] weights;
+	private DMatrixRMaj[] biases;
+	private DMatrixRMaj[] layerOutputs;
+	private DMatrixRMaj[] layerErrors;
+	private DMatrixRMaj ejmlTarget;
+	private DMatrixRMaj ejmlInput;
+
+	@Setup
+	public void setup() {
+		String[] sizes = layers.split(",");
+		int[] hiddenLayers = new int[sizes.length-2];
+		for(int i = 0; i < hiddenLayers.length; i++) {
+			hiddenLayers[i] = Integer.parseInt(sizes[i+1]);
+		}
+		int inputCount = Integer.parseInt(sizes[0]);
+		int outputCount = Integer.parseInt(sizes[sizes.length-1]);
+
+		network = new NeuralNetwork(inputCount, outputCount, hiddenLayers, precision);
+
+		Random random = new Random(42);
+		input = new float[inputCount];
+		target = new float[outputCount];
+		output = new float[outputCount];
+		for(int i = 0; i < inputCount; i++) input[i] = random.nextFloat();
+		for(int i = 0; i < outputCount; i++) target[i] = random.nextFloat();
+
+		int layerCount = network.weights.size();
+		weights = new DMatrixRMaj[layerCount];
+		biases = new DMatrixRMaj[layerCount];
+		layerOutputs = new DMatrixRMaj[layerCount];
+		layerErrors = new DMatrixRMaj[layerCount];
+		for(int l = 0; l < layerCount; l++) {
+			weights[l] = new DMatrixRMaj(network.weights.get(l).numRows(), network.weights.get(l).numCols());
+			biases[l] = new DMatrixRMaj(network.bias.get(l).numRows(), 1);
+			for(int i = 0; i < weights[l].getNumElements(); i++) weights[l].data[i] = network.weights.get(l).get(i);
+			for(int i = 0; i < biases[l].getNumElements(); i++) biases[l].data[i] = network.bias.get(l).get(i);
+			layerOutputs[l] = new DMatrixRMaj(weights[l].numRows, 1);
+			layerErrors[l] = new DMatrixRMaj(weights[l].numRows, 1);
+		}
+
+		ejmlInput = new DMatrixRMaj(inputCount, 1);
+		for(int i = 0; i < inputCount; i++) ejmlInput.data[i] = input[i];
+		ejmlTarget = new DMatrixRMaj(outputCount, 1);
+		for(int i = 0; i < outputCount; i++) ejmlTarget.data[i] = target[i];
+	}
+
+	@Benchmark
+	@Fork(jvmArgsAppend = VECTOR)
+	public float[] evaluateVector() {
+		return network.evaluate(input, output);
+	}
+
+	@Benchmark
+	@Fork(jvmArgsAppend = SCALAR)
+	public float[] evaluateScalar() {
+		return network.evaluate(input, output);
+	}
+
+	@Benchmark
+	public DMatrixRMaj evaluateEjml() {
+		DMatrixRMaj layerInput = ejmlInput;
+		for(int l = 0; l < weights.length; l++) {
+			CommonOps_DDRM.mult(weights[l], layerInput, layerOutputs[l]);
+			CommonOps_DDRM.addEquals(layerOutputs[l], biases[l]);
+
+			double[] data = layerOutputs[l].data;
+			for(int i = 0; i < layerOutputs[l].numRows; i++) {
+				data[i] = 1 / (1 + Math.exp(-data[i]));
+			}
+
+			layerInput = layerOutputs[l];
+		}
+		return layerInput;
+	}
+
+	@Benchmark
+	@Fork(jvmArgsAppend = VECTOR)
+	public NeuralNetwork trainVector() {
+		network.train(input, target);
+		return network;
+	}
+
+	@Benchmark
+	@Fork(jvmArgsAppend = SCALAR)
+	public NeuralNetwork trainScalar() {
+		network.train(input, target);
+		return network;
+	}
+
+	@Benchmark
+	public DMatrixRMaj trainEjml() {
+		//The same backpropagation as NeuralNetwork.train, with EJML operations instead of the kernels
+		evaluateEjml();
+
+		int last = weights.length-1;
+		for(int l = last; l >= 0; l--) {
+			DMatrixRMaj output = layerOutputs[l];
+			DMatrixRMaj error = layerErrors[l];
+
+			if(l == last) {
+				CommonOps_DDRM.subtract(output, ejmlTarget, error);
+			} else {
+				CommonOps_DDRM.multTransA(weights[l+1], layerErrors[l+1], error);
+			}
+
+			for(int i = 0; i < error.numRows; i++) {
+				error.data[i] *= output.data[i] * (1 - output.data[i]);
+			}
+		}
+
+		for(int l = 0; l <= last; l++) {
+			DMatrixRMaj previousOutput = l == 0 ? ejmlInput : layerOutputs[l-1];
+			CommonOps_DDRM.multAddTransB(-1, layerErrors[l], previousOutput, weights[l]);
+			CommonOps_DDRM.addEquals(biases[l], -1, layerErrors[l]);
+		}
+
+		return weights[0];
+	}
+}
@@ -0,0 +1,94 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pws.AI.BaseAI;
+import pws.AI.NeuralNetwork.Genome;
+import pws.AI.NeuralNetwork.NeuralNetwork;
+import pws.AI.NeuralNetwork.Precision;
+
+/**
+ * The operations the genetic algorithm does on networks: copying, mutating and crossing over.
+ * mutateChild and copyAndWrite are what the pool does for a child, the copy shares the weights until the first write copies them.
+ * genomeReadWrite reads and writes every gene through the flat genome view.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeneticBenchmark {
+
+	//The size of every layer, the first is the input and the last is the output
+	@Param({"5,5,5,3", "64,256,256,16"})
+	public String layers;
+
+	@Param({"DOUBLE", "FLOAT"})
+	public Precision precision;
+
+	private NeuralNetwork first;
+	private NeuralNetwork second;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		first = Networks.create(layers, precision, random);
+		second = Networks.create(layers, precision, random);
+	}
+
+	@Benchmark
+	public NeuralNetwork mutateInPlace() {
+		first.mutate();
+		return first;
+	}
+
+	@Benchmark
+	public NeuralNetwork mutateChild() {
+		NeuralNetwork child = first.copy();
+		child.mutate();
+		return child;
+	}
+
+	@Benchmark
+	public BaseAI crossOver() {
+		return first.crossOver(second);
+	}
+
+	@Benchmark
+	public NeuralNetwork copy() {
+		return first.copy();
+	}
+
+	@Benchmark
+	public NeuralNetwork copyAndWrite() {
+		NeuralNetwork child = first.copy();
+		child.weights.get(0).set(0, 0.5);
+		return child;
+	}
+
+	@Benchmark
+	public double genomeReadWrite() {
+		Genome genome = second.genome();
+		double sum = 0;
+		for(int i = 0; i < genome.size(); i++) {
+			double value = genome.get(i);
+			genome.set(i, value);
+			sum += value;
+		}
+		return sum;
+	}
+}
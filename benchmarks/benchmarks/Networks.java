@@ -0,0 +1,40 @@
+package benchmarks;
+
+import java.util.Random;
+
+import pws.AI.NeuralNetwork.NeuralNetwork;
+import pws.AI.NeuralNetwork.Precision;
+
+/**
+ * Creates the networks of the benchmarks
+ */
+final class Networks {
+
+	private Networks() {
+	}
+
+    /**
+     * Create a randomised network
+     * @param layers The size of every layer separated by a comma, the first is the input and the last is the output
+     * @param precision The precision of the network
+     * @param random The random object to randomise the network with
+     * @return The network
+     */
+	static NeuralNetwork create(String layers, Precision precision, Random random) {
+		String[] sizes = layers.split(",");
+		int[] hiddenLayers = new int[sizes.length-2];
+		for(int i = 0; i < hiddenLayers.length; i++) {
+			hiddenLayers[i] = Integer.parseInt(sizes[i+1]);
+		}
+
+		return new NeuralNetwork(Integer.parseInt(sizes[0]), Integer.parseInt(sizes[sizes.length-1]), hiddenLayers, precision).randomise(random);
+	}
+
+	static float[] randomArray(int size, Random random) {
+		float[] array = new float[size];
+		for(int i = 0; i < size; i++) {
+			array[i] = random.nextFloat();
+		}
+		return array;
+	}
+}
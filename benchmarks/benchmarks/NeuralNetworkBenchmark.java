@@ -0,0 +1,85 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pws.AI.NeuralNetwork.CompiledNetwork;
+import pws.AI.NeuralNetwork.NeuralNetwork;
+import pws.AI.NeuralNetwork.Precision;
+
+/**
+ * Evaluating and training a neural network on one data point, with the default layers of Pong (5 inputs, 5 and 5 hidden, 3 outputs) and with wide layers.
+ * evaluateNewArray is the evaluate the games used to call, it creates a new output array every call.
+ * evaluateCompiled uses the network compiled to its own class, the wide layers are too big for that and use the normal network.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NeuralNetworkBenchmark {
+
+	//The size of every layer, the first is the input and the last is the output
+	@Param({"5,5,5,3", "64,256,256,16"})
+	public String layers;
+
+	@Param({"DOUBLE", "FLOAT"})
+	public Precision precision;
+
+	private NeuralNetwork network;
+	private CompiledNetwork compiled;
+	private float[] input;
+	private float[] output;
+	private float[] target;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		network = Networks.create(layers, precision, random);
+
+		input = Networks.randomArray(network.weights.get(0).numCols(), random);
+		target = Networks.randomArray(network.bias.get(network.bias.size()-1).numRows(), random);
+		output = new float[target.length];
+
+		compiled = CompiledNetwork.compile(network);
+	}
+
+	@Benchmark
+	public float[] evaluate() {
+		return network.evaluate(input, output);
+	}
+
+	@Benchmark
+	public float[] evaluateNewArray() {
+		return network.evaluate(input);
+	}
+
+	@Benchmark
+	public float[] evaluateCompiled() {
+		return compiled.evaluate(input, output);
+	}
+
+	@Benchmark
+	public int decide() {
+		return network.decide(input);
+	}
+
+	@Benchmark
+	public NeuralNetwork train() {
+		network.train(input, target);
+		return network;
+	}
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pws.AI.NeuralNetwork.Precision;
+import pws.AI.pool.Pool;
+import pws.games.Game;
+import pws.games.flappybird.FlappyBird;
+import pws.games.pong.Pong;
+
+/**
+ * The first generation of a pool: every network plays its games, then the next generation is bred.
+ * Every call gets a new pool with the same seed, so every call does exactly the same work. Creating the pool isn't measured.
+ * The games load the training data from saves/, so run this from the folder that contains saves/.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class PoolBenchmark {
+
+	private static final long SEED = 42;
+
+	@Param({"pong", "flappybird"})
+	public String gameName;
+
+	@Param({"200"})
+	public int populationCount;
+
+	private Game game;
+	private Pool pool;
+
+	@Setup(Level.Trial)
+	public void createGame() {
+		game = gameName.equals("pong") ? new Pong(800, 800) : new FlappyBird(800, 800);
+	}
+
+	@Setup(Level.Invocation)
+	public void createPool() {
+		pool = new Pool(new int[] {5, 5}, populationCount, game, Precision.DOUBLE, SEED);
+	}
+
+	@Benchmark
+	public Pool doGen() {
+		pool.doGen();
+		return pool;
+	}
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pws.AI.pool.Selection;
+
+/**
+ * Choosing the parents in big populations. The pool prepares the selection once every generation and then chooses about two parents for every child.
+ * selectLinear is how the pool used to choose: walking the list and subtracting the fitness until the random number is used up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SelectionBenchmark {
+
+	@Param({"2000", "50000", "200000"})
+	public int populationCount;
+
+	private float[] fitness;
+	private float totalFitness;
+	private Random random;
+
+	private Selection.Selector roulette;
+	private Selection.Selector tournament;
+
+	@Setup
+	public void setup() {
+		random = new Random(42);
+
+		//Most AIs do badly and a few do well, like in a real generation
+		fitness = new float[populationCount];
+		for(int i = 0; i < populationCount; i++) {
+			fitness[i] = (float) Math.pow(random.nextFloat(), 4) * 1000;
+			totalFitness += fitness[i];
+		}
+
+		roulette = Selection.ROULETTE.prepare(fitness);
+		tournament = Selection.tournament(3).prepare(fitness);
+	}
+
+	@Benchmark
+	public Selection.Selector prepareRoulette() {
+		return Selection.ROULETTE.prepare(fitness);
+	}
+
+	@Benchmark
+	public int selectRoulette() {
+		return roulette.select(random);
+	}
+
+	@Benchmark
+	public int selectTournament() {
+		return tournament.select(random);
+	}
+
+	@Benchmark
+	public int selectLinear() {
+		double randomNumber = random.nextDouble() * totalFitness;
+
+		for(int i = 0; i < fitness.length; i++) {
+			randomNumber -= fitness[i];
+			if(randomNumber <= 0) {
+				return i;
+			}
+		}
+
+		return 0;
+	}
+}
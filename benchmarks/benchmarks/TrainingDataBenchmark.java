@@ -0,0 +1,42 @@
+package benchmarks;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pws.trainingData.TrainingData;
+
+/**
+ * Loading the training data in saves/ that the games load when they start, run this from the folder that contains saves/.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TrainingDataBenchmark {
+
+	private static final Path SAVES = Paths.get("saves/");
+
+	@Param({"pong", "flappyBird"})
+	public String name;
+
+	@Benchmark
+	public TrainingData readFromFile() {
+		TrainingData data = new TrainingData();
+		data.readFromFile(SAVES, name);
+		return data;
+	}
+}
@@ -0,0 +1,256 @@
+package pws.AI.NeuralNetwork;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The dense layer loops using the Vector API, this needs at least Java 16 and --add-modules jdk.incubator.vector.
+ * Every loop does as many values at once as the CPU supports, the last values that don't fill a whole vector are done with a mask.
+ * DenseKernels loads this class when it is available, it falls back to ScalarKernels otherwise.
+ */
+final class VectorKernels implements DenseKernels {
+
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public void multiplyAdd(double[] weights, double[] bias, double[] input, double[] output, int rows, int cols) {
+		int bound = DOUBLES.loopBound(cols);
+
+		for(int row = 0; row < rows; row++) {
+			int index = row * cols;
+			DoubleVector sum = DoubleVector.zero(DOUBLES);
+
+			int col = 0;
+			for(; col < bound; col += DOUBLES.length()) {
+				sum = DoubleVector.fromArray(DOUBLES, weights, index + col).fma(DoubleVector.fromArray(DOUBLES, input, col), sum);
+			}
+
+			if(col < cols) {
+				VectorMask<Double> mask = DOUBLES.indexInRange(col, cols);
+				sum = DoubleVector.fromArray(DOUBLES, weights, index + col, mask).fma(DoubleVector.fromArray(DOUBLES, input, col, mask), sum);
+			}
+
+			output[row] = bias[row] + sum.reduceLanes(VectorOperators.ADD);
+		}
+	}
+
+	@Override
+	public void multiplyAdd(float[] weights, float[] bias, float[] input, float[] output, int rows, int cols) {
+		int bound = FLOATS.loopBound(cols);
+
+		for(int row = 0; row < rows; row++) {
+			int index = row * cols;
+			FloatVector sum = FloatVector.zero(FLOATS);
+
+			int col = 0;
+			for(; col < bound; col += FLOATS.length()) {
+				sum = FloatVector.fromArray(FLOATS, weights, index + col).fma(FloatVector.fromArray(FLOATS, input, col), sum);
+			}
+
+			if(col < cols) {
+				VectorMask<Float> mask = FLOATS.indexInRange(col, cols);
+				sum = FloatVector.fromArray(FLOATS, weights, index + col, mask).fma(FloatVector.fromArray(FLOATS, input, col, mask), sum);
+			}
+
+			output[row] = bias[row] + sum.reduceLanes(VectorOperators.ADD);
+		}
+	}
+
+	@Override
+	public void multiplyAddStacked(double[] weights, double[] bias, int[] layers, double[] inputs, double[] outputs, int count, int rows, int cols) {
+		int bound = DOUBLES.loopBound(cols);
+
+		int row = 0;
+		for(int i = 0; i < count; i++) {
+			int layer = layers[i];
+			int biasIndex = layer * rows;
+			int inputIndex = i * cols;
+
+			for(int r = 0; r < rows; r++, row++) {
+				int index = (biasIndex + r) * cols;
+				DoubleVector sum = DoubleVector.zero(DOUBLES);
+
+				int col = 0;
+				for(; col < bound; col += DOUBLES.length()) {
+					sum = DoubleVector.fromArray(DOUBLES, weights, index + col).fma(DoubleVector.fromArray(DOUBLES, inputs, inputIndex + col), sum);
+				}
+
+				if(col < cols) {
+					VectorMask<Double> mask = DOUBLES.indexInRange(col, cols);
+					sum = DoubleVector.fromArray(DOUBLES, weights, index + col, mask).fma(DoubleVector.fromArray(DOUBLES, inputs, inputIndex + col, mask), sum);
+				}
+
+				outputs[row] = bias[biasIndex + r] + sum.reduceLanes(VectorOperators.ADD);
+			}
+		}
+	}
+
+	@Override
+	public void multiplyAddStacked(float[] weights, float[] bias, int[] layers, float[] inputs, float[] outputs, int count, int rows, int cols) {
+		int bound = FLOATS.loopBound(cols);
+
+		int row = 0;
+		for(int i = 0; i < count; i++) {
+			int layer = layers[i];
+			int biasIndex = layer * rows;
+			int inputIndex = i * cols;
+
+			for(int r = 0; r < rows; r++, row++) {
+				int index = (biasIndex + r) * cols;
+				FloatVector sum = FloatVector.zero(FLOATS);
+
+				int col = 0;
+				for(; col < bound; col += FLOATS.length()) {
+					sum = FloatVector.fromArray(FLOATS, weights, index + col).fma(FloatVector.fromArray(FLOATS, inputs, inputIndex + col), sum);
+				}
+
+				if(col < cols) {
+					VectorMask<Float> mask = FLOATS.indexInRange(col, cols);
+					sum = FloatVector.fromArray(FLOATS, weights, index + col, mask).fma(FloatVector.fromArray(FLOATS, inputs, inputIndex + col, mask), sum);
+				}
+
+				outputs[row] = bias[biasIndex + r] + sum.reduceLanes(VectorOperators.ADD);
+			}
+		}
+	}
+
+	@Override
+	public void multiplyTransposed(double[] weights, double[] vector, double[] output, int rows, int cols) {
+		for(int col = 0; col < cols; col++) {
+			output[col] = 0;
+		}
+
+		int bound = DOUBLES.loopBound(cols);
+
+		//output += row*value for every row, this reads the weights in the order they are stored
+		for(int row = 0; row < rows; row++) {
+			double value = vector[row];
+			if(value == 0) continue;
+
+			int index = row * cols;
+			DoubleVector values = DoubleVector.broadcast(DOUBLES, value);
+
+			int col = 0;
+			for(; col < bound; col += DOUBLES.length()) {
+				DoubleVector.fromArray(DOUBLES, weights, index + col)
+						.fma(values, DoubleVector.fromArray(DOUBLES, output, col))
+						.intoArray(output, col);
+			}
+
+			if(col < cols) {
+				VectorMask<Double> mask = DOUBLES.indexInRange(col, cols);
+				DoubleVector.fromArray(DOUBLES, weights, index + col, mask)
+						.fma(values, DoubleVector.fromArray(DOUBLES, output, col, mask))
+						.intoArray(output, col, mask);
+			}
+		}
+	}
+
+	@Override
+	public void multiplyTransposed(float[] weights, float[] vector, float[] output, int rows, int cols) {
+		for(int col = 0; col < cols; col++) {
+			output[col] = 0;
+		}
+
+		int bound = FLOATS.loopBound(cols);
+
+		for(int row = 0; row < rows; row++) {
+			float value = vector[row];
+			if(value == 0) continue;
+
+			int index = row * cols;
+			FloatVector values = FloatVector.broadcast(FLOATS, value);
+
+			int col = 0;
+			for(; col < bound; col += FLOATS.length()) {
+				FloatVector.fromArray(FLOATS, weights, index + col)
+						.fma(values, FloatVector.fromArray(FLOATS, output, col))
+						.intoArray(output, col);
+			}
+
+			if(col < cols) {
+				VectorMask<Float> mask = FLOATS.indexInRange(col, cols);
+				FloatVector.fromArray(FLOATS, weights, index + col, mask)
+						.fma(values, FloatVector.fromArray(FLOATS, output, col, mask))
+						.intoArray(output, col, mask);
+			}
+		}
+	}
+
+	@Override
+	public void subtractOuterProduct(double[] weights, double[] bias, double[] error, double[] activation, double learningRate, int rows, int cols) {
+		int bound = DOUBLES.loopBound(cols);
+
+		for(int row = 0; row < rows; row++) {
+			double step = learningRate * error[row];
+			if(step == 0) continue;
+
+			bias[row] -= step;
+
+			//Same as the scalar loop: weights -= step*activation, rounded after the multiplication and not as one fma.
+			//Only the weights with an activation that isn't 0 are written, the same ones the scalar loop touches,
+			//otherwise the HogwildTrainer could write back an old value over the change of another thread
+			int index = row * cols;
+
+			int col = 0;
+			for(; col < bound; col += DOUBLES.length()) {
+				DoubleVector activations = DoubleVector.fromArray(DOUBLES, activation, col);
+				VectorMask<Double> changed = activations.compare(VectorOperators.NE, 0);
+				if(!changed.anyTrue()) continue;
+
+				DoubleVector.fromArray(DOUBLES, weights, index + col)
+						.sub(activations.mul(step))
+						.intoArray(weights, index + col, changed);
+			}
+
+			if(col < cols) {
+				VectorMask<Double> mask = DOUBLES.indexInRange(col, cols);
+				DoubleVector activations = DoubleVector.fromArray(DOUBLES, activation, col, mask);
+				VectorMask<Double> changed = activations.compare(VectorOperators.NE, 0).and(mask);
+
+				DoubleVector.fromArray(DOUBLES, weights, index + col, changed)
+						.sub(activations.mul(step))
+						.intoArray(weights, index + col, changed);
+			}
+		}
+	}
+
+	@Override
+	public void subtractOuterProduct(float[] weights, float[] bias, float[] error, float[] activation, float learningRate, int rows, int cols) {
+		int bound = FLOATS.loopBound(cols);
+
+		for(int row = 0; row < rows; row++) {
+			float step = learningRate * error[row];
+			if(step == 0) continue;
+
+			bias[row] -= step;
+
+			int index = row * cols;
+
+			int col = 0;
+			for(; col < bound; col += FLOATS.length()) {
+				FloatVector activations = FloatVector.fromArray(FLOATS, activation, col);
+				VectorMask<Float> changed = activations.compare(VectorOperators.NE, 0);
+				if(!changed.anyTrue()) continue;
+
+				FloatVector.fromArray(FLOATS, weights, index + col)
+						.sub(activations.mul(step))
+						.intoArray(weights, index + col, changed);
+			}
+
+			if(col < cols) {
+				VectorMask<Float> mask = FLOATS.indexInRange(col, cols);
+				FloatVector activations = FloatVector.fromArray(FLOATS, activation, col, mask);
+				VectorMask<Float> changed = activations.compare(VectorOperators.NE, 0).and(mask);
+
+				FloatVector.fromArray(FLOATS, weights, index + col, changed)
+						.sub(activations.mul(step))
+						.intoArray(weights, index + col, changed);
+			}
+		}
+	}
+}
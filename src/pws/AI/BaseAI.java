@@ -1,5 +1,7 @@
 package pws.AI;
 
+import pws.Utils;
+
 public abstract class BaseAI {
 
 	/**
@@ -9,6 +11,73 @@ public abstract class BaseAI {
 	 */
 	public abstract float[] evaluate(float[] inputs);
 
+	/**
+	 * Give the AI an input and write the answer to outputs, this way the caller can reuse the same array
+	 * @param inputs The input to give to the AI
+	 * @param outputs The array to write the output of the AI to
+	 * @return outputs
+	 */
+	public float[] evaluate(float[] inputs, float[] outputs) {
+		float[] result = evaluate(inputs);
+		System.arraycopy(result, 0, outputs, 0, result.length);
+		return outputs;
+	}
+
+	/**
+	 * Give the AI an input and return which output is the highest, for when the AI chooses one of its outputs.
+	 * By default this is {@link pws.Utils#oneHot(float[])} of the output, AIs that can do it faster override this.
+	 * @param inputs The input to give to the AI
+	 * @return The index of the highest output
+	 */
+	public int decide(float[] inputs) {
+		return Utils.oneHot(evaluate(inputs));
+	}
+
+	/**
+	 * Give the AI a batch of inputs and return all of the answers.
+	 * The inputs are stored after each other, so the first input is stored in inputs[0] to inputs[inputSize-1] and the second input after that.
+	 * The outputs are stored in the same way.
+	 * @param inputs All of the inputs after each other
+	 * @param batchSize How many inputs there are
+	 * @return All of the outputs after each other
+	 */
+	public float[] evaluateBatch(float[] inputs, int batchSize) {
+		if(batchSize <= 0 || inputs.length % batchSize != 0) {
+			throw new IllegalArgumentException(String.format("Invalid batch! %d values can't be split in %d inputs", inputs.length, batchSize));
+		}
+
+		int inputSize = inputs.length / batchSize;
+		float[] input = new float[inputSize];
+		float[] outputs = null;
+
+		//By default we just evaluate every input on its own
+		for(int i = 0; i < batchSize; i++) {
+			System.arraycopy(inputs, i * inputSize, input, 0, inputSize);
+			float[] output = evaluate(input);
+
+			if(outputs == null) {
+				outputs = new float[output.length * batchSize];
+			}
+
+			System.arraycopy(output, 0, outputs, i * output.length, output.length);
+		}
+
+		return outputs;
+	}
+
+	/**
+	 * Same as {@link #evaluateBatch(float[], int)} but the answers are written to outputs, this way the caller can reuse the same array
+	 * @param inputs All of the inputs after each other
+	 * @param batchSize How many inputs there are
+	 * @param outputs The array to write all of the outputs to
+	 * @return outputs
+	 */
+	public float[] evaluateBatch(float[] inputs, int batchSize, float[] outputs) {
+		float[] result = evaluateBatch(inputs, batchSize);
+		System.arraycopy(result, 0, outputs, 0, result.length);
+		return outputs;
+	}
+
     /**
      * Give the AI an input array and the outputs that should be returned with those inputs
      * @param inputs The inputs
@@ -16,6 +85,32 @@ public abstract class BaseAI {
      */
 	public abstract void train(float[] inputs, float[] outputs);
 
+	/**
+	 * Train the AI on a batch of inputs and the outputs that should be returned with those inputs.
+	 * The inputs and outputs are stored after each other, in the same way as {@link #evaluateBatch(float[], int)}.
+	 * By default every input is trained on its own using {@link #train(float[], float[])}, the learning rate is only used by AIs that override this.
+	 * @param inputs All of the inputs after each other
+	 * @param outputs All of the expected outputs after each other
+	 * @param batchSize How many inputs there are
+	 * @param learningRate How big the steps should be
+	 */
+	public void trainBatch(float[] inputs, float[] outputs, int batchSize, float learningRate) {
+		if(batchSize <= 0 || inputs.length % batchSize != 0 || outputs.length % batchSize != 0) {
+			throw new IllegalArgumentException(String.format("Invalid batch! %d inputs and %d outputs can't be split in %d pairs", inputs.length, outputs.length, batchSize));
+		}
+
+		int inputSize = inputs.length / batchSize;
+		int outputSize = outputs.length / batchSize;
+		float[] input = new float[inputSize];
+		float[] output = new float[outputSize];
+
+		for(int i = 0; i < batchSize; i++) {
+			System.arraycopy(inputs, i * inputSize, input, 0, inputSize);
+			System.arraycopy(outputs, i * outputSize, output, 0, outputSize);
+			train(input, output);
+		}
+	}
+
     /**
      * Mutate the AI (For Genetic Algorithm)
      */
@@ -27,4 +122,10 @@ public abstract class BaseAI {
      * @return A new AI
      */
 	public abstract BaseAI crossOver(BaseAI ai);
+
+    /**
+     * Create a copy of this AI that can be changed without changing this AI (For Genetic Algorithm)
+     * @return A new AI
+     */
+	public abstract BaseAI copy();
 }
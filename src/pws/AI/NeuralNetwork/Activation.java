@@ -0,0 +1,228 @@
+package pws.AI.NeuralNetwork;
+
+/**
+ * The activation functions a layer can use.
+ * Every activation can calculate its derivative from its own output, so the derivative doesn't have to call the activation function again.
+ *
+ * FAST_SIGMOID and FAST_TANH are approximations that use a lookup table instead of Math.exp:
+ *     - FAST_SIGMOID is at most 3e-6 away from SIGMOID
+ *     - FAST_TANH is at most 6e-6 away from TANH
+ */
+public enum Activation {
+	SIGMOID,
+	TANH,
+	RELU,
+	LEAKY_RELU,
+	LINEAR,
+	FAST_SIGMOID,
+	FAST_TANH;
+
+	//How much of a negative input leaky relu lets through
+	private static final double LEAK = 0.01;
+
+	//The table holds the sigmoid for inputs between -TABLE_RANGE and TABLE_RANGE, values in between are interpolated.
+	//Linear interpolation is off by at most step^2/8 * max|sigmoid''| = (1/64)^2/8 * 0.0963 < 3e-6,
+	//and outside of the table the sigmoid is less than sigmoid(-16) < 2e-7 away from 0 or 1
+	private static final double TABLE_RANGE = 16;
+	private static final int TABLE_STEPS_PER_UNIT = 64;
+	private static final double[] SIGMOID_TABLE = createSigmoidTable();
+
+	private static double[] createSigmoidTable() {
+		int size = (int) (2 * TABLE_RANGE * TABLE_STEPS_PER_UNIT) + 1;
+		double[] table = new double[size];
+
+		for(int i = 0; i < size; i++) {
+			table[i] = 1/(1+Math.exp(-(i / (double) TABLE_STEPS_PER_UNIT - TABLE_RANGE)));
+		}
+
+		return table;
+	}
+
+    /**
+     * Sigmoid using the lookup table
+     * @param x The input
+     * @return About 1/(1+e^-x)
+     */
+	private static double fastSigmoid(double x) {
+		if(x <= -TABLE_RANGE) return 0;
+		if(x >= TABLE_RANGE) return 1;
+
+		double position = (x + TABLE_RANGE) * TABLE_STEPS_PER_UNIT;
+		int index = (int) position;
+		double fraction = position - index;
+
+		//The last entry is exactly at TABLE_RANGE, which we already handled above
+		return SIGMOID_TABLE[index] + (SIGMOID_TABLE[index + 1] - SIGMOID_TABLE[index]) * fraction;
+	}
+
+    /**
+     * Apply the activation function to one value
+     * @param x The input to the activation function
+     * @return The output of the activation function
+     */
+	public double apply(double x) {
+		switch(this) {
+		case SIGMOID:
+			return 1/(1+Math.exp(-x));
+		case TANH:
+			return Math.tanh(x);
+		case RELU:
+			return x > 0 ? x : 0;
+		case LEAKY_RELU:
+			return x > 0 ? x : x * LEAK;
+		case FAST_SIGMOID:
+			return fastSigmoid(x);
+		case FAST_TANH:
+			//tanh(x) = 2*sigmoid(2x) - 1
+			return 2 * fastSigmoid(2 * x) - 1;
+		case LINEAR:
+		default:
+			return x;
+		}
+	}
+
+    /**
+     * Does the activation keep the order of its inputs? Then the highest output of a layer belongs to the highest weighted sum,
+     * so the activation can be skipped when only the highest output is needed.
+     * Relu is the only one that doesn't, it makes every negative sum 0.
+     * @return true if a bigger input never gives a smaller output and only very big or small inputs give the same output
+     */
+	boolean preservesOrder() {
+		return this != RELU;
+	}
+
+    /**
+     * The derivative of the activation function, calculated from the output of the activation function
+     * @param output The output the activation function gave
+     * @return The derivative at the input that produced that output
+     */
+	public double derivative(double output) {
+		switch(this) {
+		case SIGMOID:
+		case FAST_SIGMOID:
+			return output * (1 - output);
+		case TANH:
+		case FAST_TANH:
+			return 1 - output * output;
+		case RELU:
+			return output > 0 ? 1 : 0;
+		case LEAKY_RELU:
+			return output > 0 ? 1 : LEAK;
+		case LINEAR:
+		default:
+			return 1;
+		}
+	}
+
+    /**
+     * Apply the activation function to a part of an array, in place.
+     * Every activation has its own loop so the JIT can inline the function.
+     * @param values The values to apply the function to
+     * @param from The first index
+     * @param to The index after the last index
+     */
+	void apply(double[] values, int from, int to) {
+		switch(this) {
+		case SIGMOID:
+			for(int i = from; i < to; i++) values[i] = 1/(1+Math.exp(-values[i]));
+			break;
+		case TANH:
+			for(int i = from; i < to; i++) values[i] = Math.tanh(values[i]);
+			break;
+		case RELU:
+			for(int i = from; i < to; i++) values[i] = values[i] > 0 ? values[i] : 0;
+			break;
+		case LEAKY_RELU:
+			for(int i = from; i < to; i++) values[i] = values[i] > 0 ? values[i] : values[i] * LEAK;
+			break;
+		case FAST_SIGMOID:
+			for(int i = from; i < to; i++) values[i] = fastSigmoid(values[i]);
+			break;
+		case FAST_TANH:
+			for(int i = from; i < to; i++) values[i] = 2 * fastSigmoid(2 * values[i]) - 1;
+			break;
+		case LINEAR:
+			break;
+		}
+	}
+
+    /**
+     * Same as {@link #apply(double[], int, int)} for float arrays
+     */
+	void apply(float[] values, int from, int to) {
+		switch(this) {
+		case SIGMOID:
+			for(int i = from; i < to; i++) values[i] = (float) (1/(1+Math.exp(-values[i])));
+			break;
+		case TANH:
+			for(int i = from; i < to; i++) values[i] = (float) Math.tanh(values[i]);
+			break;
+		case RELU:
+			for(int i = from; i < to; i++) values[i] = values[i] > 0 ? values[i] : 0;
+			break;
+		case LEAKY_RELU:
+			for(int i = from; i < to; i++) values[i] = values[i] > 0 ? values[i] : values[i] * (float) LEAK;
+			break;
+		case FAST_SIGMOID:
+			for(int i = from; i < to; i++) values[i] = (float) fastSigmoid(values[i]);
+			break;
+		case FAST_TANH:
+			for(int i = from; i < to; i++) values[i] = (float) (2 * fastSigmoid(2 * values[i]) - 1);
+			break;
+		case LINEAR:
+			break;
+		}
+	}
+
+    /**
+     * Multiply every error with the derivative at the matching output, in place.
+     * @param errors The errors to multiply
+     * @param outputs The outputs of the activation function
+     * @param from The first index
+     * @param to The index after the last index
+     */
+	void multiplyDerivative(double[] errors, double[] outputs, int from, int to) {
+		switch(this) {
+		case SIGMOID:
+		case FAST_SIGMOID:
+			for(int i = from; i < to; i++) errors[i] *= outputs[i] * (1 - outputs[i]);
+			break;
+		case TANH:
+		case FAST_TANH:
+			for(int i = from; i < to; i++) errors[i] *= 1 - outputs[i] * outputs[i];
+			break;
+		case RELU:
+			for(int i = from; i < to; i++) if(outputs[i] <= 0) errors[i] = 0;
+			break;
+		case LEAKY_RELU:
+			for(int i = from; i < to; i++) if(outputs[i] <= 0) errors[i] *= LEAK;
+			break;
+		case LINEAR:
+			break;
+		}
+	}
+
+    /**
+     * Same as {@link #multiplyDerivative(double[], double[], int, int)} for float arrays
+     */
+	void multiplyDerivative(float[] errors, float[] outputs, int from, int to) {
+		switch(this) {
+		case SIGMOID:
+		case FAST_SIGMOID:
+			for(int i = from; i < to; i++) errors[i] *= outputs[i] * (1 - outputs[i]);
+			break;
+		case TANH:
+		case FAST_TANH:
+			for(int i = from; i < to; i++) errors[i] *= 1 - outputs[i] * outputs[i];
+			break;
+		case RELU:
+			for(int i = from; i < to; i++) if(outputs[i] <= 0) errors[i] = 0;
+			break;
+		case LEAKY_RELU:
+			for(int i = from; i < to; i++) if(outputs[i] <= 0) errors[i] *= (float) LEAK;
+			break;
+		case LINEAR:
+			break;
+		}
+	}
+}
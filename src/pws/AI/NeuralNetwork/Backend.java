@@ -0,0 +1,282 @@
+package pws.AI.NeuralNetwork;
+
+/**
+ * Does the actual math for a neural network.
+ * The loops over the layers are written once here for every precision. There is one backend for every precision,
+ * it only does the steps for one layer, directly on the arrays of its own matrix type and in its own workspace.
+ * The network checks the sizes of the arrays before calling these methods.
+ * @param <W> The scratch buffers of the backend, every thread has its own
+ */
+abstract class Backend<W> {
+
+    /**
+     * Calculate the output of the network for one input without allocating anything.
+     * @param network The network to evaluate
+     * @param input The input, inputCount values
+     * @param output The array to write the output to, outputCount values
+     */
+	final void evaluate(NeuralNetwork network, float[] input, float[] output) {
+		W workspace = workspace();
+		setInput(workspace, network, input);
+
+		for(int l = 0; l < network.weights.size(); l++) {
+			forwardLayer(workspace, network, l);
+		}
+
+		getOutput(workspace, output);
+	}
+
+    /**
+     * Calculate which output of the network is the highest for one input without allocating anything.
+     * The output layer is not converted to floats and its activation is skipped when it doesn't change which output is the highest.
+     * @param network The network to evaluate
+     * @param input The input, inputCount values
+     * @return The index of the highest output
+     */
+	final int decide(NeuralNetwork network, float[] input) {
+		W workspace = workspace();
+		setInput(workspace, network, input);
+
+		//Every layer except the output layer is the same as in evaluate
+		int last = network.weights.size() - 1;
+		for(int l = 0; l < last; l++) {
+			forwardLayer(workspace, network, l);
+		}
+
+		return decideOutputLayer(workspace, network, last);
+	}
+
+    /**
+     * Calculate the outputs of the network for a batch of inputs, every layer is one matrix-matrix multiplication.
+     * @param network The network to evaluate
+     * @param inputs The inputs after each other
+     * @param batchSize How many inputs there are
+     * @param outputs The array to write the outputs to
+     */
+	final void evaluateBatch(NeuralNetwork network, float[] inputs, int batchSize, float[] outputs) {
+		W workspace = workspace();
+		setBatchInput(workspace, network, inputs, batchSize);
+
+		for(int l = 0; l < network.weights.size(); l++) {
+			forwardBatchLayer(workspace, network, l, false);
+		}
+
+		getBatchOutput(workspace, network, outputs);
+	}
+
+    /**
+     * Do one step of gradient descent with the average gradient of a batch.
+     * When the network has an optimizer the optimizer takes the step instead and learningRate is not used.
+     * @param network The network to train
+     * @param inputs The inputs after each other
+     * @param targets The target outputs after each other
+     * @param batchSize How many inputs there are
+     * @param learningRate How much of the average gradient is subtracted from the weights and biases
+     */
+	final void trainBatch(NeuralNetwork network, float[] inputs, float[] targets, int batchSize, float learningRate) {
+		int layerCount = network.weights.size();
+
+		W workspace = workspace();
+		setBatchInput(workspace, network, inputs, batchSize);
+
+		//Same as evaluateBatch, but we keep the output of every layer because we need it to calculate the gradients
+		for(int l = 0; l < layerCount; l++) {
+			forwardBatchLayer(workspace, network, l, true);
+		}
+
+		//Backpropagation, the same as in trainSample but every row of the error matrix is the error for one input
+		for(int l = layerCount-1; l >= 0; l--) {
+			if(l == layerCount-1) {
+				batchOutputError(workspace, l, targets);
+			} else {
+				backpropagateBatch(workspace, network, l);
+			}
+
+			//Multiply with the derivative of the activation function, we can get it from the output we already calculated
+			multiplyBatchDerivative(workspace, network, l);
+		}
+
+		Optimizer optimizer = network.getOptimizer();
+		if(optimizer != null) optimizer.startStep();
+
+		for(int l = 0; l < layerCount; l++) {
+			batchGradients(workspace, network, l, batchSize);
+
+			if(optimizer == null) {
+				//Take one step with the average gradient
+				stepBatch(workspace, network, l, batchSize, learningRate);
+			} else {
+				//The optimizer takes the step, it expects the average gradient
+				optimizeBatch(workspace, network, l, batchSize, optimizer);
+			}
+		}
+	}
+
+    /**
+     * Do one step of gradient descent for one input, directly in the arrays of the weights and biases and without any locks.
+     * When the network has an optimizer the optimizer takes the step instead and learningRate is not used.
+     * @param network The network to train
+     * @param input The input
+     * @param target The target output
+     * @param learningRate How much of the gradient is subtracted from the weights and biases
+     */
+	final void trainSample(NeuralNetwork network, float[] input, float[] target, float learningRate) {
+		int layerCount = network.weights.size();
+
+		W workspace = workspace();
+		setSampleInput(workspace, network, input);
+
+		//Same as evaluate, but we keep the output of every layer
+		for(int l = 0; l < layerCount; l++) {
+			forwardSample(workspace, network, l);
+		}
+
+		//The error of the output layer, then backpropagate it to the other layers
+		sampleOutputError(workspace, network, target);
+		for(int l = layerCount-2; l >= 0; l--) {
+			backpropagateSample(workspace, network, l);
+		}
+
+		Optimizer optimizer = network.getOptimizer();
+		if(optimizer != null) {
+			optimizer.startStep();
+			for(int l = 0; l < layerCount; l++) {
+				optimizeSample(workspace, network, l, optimizer);
+			}
+			return;
+		}
+
+		for(int l = 0; l < layerCount; l++) {
+			stepSample(workspace, network, l, learningRate);
+		}
+	}
+
+    /**
+     * Get the workspace of this thread, so nothing is allocated and the network can still be used from multiple threads
+     * @return The workspace
+     */
+	abstract W workspace();
+
+    /**
+     * Make the buffers big enough for the network and copy the input into the current buffer
+     */
+	abstract void setInput(W workspace, NeuralNetwork network, float[] input);
+
+    /**
+     * Calculate activation(weights*input + bias) for one layer from the current buffer, after this the output is in the current buffer
+     */
+	abstract void forwardLayer(W workspace, NeuralNetwork network, int layer);
+
+    /**
+     * Copy the current buffer to the output, converted to floats
+     */
+	abstract void getOutput(W workspace, float[] output);
+
+    /**
+     * Calculate the weighted sums of the output layer and return the index of the highest output
+     */
+	abstract int decideOutputLayer(W workspace, NeuralNetwork network, int layer);
+
+    /**
+     * Make the matrices big enough for the network and copy the inputs into the batch input, every row is one input
+     */
+	abstract void setBatchInput(W workspace, NeuralNetwork network, float[] inputs, int batchSize);
+
+    /**
+     * Calculate the output of one layer for every input of the batch
+     * @param keep true to keep the output of the layer for the backpropagation, false to reuse the matrices
+     */
+	abstract void forwardBatchLayer(W workspace, NeuralNetwork network, int layer, boolean keep);
+
+    /**
+     * Copy the output of the last layer of evaluateBatch to the outputs, converted to floats
+     */
+	abstract void getBatchOutput(W workspace, NeuralNetwork network, float[] outputs);
+
+    /**
+     * Calculate the error of the output layer for every input of the batch
+     */
+	abstract void batchOutputError(W workspace, int layer, float[] targets);
+
+    /**
+     * Backpropagate the error of the next layer to this layer for every input of the batch
+     */
+	abstract void backpropagateBatch(W workspace, NeuralNetwork network, int layer);
+
+    /**
+     * Multiply the errors of one layer with the derivative of its activation function for every input of the batch
+     */
+	abstract void multiplyBatchDerivative(W workspace, NeuralNetwork network, int layer);
+
+    /**
+     * Calculate the summed gradients of the weights and the bias of one layer over the batch
+     */
+	abstract void batchGradients(W workspace, NeuralNetwork network, int layer, int batchSize);
+
+    /**
+     * Subtract learningRate times the average gradient from the weights and the bias of one layer
+     */
+	abstract void stepBatch(W workspace, NeuralNetwork network, int layer, int batchSize, float learningRate);
+
+    /**
+     * Let the optimizer change the weights and the bias of one layer with the average gradient
+     */
+	abstract void optimizeBatch(W workspace, NeuralNetwork network, int layer, int batchSize, Optimizer optimizer);
+
+    /**
+     * Make the buffers big enough for training the network and copy the input into the first of them
+     */
+	abstract void setSampleInput(W workspace, NeuralNetwork network, float[] input);
+
+    /**
+     * Calculate the output of one layer and keep it for the backpropagation
+     */
+	abstract void forwardSample(W workspace, NeuralNetwork network, int layer);
+
+    /**
+     * Calculate the error of the output layer, multiplied with the derivative of the activation function
+     */
+	abstract void sampleOutputError(W workspace, NeuralNetwork network, float[] target);
+
+    /**
+     * Backpropagate the error of the next layer to this layer, multiplied with the derivative of the activation function
+     */
+	abstract void backpropagateSample(W workspace, NeuralNetwork network, int layer);
+
+    /**
+     * Let the optimizer change the weights and the bias of one layer with the gradient of one input
+     */
+	abstract void optimizeSample(W workspace, NeuralNetwork network, int layer, Optimizer optimizer);
+
+    /**
+     * Subtract learningRate times the gradient of one input from the weights and the bias of one layer, in place
+     */
+	abstract void stepSample(W workspace, NeuralNetwork network, int layer, float learningRate);
+
+    /**
+     * Get the index of the highest value, the first one when there are multiple. Same as {@link pws.Utils#oneHot(float[])}
+     * @param values The values
+     * @param length The amount of values to look at
+     * @return The index of the highest value
+     */
+	static int argmax(double[] values, int length) {
+		int maxIndex = 0;
+		for(int i = 1; i < length; i++) {
+			if(values[i] > values[maxIndex]) maxIndex = i;
+		}
+
+		return maxIndex;
+	}
+
+    /**
+     * Same as {@link #argmax(double[], int)} for float arrays
+     */
+	static int argmax(float[] values, int length) {
+		int maxIndex = 0;
+		for(int i = 1; i < length; i++) {
+			if(values[i] > values[maxIndex]) maxIndex = i;
+		}
+
+		return maxIndex;
+	}
+}
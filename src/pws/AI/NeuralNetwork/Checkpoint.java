@@ -0,0 +1,322 @@
+package pws.AI.NeuralNetwork;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.ejml.data.MatrixType;
+
+/**
+ * Saves and loads neural networks in a binary format.
+ *
+ * The file is little endian and looks like this:
+ *     - header: magic, version, precision, input count, output count, amount of hidden layers, the size of every hidden layer
+ *       and the activation function of every layer (all ints)
+ *     - optimizer: the type (-1 when there is none), and when there is one the learning rate, the amount of settings, the settings (doubles) and the step count
+ *     - the weights and biases of every layer as floats, in the same order as {@link Genome}
+ *     - when there is an optimizer, for every slot the length and values (floats) of the first moments and then the second moments
+ *
+ * Loading reads the whole file into memory at once, so there is no parsing: after the header the floats are bulk copied straight into the arrays of the matrices.
+ * The file isn't mapped, a mapped file stays open until the buffer is garbage collected and then the next save can't replace it on Windows.
+ * Saving writes to a temporary file first and then moves it, so a crash while saving never breaks the old checkpoint.
+ */
+public final class Checkpoint {
+
+	private static final int MAGIC = 0x4E4E5750;
+	private static final int VERSION = 1;
+
+	//Saves happen on their own thread so training doesn't have to wait for the disk
+	private static final ExecutorService SAVER = Executors.newSingleThreadExecutor((runnable) -> {
+		Thread thread = new Thread(runnable, "Checkpoint");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private Checkpoint() {
+	}
+
+    /**
+     * Save a network and the state of its optimizer
+     * @param network The network to save
+     * @param path The file to save to, it is replaced when it already exists
+     * @throws IOException When the file couldn't be written
+     */
+	public static void save(NeuralNetwork network, Path path) throws IOException {
+		Optimizer optimizer = network.getOptimizer();
+		write(network, optimizer, path);
+	}
+
+    /**
+     * Save a network on another thread. The network can be changed right after calling this, the checkpoint contains the network as it was when this was called.
+     * The weights are not copied, they are shared copy-on-write so the network only copies a layer when it changes it. Only the optimizer state is copied.
+     * @param network The network to save
+     * @param path The file to save to, it is replaced when it already exists
+     * @return A future that completes when the file is written
+     */
+	public static CompletableFuture<Void> saveAsync(NeuralNetwork network, Path path) {
+		NeuralNetwork snapshot = network.copy();
+		Optimizer optimizer = network.getOptimizer() == null ? null : network.getOptimizer().snapshot();
+
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		SAVER.execute(() -> {
+			try {
+				write(snapshot, optimizer, path);
+				future.complete(null);
+			} catch (IOException | RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		});
+
+		return future;
+	}
+
+    /**
+     * Load a network, when the checkpoint contains an optimizer the network gets it with its state.
+     * @param path The file to load
+     * @return The network
+     * @throws IOException When the file couldn't be read or isn't a valid checkpoint
+     */
+	public static NeuralNetwork load(Path path) throws IOException {
+		byte[] bytes = Files.readAllBytes(path);
+
+		try {
+			return read(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException | IllegalArgumentException e) {
+			throw new IOException("Invalid checkpoint: " + path, e);
+		}
+	}
+
+	private static NeuralNetwork read(ByteBuffer buffer) throws IOException {
+		if(buffer.getInt() != MAGIC) {
+			throw new IOException("Not a checkpoint, the magic number is wrong");
+		}
+
+		int version = buffer.getInt();
+		if(version != VERSION) {
+			throw new IOException(String.format("Unsupported checkpoint version! Version expected: %d. Got version %d", VERSION, version));
+		}
+
+		Precision precision = Precision.values()[buffer.getInt()];
+		int inputCount = buffer.getInt();
+		int outputCount = buffer.getInt();
+		int[] hiddenLayers = new int[buffer.getInt()];
+		for(int i = 0; i < hiddenLayers.length; i++) {
+			hiddenLayers[i] = buffer.getInt();
+		}
+
+		NeuralNetwork network = new NeuralNetwork(inputCount, outputCount, hiddenLayers, precision);
+		for(int l = 0; l < network.weights.size(); l++) {
+			network.setActivation(l, Activation.values()[buffer.getInt()]);
+		}
+
+		Optimizer optimizer = null;
+		int optimizerType = buffer.getInt();
+		int steps = 0;
+		if(optimizerType >= 0) {
+			double learningRate = buffer.getDouble();
+			double[] settings = new double[buffer.getInt()];
+			for(int i = 0; i < settings.length; i++) {
+				settings[i] = buffer.getDouble();
+			}
+			steps = buffer.getInt();
+
+			optimizer = Optimizer.create(optimizerType, learningRate, settings);
+		}
+
+		for(int l = 0; l < network.weights.size(); l++) {
+			readMatrix(buffer, network.weights.get(l));
+			readMatrix(buffer, network.bias.get(l));
+		}
+
+		if(optimizer != null) {
+			//setOptimizer creates the buffers, then we fill them
+			network.setOptimizer(optimizer);
+			for(int slot = 0; slot < optimizer.firstMoments.length; slot++) {
+				readMoments(buffer, optimizer.firstMoments[slot]);
+				readMoments(buffer, optimizer.secondMoments[slot]);
+			}
+			optimizer.steps = steps;
+		}
+
+		return network;
+	}
+
+    /**
+     * Write a network without its optimizer to an array, in the same format as a checkpoint file. Used to send a network to another process
+     * @param network The network to write
+     * @return The bytes of the network
+     */
+	public static byte[] toBytes(NeuralNetwork network) {
+		ByteBuffer buffer = ByteBuffer.allocate(size(network, null)).order(ByteOrder.LITTLE_ENDIAN);
+		encode(network, null, buffer);
+		return buffer.array();
+	}
+
+    /**
+     * Read a network that was written by toBytes
+     * @param bytes The bytes of the network
+     * @return The network
+     * @throws IOException When the bytes aren't a valid network
+     */
+	public static NeuralNetwork fromBytes(byte[] bytes) throws IOException {
+		try {
+			return read(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException | IllegalArgumentException e) {
+			throw new IOException("Invalid network", e);
+		}
+	}
+
+	private static void write(NeuralNetwork network, Optimizer optimizer, Path path) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(size(network, optimizer)).order(ByteOrder.LITTLE_ENDIAN);
+		encode(network, optimizer, buffer);
+		buffer.flip();
+
+		//Write everything to a temporary file first, the old checkpoint stays intact until the new one is complete
+		Path directory = path.toAbsolutePath().getParent();
+		if(directory != null) Files.createDirectories(directory);
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+		try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+
+		try {
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void encode(NeuralNetwork network, Optimizer optimizer, ByteBuffer buffer) {
+		int layerCount = network.weights.size();
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(network.getPrecision().ordinal());
+		buffer.putInt(network.getInputCount());
+		buffer.putInt(network.getOutputCount());
+		buffer.putInt(layerCount - 1);
+		for(int l = 0; l < layerCount - 1; l++) {
+			buffer.putInt(network.bias.get(l).numRows());
+		}
+		for(int l = 0; l < layerCount; l++) {
+			buffer.putInt(network.getActivation(l).ordinal());
+		}
+
+		if(optimizer == null) {
+			buffer.putInt(-1);
+		} else {
+			double[] settings = optimizer.settings();
+			buffer.putInt(optimizer.type());
+			buffer.putDouble(optimizer.learningRate);
+			buffer.putInt(settings.length);
+			for(double setting : settings) {
+				buffer.putDouble(setting);
+			}
+			buffer.putInt(optimizer.steps);
+		}
+
+		for(int l = 0; l < layerCount; l++) {
+			writeMatrix(buffer, network.weights.get(l));
+			writeMatrix(buffer, network.bias.get(l));
+		}
+
+		if(optimizer != null) {
+			for(int slot = 0; slot < optimizer.firstMoments.length; slot++) {
+				writeMoments(buffer, optimizer.firstMoments[slot]);
+				writeMoments(buffer, optimizer.secondMoments[slot]);
+			}
+		}
+	}
+
+    /**
+     * Calculate the size of a checkpoint in bytes
+     * @param network The network to save
+     * @param optimizer The optimizer to save, or null
+     * @return The size in bytes
+     */
+	private static int size(NeuralNetwork network, Optimizer optimizer) {
+		int layerCount = network.weights.size();
+
+		//Magic, version, precision, input, output, hidden layer count, hidden layer sizes, activations and optimizer type
+		int size = 4 * (6 + (layerCount - 1) + layerCount + 1);
+
+		for(int l = 0; l < layerCount; l++) {
+			size += 4 * (network.weights.get(l).getNumElements() + network.bias.get(l).getNumElements());
+		}
+
+		if(optimizer != null) {
+			//Learning rate, settings count, settings and steps
+			size += 8 + 4 + 8 * optimizer.settings().length + 4;
+
+			for(int slot = 0; slot < optimizer.firstMoments.length; slot++) {
+				size += 4 + 4 * optimizer.firstMoments[slot].length;
+				size += 4 + 4 * optimizer.secondMoments[slot].length;
+			}
+		}
+
+		return size;
+	}
+
+	private static void writeMatrix(ByteBuffer buffer, ExtendedMatrix matrix) {
+		int size = matrix.getNumElements();
+		FloatBuffer floats = buffer.asFloatBuffer();
+
+		if(matrix.getType() == MatrixType.FDRM) {
+			floats.put(matrix.getFDRM().data, 0, size);
+		} else {
+			double[] data = matrix.getDDRM().data;
+			for(int i = 0; i < size; i++) {
+				floats.put((float) data[i]);
+			}
+		}
+
+		buffer.position(buffer.position() + size * 4);
+	}
+
+	private static void readMatrix(ByteBuffer buffer, ExtendedMatrix matrix) {
+		int size = matrix.getNumElements();
+		FloatBuffer floats = buffer.asFloatBuffer();
+
+		if(matrix.getType() == MatrixType.FDRM) {
+			floats.get(matrix.getFDRM().data, 0, size);
+		} else {
+			double[] data = matrix.getDDRM().data;
+			for(int i = 0; i < size; i++) {
+				data[i] = floats.get();
+			}
+		}
+
+		buffer.position(buffer.position() + size * 4);
+	}
+
+	private static void writeMoments(ByteBuffer buffer, double[] moments) {
+		buffer.putInt(moments.length);
+		for(double moment : moments) {
+			buffer.putFloat((float) moment);
+		}
+	}
+
+	private static void readMoments(ByteBuffer buffer, double[] moments) throws IOException {
+		int length = buffer.getInt();
+		if(length != moments.length) {
+			throw new IOException(String.format("Invalid optimizer state! Size expected: %d. Got size %d", moments.length, length));
+		}
+
+		for(int i = 0; i < length; i++) {
+			moments[i] = buffer.getFloat();
+		}
+	}
+}
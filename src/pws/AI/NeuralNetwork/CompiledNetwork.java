@@ -0,0 +1,134 @@
+package pws.AI.NeuralNetwork;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import pws.AI.BaseAI;
+
+/**
+ * A trained network compiled to its own class, for small networks that are only used for inference.
+ * The class has the whole forward pass written out with the weights as constants (see {@link NetworkCompiler}),
+ * so there are no lists, matrices or loops left and the JIT can turn it into straight-line code.
+ * Networks that are too big for that (the JIT doesn't compile huge methods) use a copy of the network instead, {@link #isGenerated()} tells which one is used.
+ *
+ * Every compiled network gets its own class loader, so the class is unloaded when the CompiledNetwork isn't used anymore.
+ */
+public final class CompiledNetwork extends BaseAI {
+
+    /**
+     * The forward pass of one network, implemented by the generated classes. Public because the generated classes are in another class loader.
+     */
+	public interface Kernel {
+		void evaluate(float[] input, float[] output);
+	}
+
+	private static final String PACKAGE = "pws/AI/NeuralNetwork/generated/";
+	private static final AtomicInteger CLASS_COUNT = new AtomicInteger();
+
+	private final Kernel kernel;
+	private final boolean generated;
+	private final int inputCount;
+	private final int outputCount;
+
+	private CompiledNetwork(Kernel kernel, boolean generated, int inputCount, int outputCount) {
+		this.kernel = kernel;
+		this.generated = generated;
+		this.inputCount = inputCount;
+		this.outputCount = outputCount;
+	}
+
+    /**
+     * Compile a network, the compiled network doesn't change when the network changes after this
+     * @param network The network to compile
+     * @return The compiled network
+     */
+	public static CompiledNetwork compile(NeuralNetwork network) {
+		int inputCount = network.getInputCount();
+		int outputCount = network.getOutputCount();
+
+		String className = PACKAGE + "Network" + CLASS_COUNT.incrementAndGet();
+		byte[] bytes = NetworkCompiler.compile(network, className);
+
+		if(bytes == null) {
+			//Too big to compile, use a copy so changes to the network still don't change this
+			NeuralNetwork copy = network.copy();
+			return new CompiledNetwork(copy::evaluate, false, inputCount, outputCount);
+		}
+
+		try {
+			Class<?> kernelClass = new Loader(CompiledNetwork.class.getClassLoader()).define(className.replace('/', '.'), bytes);
+			return new CompiledNetwork((Kernel) kernelClass.getDeclaredConstructor().newInstance(), true, inputCount, outputCount);
+		} catch (ReflectiveOperationException e) {
+			//The generated class always has a public constructor
+			throw new IllegalStateException("Could not create the compiled network!", e);
+		}
+	}
+
+	@Override
+	public float[] evaluate(float[] input) {
+		return evaluate(input, new float[outputCount]);
+	}
+
+    /**
+     * Get the answer the network produces for a given input and write it to output, this doesn't allocate anything.
+     * @param input An array with the data for the network to use. Array should be the same length as the input count
+     * @param output The array to write the values the network produced to. Array should be the same length as the output count
+     * @return output
+     */
+	@Override
+	public float[] evaluate(float[] input, float[] output) {
+		if(input.length != this.inputCount) {
+			throw new IllegalArgumentException(String.format("Invalid input! Size expected: %d. Got size %d", this.inputCount, input.length));
+		}
+
+		if(output.length != this.outputCount) {
+			throw new IllegalArgumentException(String.format("Invalid output! Size expected: %d. Got size %d", this.outputCount, output.length));
+		}
+
+		kernel.evaluate(input, output);
+		return output;
+	}
+
+    /**
+     * Was a class generated for the network?
+     * @return true if the generated class is used, false if the network was too big and a copy of it is used
+     */
+	public boolean isGenerated() {
+		return generated;
+	}
+
+	public int getInputCount() {
+		return inputCount;
+	}
+
+	public int getOutputCount() {
+		return outputCount;
+	}
+
+	//A compiled network is only used for inference, it can't learn anymore
+	@Override
+	public void train(float[] inputs, float[] outputs) {}
+
+	@Override
+	public void mutate() {}
+
+	@Override
+	public BaseAI crossOver(BaseAI ai) { return this; }
+
+	//Nothing can change a compiled network, so it can be shared
+	@Override
+	public BaseAI copy() { return this; }
+
+    /**
+     * Defines one generated class
+     */
+	private static final class Loader extends ClassLoader {
+
+		Loader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package pws.AI.NeuralNetwork;
+
+/**
+ * The loops that do most of the work for a dense layer: the forward pass, backpropagating the error and updating the weights.
+ * All of the weight arrays are stored row by row, a row for every neuron in the layer and a column for every neuron in the previous layer.
+ *
+ * There are two implementations:
+ *     - ScalarKernels, plain Java loops that work everywhere
+ *     - VectorKernels, uses the Vector API (jdk.incubator.vector) to do multiple values at once.
+ *       It is in the src-vector folder because it needs at least Java 16, and is only used when the JVM is started with --add-modules jdk.incubator.vector
+ * Starting the JVM with -Dpws.kernels=scalar always uses the scalar loops.
+ */
+interface DenseKernels {
+
+	DenseKernels INSTANCE = load();
+
+    /**
+     * Calculate weights*input + bias for every neuron in the layer
+     * @param weights The weights of the layer
+     * @param bias The bias of the layer
+     * @param input The output of the previous layer, cols values
+     * @param output The array to write the weighted sums to, rows values
+     * @param rows The amount of neurons in this layer
+     * @param cols The amount of neurons in the previous layer
+     */
+	void multiplyAdd(double[] weights, double[] bias, double[] input, double[] output, int rows, int cols);
+
+	void multiplyAdd(float[] weights, float[] bias, float[] input, float[] output, int rows, int cols);
+
+    /**
+     * Calculate weights*input + bias for a stack of layers with the same size, every input can use the weights and bias of another layer.
+     * The weights of layer j start at j*rows*cols and its bias at j*rows. Input i starts at i*cols and uses layer layers[i], its output starts at i*rows.
+     * @param weights The weights of all layers
+     * @param bias The biases of all layers
+     * @param layers For every input the index of the layer it uses
+     * @param inputs The inputs, cols values for every input
+     * @param outputs The array to write the weighted sums to, count*rows values
+     * @param count The amount of inputs
+     * @param rows The amount of neurons in a layer
+     * @param cols The amount of neurons in the previous layer
+     */
+	void multiplyAddStacked(double[] weights, double[] bias, int[] layers, double[] inputs, double[] outputs, int count, int rows, int cols);
+
+	void multiplyAddStacked(float[] weights, float[] bias, int[] layers, float[] inputs, float[] outputs, int count, int rows, int cols);
+
+    /**
+     * Calculate weights^T*vector without creating the transposed matrix, used to backpropagate the error to the previous layer
+     * @param weights The weights of the layer
+     * @param vector The error of this layer, rows values
+     * @param output The array to write the result to, cols values
+     * @param rows The amount of neurons in this layer
+     * @param cols The amount of neurons in the previous layer
+     */
+	void multiplyTransposed(double[] weights, double[] vector, double[] output, int rows, int cols);
+
+	void multiplyTransposed(float[] weights, float[] vector, float[] output, int rows, int cols);
+
+    /**
+     * Do a step of gradient descent in place: weights -= learningRate * error*activation^T and bias -= learningRate * error
+     * @param weights The weights of the layer
+     * @param bias The bias of the layer
+     * @param error The error of this layer, rows values
+     * @param activation The output of the previous layer, cols values
+     * @param learningRate How big the step is
+     * @param rows The amount of neurons in this layer
+     * @param cols The amount of neurons in the previous layer
+     */
+	void subtractOuterProduct(double[] weights, double[] bias, double[] error, double[] activation, double learningRate, int rows, int cols);
+
+	void subtractOuterProduct(float[] weights, float[] bias, float[] error, float[] activation, float learningRate, int rows, int cols);
+
+    /**
+     * Pick the kernels to use, the vector kernels when they are available and else the scalar kernels
+     * @return The kernels
+     */
+	static DenseKernels load() {
+		if(!"scalar".equals(System.getProperty("pws.kernels"))) {
+			try {
+				//This class only exists when the module was added with --add-modules jdk.incubator.vector
+				Class.forName("jdk.incubator.vector.DoubleVector");
+				return (DenseKernels) Class.forName("pws.AI.NeuralNetwork.VectorKernels").getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e) {
+				//Not available, so we use the scalar loops
+			}
+		}
+
+		return new ScalarKernels();
+	}
+}
@@ -0,0 +1,266 @@
+package pws.AI.NeuralNetwork;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+
+/**
+ * The backend for networks that store their weights, biases and activations as doubles (DMatrixRMaj).
+ */
+final class DoubleBackend extends Backend<Workspace> {
+
+	//Every thread gets its own buffers, this way nothing is allocated and the network can still be used from multiple threads
+	private static final ThreadLocal<Workspace> WORKSPACES = ThreadLocal.withInitial(Workspace::new);
+
+	@Override
+	Workspace workspace() {
+		return WORKSPACES.get();
+	}
+
+	@Override
+	void setInput(Workspace workspace, NeuralNetwork network, float[] input) {
+		workspace.ensureCapacity(network.getMaxLayerSize());
+		for(int i = 0; i < input.length; i++) {
+			workspace.current[i] = input[i];
+		}
+	}
+
+	@Override
+	void forwardLayer(Workspace workspace, NeuralNetwork network, int layer) {
+		DMatrixRMaj weight = network.weights.get(layer).getDDRM();
+
+		//This is activation(weights*input + bias) in one go, the result is written to the next buffer
+		forward(weight, network.bias.get(layer).getDDRM().data, workspace.current, workspace.next, network.getActivation(layer));
+
+		//The output of this layer is the input of the next layer
+		workspace.swap();
+	}
+
+	@Override
+	void getOutput(Workspace workspace, float[] output) {
+		//Convert the output of the last layer to floats
+		for(int i = 0; i < output.length; i++) {
+			output[i] = (float) workspace.current[i];
+		}
+	}
+
+	@Override
+	int decideOutputLayer(Workspace workspace, NeuralNetwork network, int layer) {
+		//Only the weighted sums of the output layer, the activation is only needed when it can change which one is the highest
+		DMatrixRMaj weight = network.weights.get(layer).getDDRM();
+		DenseKernels.INSTANCE.multiplyAdd(weight.data, network.bias.get(layer).getDDRM().data, workspace.current, workspace.next, weight.numRows, weight.numCols);
+
+		Activation activation = network.getActivation(layer);
+		if(!activation.preservesOrder()) {
+			activation.apply(workspace.next, 0, weight.numRows);
+		}
+
+		return argmax(workspace.next, weight.numRows);
+	}
+
+	@Override
+	void setBatchInput(Workspace workspace, NeuralNetwork network, float[] inputs, int batchSize) {
+		workspace.ensureLayers(network.weights.size());
+
+		//Every row is one input
+		DMatrixRMaj batchInput = workspace.batchCurrent;
+		batchInput.reshape(batchSize, network.getInputCount());
+		for(int i = 0; i < inputs.length; i++) {
+			batchInput.data[i] = inputs[i];
+		}
+	}
+
+	@Override
+	void forwardBatchLayer(Workspace workspace, NeuralNetwork network, int layer, boolean keep) {
+		DMatrixRMaj weight = network.weights.get(layer).getDDRM();
+		DMatrixRMaj layerInput = !keep || layer == 0 ? workspace.batchCurrent : workspace.batchOutputs[layer-1];
+		DMatrixRMaj layerOutput = keep ? workspace.batchOutputs[layer] : workspace.batchNext;
+		layerOutput.reshape(layerInput.numRows, weight.numRows);
+
+		//Every row of the input times the weights, input*weights^T gives us all of the weighted sums at once
+		CommonOps_DDRM.multTransB(layerInput, weight, layerOutput);
+
+		//Now we add the bias to every row and apply the activation function
+		addBiasAndActivate(layerOutput, network.bias.get(layer).getDDRM().data, network.getActivation(layer));
+
+		if(!keep) workspace.swapBatch();
+	}
+
+	@Override
+	void getBatchOutput(Workspace workspace, NeuralNetwork network, float[] outputs) {
+		double[] data = workspace.batchCurrent.data;
+		for(int i = 0; i < outputs.length; i++) {
+			outputs[i] = (float) data[i];
+		}
+	}
+
+	@Override
+	void batchOutputError(Workspace workspace, int layer, float[] targets) {
+		DMatrixRMaj layerOutput = workspace.batchOutputs[layer];
+		DMatrixRMaj error = workspace.batchErrors[layer];
+		error.reshape(layerOutput.numRows, layerOutput.numCols);
+		int size = error.getNumElements();
+
+		//How far we are off from the target
+		for(int i = 0; i < size; i++) {
+			error.data[i] = layerOutput.data[i] - targets[i];
+		}
+	}
+
+	@Override
+	void backpropagateBatch(Workspace workspace, NeuralNetwork network, int layer) {
+		DMatrixRMaj layerOutput = workspace.batchOutputs[layer];
+		DMatrixRMaj error = workspace.batchErrors[layer];
+		error.reshape(layerOutput.numRows, layerOutput.numCols);
+
+		//Backpropagate the error of the next layer, errors*weights is the same as (weights^T*error)^T for every row
+		CommonOps_DDRM.mult(workspace.batchErrors[layer+1], network.weights.get(layer+1).getDDRM(), error);
+	}
+
+	@Override
+	void multiplyBatchDerivative(Workspace workspace, NeuralNetwork network, int layer) {
+		//Multiply with the derivative of the activation function, we can get it from the output we already calculated
+		DMatrixRMaj error = workspace.batchErrors[layer];
+		network.getActivation(layer).multiplyDerivative(error.data, workspace.batchOutputs[layer].data, 0, error.getNumElements());
+	}
+
+	@Override
+	void batchGradients(Workspace workspace, NeuralNetwork network, int layer, int batchSize) {
+		DMatrixRMaj weight = network.weights.get(layer).getDDRM();
+		DMatrixRMaj error = workspace.batchErrors[layer];
+		DMatrixRMaj previousOutput = layer == 0 ? workspace.batchCurrent : workspace.batchOutputs[layer-1];
+
+		//The gradient of the weights is the sum of error*activation^T for every input, errors^T*activations does all of them at once
+		DMatrixRMaj weightGradient = workspace.weightGradients[layer];
+		weightGradient.reshape(weight.numRows, weight.numCols);
+		CommonOps_DDRM.multTransA(error, previousOutput, weightGradient);
+
+		//The gradient of the bias is the sum of the errors
+		DMatrixRMaj biasGradient = workspace.biasGradients[layer];
+		biasGradient.reshape(weight.numRows, 1);
+		biasGradient.zero();
+		int index = 0;
+		for(int row = 0; row < batchSize; row++) {
+			for(int col = 0; col < weight.numRows; col++) {
+				biasGradient.data[col] += error.data[index++];
+			}
+		}
+	}
+
+	@Override
+	void stepBatch(Workspace workspace, NeuralNetwork network, int layer, int batchSize, float learningRate) {
+		double scale = (double) learningRate / batchSize;
+		CommonOps_DDRM.addEquals(network.weights.get(layer).getDDRM(), -scale, workspace.weightGradients[layer]);
+		CommonOps_DDRM.addEquals(network.bias.get(layer).getDDRM(), -scale, workspace.biasGradients[layer]);
+	}
+
+	@Override
+	void optimizeBatch(Workspace workspace, NeuralNetwork network, int layer, int batchSize, Optimizer optimizer) {
+		DMatrixRMaj weightGradient = workspace.weightGradients[layer];
+		DMatrixRMaj biasGradient = workspace.biasGradients[layer];
+		CommonOps_DDRM.scale(1.0 / batchSize, weightGradient);
+		CommonOps_DDRM.scale(1.0 / batchSize, biasGradient);
+
+		optimizer.update(network.weights.get(layer).getDDRM().data, weightGradient.data, weightGradient.getNumElements(), layer*2);
+		optimizer.update(network.bias.get(layer).getDDRM().data, biasGradient.data, biasGradient.getNumElements(), layer*2+1);
+	}
+
+	@Override
+	void setSampleInput(Workspace workspace, NeuralNetwork network, float[] input) {
+		workspace.ensureLayerBuffers(network.weights.size(), network.getMaxLayerSize());
+		double[] layerInput = workspace.layerOutputs[0];
+		for(int i = 0; i < input.length; i++) {
+			layerInput[i] = input[i];
+		}
+	}
+
+	@Override
+	void forwardSample(Workspace workspace, NeuralNetwork network, int layer) {
+		double[][] outputs = workspace.layerOutputs;
+		forward(network.weights.get(layer).getDDRM(), network.bias.get(layer).getDDRM().data, outputs[layer], outputs[layer+1], network.getActivation(layer));
+	}
+
+	@Override
+	void sampleOutputError(Workspace workspace, NeuralNetwork network, float[] target) {
+		int last = network.weights.size() - 1;
+		double[] output = workspace.layerOutputs[last+1];
+		double[] outputError = workspace.layerErrors[last];
+		for(int row = 0; row < target.length; row++) {
+			outputError[row] = output[row] - target[row];
+		}
+
+		//The derivative of the activation function can be calculated from the output
+		network.getActivation(last).multiplyDerivative(outputError, output, 0, target.length);
+	}
+
+	@Override
+	void backpropagateSample(Workspace workspace, NeuralNetwork network, int layer) {
+		//weights^T*error is calculated by walking over the rows of the weights so we don't need the transposed matrix
+		DMatrixRMaj nextWeight = network.weights.get(layer+1).getDDRM();
+		double[] error = workspace.layerErrors[layer];
+		DenseKernels.INSTANCE.multiplyTransposed(nextWeight.data, workspace.layerErrors[layer+1], error, nextWeight.numRows, nextWeight.numCols);
+
+		network.getActivation(layer).multiplyDerivative(error, workspace.layerOutputs[layer+1], 0, nextWeight.numCols);
+	}
+
+	@Override
+	void optimizeSample(Workspace workspace, NeuralNetwork network, int layer, Optimizer optimizer) {
+		workspace.ensureLayers(network.weights.size());
+
+		DMatrixRMaj weight = network.weights.get(layer).getDDRM();
+		double[] error = workspace.layerErrors[layer];
+		double[] activation = workspace.layerOutputs[layer];
+
+		//Write the full gradient to the gradient buffer, the optimizer needs every weight
+		DMatrixRMaj weightGradient = workspace.weightGradients[layer];
+		weightGradient.reshape(weight.numRows, weight.numCols);
+
+		int index = 0;
+		for(int row = 0; row < weight.numRows; row++) {
+			for(int col = 0; col < weight.numCols; col++) {
+				weightGradient.data[index++] = error[row] * activation[col];
+			}
+		}
+
+		//The gradient of the bias is the error itself
+		optimizer.update(weight.data, weightGradient.data, index, layer*2);
+		optimizer.update(network.bias.get(layer).getDDRM().data, error, weight.numRows, layer*2+1);
+	}
+
+	@Override
+	void stepSample(Workspace workspace, NeuralNetwork network, int layer, float learningRate) {
+		//The gradient for a weight is error*activation, we only touch the weights that actually change
+		DMatrixRMaj weight = network.weights.get(layer).getDDRM();
+		DenseKernels.INSTANCE.subtractOuterProduct(weight.data, network.bias.get(layer).getDDRM().data, workspace.layerErrors[layer], workspace.layerOutputs[layer], learningRate, weight.numRows, weight.numCols);
+	}
+
+    /**
+     * Calculate activation(weights*input + bias) for one layer, directly on the arrays of the matrices.
+     * @param weight The weights of the layer
+     * @param bias The bias of the layer
+     * @param input The output of the previous layer
+     * @param output The array the output of this layer is written to
+     * @param activation The activation function of this layer
+     */
+	private static void forward(DMatrixRMaj weight, double[] bias, double[] input, double[] output, Activation activation) {
+		DenseKernels.INSTANCE.multiplyAdd(weight.data, bias, input, output, weight.numRows, weight.numCols);
+		activation.apply(output, 0, weight.numRows);
+	}
+
+    /**
+     * Add the bias to every row of the weighted sums and apply the activation function
+     * @param weightedSums A matrix with a row for every input in the batch
+     * @param bias The bias of the layer
+     * @param activation The activation function of the layer
+     */
+	private static void addBiasAndActivate(DMatrixRMaj weightedSums, double[] bias, Activation activation) {
+		double[] data = weightedSums.data;
+		int index = 0;
+		for(int row = 0; row < weightedSums.numRows; row++) {
+			for(int col = 0; col < weightedSums.numCols; col++) {
+				data[index++] += bias[col];
+			}
+		}
+
+		activation.apply(data, 0, index);
+	}
+}
@@ -1,18 +1,25 @@
 package pws.AI.NeuralNetwork;
 
 import java.util.Random;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.FMatrixRMaj;
 import org.ejml.data.MatrixType;
 import org.ejml.simple.SimpleMatrix;
 
 /**
- * SimpleMatrix with some helpful methods
+ * SimpleMatrix with some helpful methods.
+ * The data array can be shared with copies (see shareCopy), so every method of SimpleMatrix that changes this matrix in place calls ensureOwned first.
+ * The arrays of getMatrix, getDDRM and getFDRM can be shared as well, only write to them after calling ensureOwned.
  */
 public class ExtendedMatrix extends SimpleMatrix {
 
 	private static final long serialVersionUID = -2676717466637594577L;
 
+	//Not null when the data array is shared with other matrices, the counter is the amount of matrices using it
+	private transient volatile AtomicInteger sharedBy;
+
 	ExtendedMatrix(int r, int c) {
 		super(r, c);
 	}
@@ -21,25 +28,169 @@ public class ExtendedMatrix extends SimpleMatrix {
 		this(i, 1);
 	}
 
+	ExtendedMatrix(int i, MatrixType type) {
+		this(i, 1, type);
+	}
+
 	public ExtendedMatrix(double[][] ds) {
 		super(ds);
 	}
 	
-	private ExtendedMatrix(int numRows, int numCols, MatrixType type) {
+	ExtendedMatrix(int numRows, int numCols, MatrixType type) {
 		super(numRows, numCols, type);
 	}
 
+	private ExtendedMatrix() {
+	}
+
 	@Override
 	protected ExtendedMatrix createMatrix(int numRows, int numCols, MatrixType type) {
 	    return new ExtendedMatrix(numRows, numCols, type);
 	}
 
+    /**
+     * Create a copy that uses the same data array as this matrix until one of them is written to (copy-on-write).
+     * This makes copying a network almost free, the data is only copied by ensureOwned when it actually changes.
+     * @return A matrix with the same values
+     */
+	ExtendedMatrix shareCopy() {
+		ExtendedMatrix copy = new ExtendedMatrix();
+
+		//The lock on this guards the counter field of this matrix, the lock on the counter guards the data all matrices with that counter share
+		synchronized(this) {
+			AtomicInteger counter = sharedBy;
+			if(counter == null) {
+				counter = new AtomicInteger(1);
+				sharedBy = counter;
+			}
+
+			synchronized(counter) {
+				counter.incrementAndGet();
+
+				if(getType() == MatrixType.FDRM) {
+					FMatrixRMaj matrix = getFDRM();
+					copy.setMatrix(FMatrixRMaj.wrap(matrix.numRows, matrix.numCols, matrix.data));
+				} else {
+					DMatrixRMaj matrix = getDDRM();
+					copy.setMatrix(DMatrixRMaj.wrap(matrix.numRows, matrix.numCols, matrix.data));
+				}
+			}
+
+			copy.sharedBy = counter;
+		}
+
+		return copy;
+	}
+
+    /**
+     * Make sure no other matrix uses the data array of this matrix, this has to be called before changing the data array directly.
+     * When the data is shared it is copied, the last matrix that still uses the shared array keeps it.
+     */
+	void ensureOwned() {
+		if(sharedBy == null) return;
+
+		synchronized(this) {
+			AtomicInteger counter = sharedBy;
+			if(counter == null) return;
+
+			//The data is copied before this matrix stops counting, so the last matrix can't write to it while it is being copied
+			synchronized(counter) {
+				if(counter.get() > 1) {
+					if(getType() == MatrixType.FDRM) {
+						getFDRM().data = getFDRM().data.clone();
+					} else {
+						getDDRM().data = getDDRM().data.clone();
+					}
+				}
+
+				counter.decrementAndGet();
+			}
+
+			sharedBy = null;
+		}
+	}
+
+	@Override
+	public void set(int index, double value) {
+		ensureOwned();
+		super.set(index, value);
+	}
+
+	@Override
+	public void set(int row, int col, double value) {
+		ensureOwned();
+		super.set(row, col, value);
+	}
+
+	@Override
+	public void set(int row, int col, double real, double imaginary) {
+		ensureOwned();
+		super.set(row, col, real, imaginary);
+	}
+
+	@Override
+	public void set(SimpleMatrix a) {
+		ensureOwned();
+		super.set(a);
+	}
+
+	@Override
+	public void setRow(int row, int startColumn, double... values) {
+		ensureOwned();
+		super.setRow(row, startColumn, values);
+	}
+
+	@Override
+	public void setColumn(int column, int startRow, double... values) {
+		ensureOwned();
+		super.setColumn(column, startRow, values);
+	}
+
+	@Override
+	public void fill(double value) {
+		ensureOwned();
+		super.fill(value);
+	}
+
+	@Override
+	public void zero() {
+		ensureOwned();
+		super.zero();
+	}
+
+	@Override
+	public void reshape(int numRows, int numCols) {
+		ensureOwned();
+		super.reshape(numRows, numCols);
+	}
+
+	@Override
+	public void insertIntoThis(int insertRow, int insertCol, SimpleMatrix b) {
+		ensureOwned();
+		super.insertIntoThis(insertRow, insertCol, b);
+	}
+
+	@Override
+	public void equation(String equation, Object... variables) {
+		//The equation can assign to this matrix, so we can't share the data anymore
+		ensureOwned();
+		super.equation(equation, variables);
+	}
+
+	@Override
+	public void convertToSparse() {
+		ensureOwned();
+		super.convertToSparse();
+	}
+
     /**
      * Randomise the matrix with values between -1 and 1
      * @param random The random object to use
      * @return this
      */
-	private ExtendedMatrix randomise(Random random) {
+	ExtendedMatrix randomise(Random random) {
+		ensureOwned();
+
 		for(int i = 0; i < this.getNumElements(); i++) {
 			this.set(i, random.nextDouble()*2-1);
 		}
@@ -57,35 +208,4 @@ public class ExtendedMatrix extends SimpleMatrix {
 		return this.randomise(new Random());
 	}
 
-    /**
-     * Run a function for every value in the matrix.
-     * @param func The funtion to run for every value.
-     * @return A new matrix with the function applied to every value of this matrix
-     */
-	ExtendedMatrix apply(Function<Float, Float> func) {
-		ExtendedMatrix matrix = new ExtendedMatrix(this.numRows(), this.numCols());
-		
-		for(int i = 0; i < this.getNumElements(); i++) {
-			matrix.set(i, func.apply((float) this.get(i)));
-		}
-		
-		
-		return matrix;
-	}
-
-    /**
-     * Create a matrix from an array.
-     * @param input The array to convert to a matrix
-     * @return The matrix created from the array
-     */
-	static ExtendedMatrix fromArray(float[] input) {
-		ExtendedMatrix matrix = new ExtendedMatrix(input.length);
-		
-		for(int i = 0; i < input.length; i++) {
-			matrix.set(i, input[i]);
-		}
-		
-		return matrix;
-	}
-
 }
@@ -0,0 +1,254 @@
+package pws.AI.NeuralNetwork;
+
+import org.ejml.data.FMatrixRMaj;
+import org.ejml.dense.row.CommonOps_FDRM;
+
+/**
+ * The backend for networks that store their weights, biases and activations as floats (FMatrixRMaj).
+ * This halves the memory that has to be read for every layer and the inputs and outputs don't have to be converted anymore.
+ */
+final class FloatBackend extends Backend<FloatWorkspace> {
+
+	//Every thread gets its own buffers, this way nothing is allocated and the network can still be used from multiple threads
+	private static final ThreadLocal<FloatWorkspace> WORKSPACES = ThreadLocal.withInitial(FloatWorkspace::new);
+
+	@Override
+	FloatWorkspace workspace() {
+		return WORKSPACES.get();
+	}
+
+	@Override
+	void setInput(FloatWorkspace workspace, NeuralNetwork network, float[] input) {
+		workspace.ensureCapacity(network.getMaxLayerSize());
+		System.arraycopy(input, 0, workspace.current, 0, input.length);
+	}
+
+	@Override
+	void forwardLayer(FloatWorkspace workspace, NeuralNetwork network, int layer) {
+		FMatrixRMaj weight = network.weights.get(layer).getFDRM();
+
+		//This is activation(weights*input + bias) in one go, the result is written to the next buffer
+		forward(weight, network.bias.get(layer).getFDRM().data, workspace.current, workspace.next, network.getActivation(layer));
+
+		//The output of this layer is the input of the next layer
+		workspace.swap();
+	}
+
+	@Override
+	void getOutput(FloatWorkspace workspace, float[] output) {
+		System.arraycopy(workspace.current, 0, output, 0, output.length);
+	}
+
+	@Override
+	int decideOutputLayer(FloatWorkspace workspace, NeuralNetwork network, int layer) {
+		//Only the weighted sums of the output layer, the activation is only needed when it can change which one is the highest
+		FMatrixRMaj weight = network.weights.get(layer).getFDRM();
+		DenseKernels.INSTANCE.multiplyAdd(weight.data, network.bias.get(layer).getFDRM().data, workspace.current, workspace.next, weight.numRows, weight.numCols);
+
+		Activation activation = network.getActivation(layer);
+		if(!activation.preservesOrder()) {
+			activation.apply(workspace.next, 0, weight.numRows);
+		}
+
+		return argmax(workspace.next, weight.numRows);
+	}
+
+	@Override
+	void setBatchInput(FloatWorkspace workspace, NeuralNetwork network, float[] inputs, int batchSize) {
+		workspace.ensureLayers(network.weights.size());
+
+		//Every row is one input
+		FMatrixRMaj batchInput = workspace.batchCurrent;
+		batchInput.reshape(batchSize, network.getInputCount());
+		System.arraycopy(inputs, 0, batchInput.data, 0, inputs.length);
+	}
+
+	@Override
+	void forwardBatchLayer(FloatWorkspace workspace, NeuralNetwork network, int layer, boolean keep) {
+		FMatrixRMaj weight = network.weights.get(layer).getFDRM();
+		FMatrixRMaj layerInput = !keep || layer == 0 ? workspace.batchCurrent : workspace.batchOutputs[layer-1];
+		FMatrixRMaj layerOutput = keep ? workspace.batchOutputs[layer] : workspace.batchNext;
+		layerOutput.reshape(layerInput.numRows, weight.numRows);
+
+		//Every row of the input times the weights, input*weights^T gives us all of the weighted sums at once
+		CommonOps_FDRM.multTransB(layerInput, weight, layerOutput);
+
+		//Now we add the bias to every row and apply the activation function
+		addBiasAndActivate(layerOutput, network.bias.get(layer).getFDRM().data, network.getActivation(layer));
+
+		if(!keep) workspace.swapBatch();
+	}
+
+	@Override
+	void getBatchOutput(FloatWorkspace workspace, NeuralNetwork network, float[] outputs) {
+		System.arraycopy(workspace.batchCurrent.data, 0, outputs, 0, outputs.length);
+	}
+
+	@Override
+	void batchOutputError(FloatWorkspace workspace, int layer, float[] targets) {
+		FMatrixRMaj layerOutput = workspace.batchOutputs[layer];
+		FMatrixRMaj error = workspace.batchErrors[layer];
+		error.reshape(layerOutput.numRows, layerOutput.numCols);
+		int size = error.getNumElements();
+
+		//How far we are off from the target
+		for(int i = 0; i < size; i++) {
+			error.data[i] = layerOutput.data[i] - targets[i];
+		}
+	}
+
+	@Override
+	void backpropagateBatch(FloatWorkspace workspace, NeuralNetwork network, int layer) {
+		FMatrixRMaj layerOutput = workspace.batchOutputs[layer];
+		FMatrixRMaj error = workspace.batchErrors[layer];
+		error.reshape(layerOutput.numRows, layerOutput.numCols);
+
+		//Backpropagate the error of the next layer, errors*weights is the same as (weights^T*error)^T for every row
+		CommonOps_FDRM.mult(workspace.batchErrors[layer+1], network.weights.get(layer+1).getFDRM(), error);
+	}
+
+	@Override
+	void multiplyBatchDerivative(FloatWorkspace workspace, NeuralNetwork network, int layer) {
+		//Multiply with the derivative of the activation function, we can get it from the output we already calculated
+		FMatrixRMaj error = workspace.batchErrors[layer];
+		network.getActivation(layer).multiplyDerivative(error.data, workspace.batchOutputs[layer].data, 0, error.getNumElements());
+	}
+
+	@Override
+	void batchGradients(FloatWorkspace workspace, NeuralNetwork network, int layer, int batchSize) {
+		FMatrixRMaj weight = network.weights.get(layer).getFDRM();
+		FMatrixRMaj error = workspace.batchErrors[layer];
+		FMatrixRMaj previousOutput = layer == 0 ? workspace.batchCurrent : workspace.batchOutputs[layer-1];
+
+		//The gradient of the weights is the sum of error*activation^T for every input, errors^T*activations does all of them at once
+		FMatrixRMaj weightGradient = workspace.weightGradients[layer];
+		weightGradient.reshape(weight.numRows, weight.numCols);
+		CommonOps_FDRM.multTransA(error, previousOutput, weightGradient);
+
+		//The gradient of the bias is the sum of the errors
+		FMatrixRMaj biasGradient = workspace.biasGradients[layer];
+		biasGradient.reshape(weight.numRows, 1);
+		biasGradient.zero();
+		int index = 0;
+		for(int row = 0; row < batchSize; row++) {
+			for(int col = 0; col < weight.numRows; col++) {
+				biasGradient.data[col] += error.data[index++];
+			}
+		}
+	}
+
+	@Override
+	void stepBatch(FloatWorkspace workspace, NeuralNetwork network, int layer, int batchSize, float learningRate) {
+		float scale = learningRate / batchSize;
+		CommonOps_FDRM.addEquals(network.weights.get(layer).getFDRM(), -scale, workspace.weightGradients[layer]);
+		CommonOps_FDRM.addEquals(network.bias.get(layer).getFDRM(), -scale, workspace.biasGradients[layer]);
+	}
+
+	@Override
+	void optimizeBatch(FloatWorkspace workspace, NeuralNetwork network, int layer, int batchSize, Optimizer optimizer) {
+		FMatrixRMaj weightGradient = workspace.weightGradients[layer];
+		FMatrixRMaj biasGradient = workspace.biasGradients[layer];
+		CommonOps_FDRM.scale(1f / batchSize, weightGradient);
+		CommonOps_FDRM.scale(1f / batchSize, biasGradient);
+
+		optimizer.update(network.weights.get(layer).getFDRM().data, weightGradient.data, weightGradient.getNumElements(), layer*2);
+		optimizer.update(network.bias.get(layer).getFDRM().data, biasGradient.data, biasGradient.getNumElements(), layer*2+1);
+	}
+
+	@Override
+	void setSampleInput(FloatWorkspace workspace, NeuralNetwork network, float[] input) {
+		workspace.ensureLayerBuffers(network.weights.size(), network.getMaxLayerSize());
+		System.arraycopy(input, 0, workspace.layerOutputs[0], 0, input.length);
+	}
+
+	@Override
+	void forwardSample(FloatWorkspace workspace, NeuralNetwork network, int layer) {
+		float[][] outputs = workspace.layerOutputs;
+		forward(network.weights.get(layer).getFDRM(), network.bias.get(layer).getFDRM().data, outputs[layer], outputs[layer+1], network.getActivation(layer));
+	}
+
+	@Override
+	void sampleOutputError(FloatWorkspace workspace, NeuralNetwork network, float[] target) {
+		int last = network.weights.size() - 1;
+		float[] output = workspace.layerOutputs[last+1];
+		float[] outputError = workspace.layerErrors[last];
+		for(int row = 0; row < target.length; row++) {
+			outputError[row] = output[row] - target[row];
+		}
+
+		//The derivative of the activation function can be calculated from the output
+		network.getActivation(last).multiplyDerivative(outputError, output, 0, target.length);
+	}
+
+	@Override
+	void backpropagateSample(FloatWorkspace workspace, NeuralNetwork network, int layer) {
+		//weights^T*error is calculated by walking over the rows of the weights so we don't need the transposed matrix
+		FMatrixRMaj nextWeight = network.weights.get(layer+1).getFDRM();
+		float[] error = workspace.layerErrors[layer];
+		DenseKernels.INSTANCE.multiplyTransposed(nextWeight.data, workspace.layerErrors[layer+1], error, nextWeight.numRows, nextWeight.numCols);
+
+		network.getActivation(layer).multiplyDerivative(error, workspace.layerOutputs[layer+1], 0, nextWeight.numCols);
+	}
+
+	@Override
+	void optimizeSample(FloatWorkspace workspace, NeuralNetwork network, int layer, Optimizer optimizer) {
+		workspace.ensureLayers(network.weights.size());
+
+		FMatrixRMaj weight = network.weights.get(layer).getFDRM();
+		float[] error = workspace.layerErrors[layer];
+		float[] activation = workspace.layerOutputs[layer];
+
+		//Write the full gradient to the gradient buffer, the optimizer needs every weight
+		FMatrixRMaj weightGradient = workspace.weightGradients[layer];
+		weightGradient.reshape(weight.numRows, weight.numCols);
+
+		int index = 0;
+		for(int row = 0; row < weight.numRows; row++) {
+			for(int col = 0; col < weight.numCols; col++) {
+				weightGradient.data[index++] = error[row] * activation[col];
+			}
+		}
+
+		//The gradient of the bias is the error itself
+		optimizer.update(weight.data, weightGradient.data, index, layer*2);
+		optimizer.update(network.bias.get(layer).getFDRM().data, error, weight.numRows, layer*2+1);
+	}
+
+	@Override
+	void stepSample(FloatWorkspace workspace, NeuralNetwork network, int layer, float learningRate) {
+		//The gradient for a weight is error*activation, we only touch the weights that actually change
+		FMatrixRMaj weight = network.weights.get(layer).getFDRM();
+		DenseKernels.INSTANCE.subtractOuterProduct(weight.data, network.bias.get(layer).getFDRM().data, workspace.layerErrors[layer], workspace.layerOutputs[layer], learningRate, weight.numRows, weight.numCols);
+	}
+
+    /**
+     * Calculate activation(weights*input + bias) for one layer, directly on the arrays of the matrices.
+     * @param weight The weights of the layer
+     * @param bias The bias of the layer
+     * @param input The output of the previous layer
+     * @param output The array the output of this layer is written to
+     * @param activation The activation function of this layer
+     */
+	private static void forward(FMatrixRMaj weight, float[] bias, float[] input, float[] output, Activation activation) {
+		DenseKernels.INSTANCE.multiplyAdd(weight.data, bias, input, output, weight.numRows, weight.numCols);
+		activation.apply(output, 0, weight.numRows);
+	}
+
+    /**
+     * Add the bias to every row of the weighted sums and apply the activation function
+     * @param weightedSums A matrix with a row for every input in the batch
+     * @param bias The bias of the layer
+     * @param activation The activation function of the layer
+     */
+	private static void addBiasAndActivate(FMatrixRMaj weightedSums, float[] bias, Activation activation) {
+		float[] data = weightedSums.data;
+		int index = 0;
+		for(int row = 0; row < weightedSums.numRows; row++) {
+			for(int col = 0; col < weightedSums.numCols; col++) {
+				data[index++] += bias[col];
+			}
+		}
+
+		activation.apply(data, 0, index);
+	}
+}
@@ -0,0 +1,93 @@
+package pws.AI.NeuralNetwork;
+
+import org.ejml.data.FMatrixRMaj;
+
+/**
+ * Same as Workspace, but for networks that use floats.
+ */
+final class FloatWorkspace {
+
+	//The output of one layer is the input of the next, so we only need two buffers that we swap after every layer
+	float[] current = new float[0];
+	float[] next = new float[0];
+
+	//Same idea as above but for a whole batch of inputs, every row of the matrix is one input.
+	//reshape only allocates when the matrix has to grow, so these are reused as well
+	FMatrixRMaj batchCurrent = new FMatrixRMaj(1, 1);
+	FMatrixRMaj batchNext = new FMatrixRMaj(1, 1);
+
+	//Used when training on a batch, one matrix for every layer.
+	//The outputs and errors have a row for every input in the batch, the gradients have the same size as the weights and biases
+	FMatrixRMaj[] batchOutputs = new FMatrixRMaj[0];
+	FMatrixRMaj[] batchErrors = new FMatrixRMaj[0];
+	FMatrixRMaj[] weightGradients = new FMatrixRMaj[0];
+	FMatrixRMaj[] biasGradients = new FMatrixRMaj[0];
+
+    /**
+     * Make sure both buffers can hold at least the given amount of values.
+     * Buffers only grow, so after the first call for a network this doesn't allocate anymore.
+     * @param size The amount of values the buffers should be able to hold
+     */
+	void ensureCapacity(int size) {
+		if(current.length < size) {
+			current = new float[size];
+			next = new float[size];
+		}
+	}
+
+	//Used when training on a single input, one buffer for every layer.
+	//layerOutputs[0] holds the input, layerOutputs[l+1] the output of layer l and layerErrors[l] the error of layer l
+	float[][] layerOutputs = new float[0][];
+	float[][] layerErrors = new float[0][];
+
+    /**
+     * Make sure there are enough buffers for training a network with the given amount of layers.
+     * @param layers The amount of weight matrices the network has
+     * @param size The amount of neurons in the biggest layer
+     */
+	void ensureLayerBuffers(int layers, int size) {
+		if(layerErrors.length < layers || layerErrors[0].length < size) {
+			layerOutputs = new float[layers + 1][size];
+			layerErrors = new float[layers][size];
+		}
+	}
+
+    /**
+     * Make sure there are enough matrices for training a network with the given amount of layers.
+     * @param layers The amount of weight matrices the network has
+     */
+	void ensureLayers(int layers) {
+		if(batchOutputs.length < layers) {
+			batchOutputs = createMatrices(layers);
+			batchErrors = createMatrices(layers);
+			weightGradients = createMatrices(layers);
+			biasGradients = createMatrices(layers);
+		}
+	}
+
+	private static FMatrixRMaj[] createMatrices(int count) {
+		FMatrixRMaj[] matrices = new FMatrixRMaj[count];
+		for(int i = 0; i < count; i++) {
+			matrices[i] = new FMatrixRMaj(1, 1);
+		}
+		return matrices;
+	}
+
+    /**
+     * Swap the buffers, the values written to next can then be read from current.
+     */
+	void swap() {
+		float[] temp = current;
+		current = next;
+		next = temp;
+	}
+
+    /**
+     * Swap the batch matrices, the values written to batchNext can then be read from batchCurrent.
+     */
+	void swapBatch() {
+		FMatrixRMaj temp = batchCurrent;
+		batchCurrent = batchNext;
+		batchNext = temp;
+	}
+}
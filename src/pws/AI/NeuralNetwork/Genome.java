@@ -0,0 +1,196 @@
+package pws.AI.NeuralNetwork;
+
+import java.util.SplittableRandom;
+
+import org.ejml.data.MatrixType;
+
+/**
+ * All weights and biases of a neural network as one flat vector of genes.
+ * The genes are ordered per layer: first the weights of layer 0 (row by row), then the biases of layer 0, then the weights of layer 1 and so on.
+ * This is a view, so changing a gene changes the network and the other way around. The view is only valid while the network keeps the same matrices.
+ * Layers that are shared with a copy of the network are copied before they are changed.
+ *
+ * Every layer is stored in its own matrix, so the genes are not one array. The operations work on the arrays of the matrices directly
+ * so nothing is allocated and nothing is boxed.
+ */
+public final class Genome {
+
+	//The network the genes belong to, it gets a new version when a gene changes
+	private final NeuralNetwork network;
+
+	//The matrices in gene order: weights 0, bias 0, weights 1, bias 1...
+	private final ExtendedMatrix[] segments;
+
+	//The index of the first gene of every segment, with the total size at the end
+	private final int[] offsets;
+
+	Genome(NeuralNetwork network) {
+		this.network = network;
+		int layerCount = network.weights.size();
+		this.segments = new ExtendedMatrix[layerCount * 2];
+		this.offsets = new int[segments.length + 1];
+
+		for(int l = 0; l < layerCount; l++) {
+			segments[l*2] = network.weights.get(l);
+			segments[l*2+1] = network.bias.get(l);
+		}
+
+		for(int i = 0; i < segments.length; i++) {
+			offsets[i+1] = offsets[i] + segments[i].getNumElements();
+		}
+	}
+
+    /**
+     * Get the amount of genes
+     * @return The amount of weights and biases of the network
+     */
+	public int size() {
+		return offsets[segments.length];
+	}
+
+    /**
+     * Get the value of a gene
+     * @param index The index of the gene
+     * @return The value
+     */
+	public double get(int index) {
+		int segment = findSegment(index);
+		return segments[segment].get(index - offsets[segment]);
+	}
+
+    /**
+     * Set the value of a gene
+     * @param index The index of the gene
+     * @param value The new value
+     */
+	public void set(int index, double value) {
+		int segment = findSegment(index);
+		segments[segment].set(index - offsets[segment], value);
+		network.changed();
+	}
+
+    /**
+     * Mutate the genes in place.
+     * Instead of asking the random object for every gene if it should mutate, the amount of genes to skip until the next mutation is drawn from a geometric distribution.
+     * That gives the same result with one random number per mutation instead of one per gene.
+     * @param mutation The rates to use
+     * @param random The random object to use
+     */
+	public void mutate(Mutation mutation, SplittableRandom random) {
+		network.changed();
+
+		for(int i = 0; i < segments.length; i++) {
+			//Even segments are weights, odd segments are biases
+			double rate = i % 2 == 0 ? mutation.weightRate : mutation.biasRate;
+			if(rate <= 0) continue;
+
+			//log(1-rate) is used to turn a uniform random number into the amount of genes to skip
+			double logKeep = Math.log(1 - rate);
+			ExtendedMatrix segment = segments[i];
+			segment.ensureOwned();
+			int size = segment.getNumElements();
+
+			if(segment.getType() == MatrixType.FDRM) {
+				float[] data = segment.getFDRM().data;
+				for(int gene = skip(random, logKeep, size); gene < size; gene += 1 + skip(random, logKeep, size)) {
+					data[gene] = (float) mutation.mutate(data[gene], random);
+				}
+			} else {
+				double[] data = segment.getDDRM().data;
+				for(int gene = skip(random, logKeep, size); gene < size; gene += 1 + skip(random, logKeep, size)) {
+					data[gene] = mutation.mutate(data[gene], random);
+				}
+			}
+		}
+	}
+
+    /**
+     * Uniform crossover, every gene of this genome is set to the gene of first or second with a 50% chance.
+     * 64 genes use one random long, one bit per gene.
+     * @param first The first parent
+     * @param second The second parent
+     * @param random The random object to use
+     */
+	public void crossOver(Genome first, Genome second, SplittableRandom random) {
+		checkSameShape(first);
+		checkSameShape(second);
+		network.changed();
+
+		for(int i = 0; i < segments.length; i++) {
+			ExtendedMatrix child = segments[i];
+			child.ensureOwned();
+			ExtendedMatrix a = first.segments[i];
+			ExtendedMatrix b = second.segments[i];
+			int size = child.getNumElements();
+
+			long bits = 0;
+			MatrixType type = child.getType();
+			if(type == MatrixType.DDRM && a.getType() == type && b.getType() == type) {
+				double[] data = child.getDDRM().data;
+				double[] dataA = a.getDDRM().data;
+				double[] dataB = b.getDDRM().data;
+				for(int gene = 0; gene < size; gene++) {
+					if((gene & 63) == 0) bits = random.nextLong();
+					data[gene] = (bits & 1) == 0 ? dataA[gene] : dataB[gene];
+					bits >>>= 1;
+				}
+			} else if(type == MatrixType.FDRM && a.getType() == type && b.getType() == type) {
+				float[] data = child.getFDRM().data;
+				float[] dataA = a.getFDRM().data;
+				float[] dataB = b.getFDRM().data;
+				for(int gene = 0; gene < size; gene++) {
+					if((gene & 63) == 0) bits = random.nextLong();
+					data[gene] = (bits & 1) == 0 ? dataA[gene] : dataB[gene];
+					bits >>>= 1;
+				}
+			} else {
+				//The parents have another precision, this is slower but works for every combination
+				for(int gene = 0; gene < size; gene++) {
+					if((gene & 63) == 0) bits = random.nextLong();
+					child.set(gene, (bits & 1) == 0 ? a.get(gene) : b.get(gene));
+					bits >>>= 1;
+				}
+			}
+		}
+	}
+
+    /**
+     * Draw the amount of genes to skip before the next mutation
+     * @param random The random object to use
+     * @param logKeep log(1-rate), negative infinity when every gene mutates
+     * @param size The size of the segment, the skip is never bigger than this
+     * @return The amount of genes to skip
+     */
+	private static int skip(SplittableRandom random, double logKeep, int size) {
+		if(logKeep == Double.NEGATIVE_INFINITY) return 0;
+
+		//1-nextDouble() is never 0, so the log is never infinite
+		double skip = Math.floor(Math.log(1 - random.nextDouble()) / logKeep);
+		return skip < size ? (int) skip : size;
+	}
+
+	private int findSegment(int index) {
+		if(index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size()));
+		}
+
+		int segment = 0;
+		while(offsets[segment+1] <= index) {
+			segment++;
+		}
+
+		return segment;
+	}
+
+	private void checkSameShape(Genome other) {
+		if(other.segments.length != segments.length || other.size() != size()) {
+			throw new IllegalArgumentException(String.format("Invalid genome! Size expected: %d. Got size %d", size(), other.size()));
+		}
+
+		for(int i = 0; i < segments.length; i++) {
+			if(other.offsets[i] != offsets[i]) {
+				throw new IllegalArgumentException("Invalid genome! The layers have different sizes");
+			}
+		}
+	}
+}
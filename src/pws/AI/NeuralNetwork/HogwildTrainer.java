@@ -0,0 +1,137 @@
+package pws.AI.NeuralNetwork;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import pws.trainingData.InputOutputPair;
+import pws.trainingData.TrainingData;
+
+/**
+ * Trains one network on multiple threads at the same time without any locks (Hogwild!).
+ * Every worker picks random data points and writes its changes straight into the weights of the network.
+ * Workers can overwrite each others changes, but because every step only changes the weights a little bit this doesn't matter much
+ * and training still ends up at the same place as when training on one thread.
+ * Networks with an optimizer can't be trained this way, the state of the optimizer is shared and every step changes all of it.
+ */
+public class HogwildTrainer {
+
+	//How many samples a worker trains on before it updates the counter, so the workers don't all write to it all the time
+	private static final int COUNTER_BATCH = 1024;
+
+	private final NeuralNetwork network;
+	private final TrainingData trainingData;
+	private final int threadCount;
+	private final float learningRate;
+
+	private final List<Thread> workers = new ArrayList<>();
+	private final LongAdder samplesTrained = new LongAdder();
+	private volatile boolean running = false;
+
+    /**
+     * Create a new trainer, it won't start training until start is called
+     * @param network The network to train, this network is changed while training
+     * @param trainingData The data to train on, should not be changed while training
+     * @param threadCount How many threads to train on
+     * @param learningRate How big the steps of gradient descent are
+     * @throws IllegalArgumentException When the network has an optimizer
+     */
+	public HogwildTrainer(NeuralNetwork network, TrainingData trainingData, int threadCount, float learningRate) {
+		if(threadCount <= 0) {
+			throw new IllegalArgumentException("Thread count should be positive! Got " + threadCount);
+		}
+		checkNoOptimizer(network);
+
+		this.network = network;
+		this.trainingData = trainingData;
+		this.threadCount = threadCount;
+		this.learningRate = learningRate;
+	}
+
+    /**
+     * Start the worker threads. Does nothing if they are already running or if there is no training data.
+     * @throws IllegalArgumentException When an optimizer was set on the network after the trainer was created
+     */
+	public synchronized void start() {
+		if(running || !trainingData.hasData()) return;
+		checkNoOptimizer(network);
+
+		running = true;
+
+		//Copy shared layers now, so the workers never have to
+		network.ensureOwned();
+		network.changed();
+
+		SplittableRandom seeds = new SplittableRandom();
+		for(int i = 0; i < threadCount; i++) {
+			//Every worker has its own random so they don't have to wait on each other
+			SplittableRandom random = seeds.split();
+			Thread worker = new Thread(() -> train(random), "Hogwild-" + i);
+			worker.setDaemon(true);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+    /**
+     * Stop the worker threads and wait until they have finished their last step.
+     */
+	public synchronized void stop() {
+		running = false;
+
+		for(Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+
+		workers.clear();
+		network.changed();
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+    /**
+     * @return How many data points all of the workers trained on together
+     */
+	public long getSamplesTrained() {
+		return samplesTrained.sum();
+	}
+
+    /**
+     * The workers would all change the state of the optimizer at the same time, so the weights and the state would not match anymore
+     * @param network The network to check
+     */
+	private static void checkNoOptimizer(NeuralNetwork network) {
+		if(network.getOptimizer() != null) {
+			throw new IllegalArgumentException("Invalid network! Hogwild training can't be used with an optimizer");
+		}
+	}
+
+    /**
+     * The loop every worker runs, keeps training on random data points until stop is called
+     * @param random The random object for this worker
+     */
+	private void train(SplittableRandom random) {
+		int size = trainingData.size();
+		int samples = 0;
+
+		while(running) {
+			InputOutputPair pair = trainingData.getDataPoint(random.nextInt(size));
+			network.trainSample(pair.inputs, pair.outputs, learningRate);
+
+			if(++samples == COUNTER_BATCH) {
+				samplesTrained.add(samples);
+				samples = 0;
+			}
+		}
+
+		samplesTrained.add(samples);
+	}
+}
@@ -0,0 +1,57 @@
+package pws.AI.NeuralNetwork;
+
+import java.util.SplittableRandom;
+
+/**
+ * How a neural network is mutated.
+ * Every weight has a chance of weightRate to mutate and every bias a chance of biasRate.
+ * A gene that mutates is set to a random value between -1 and 1 with a chance of resetRate, otherwise a random value between -stepSize and stepSize is added.
+ */
+public final class Mutation {
+
+	//The rates NeuralNetwork always used
+	public static final Mutation DEFAULT = new Mutation(0.7, 0.4, 0.1, 0.1);
+
+	final double weightRate;
+	final double biasRate;
+	final double resetRate;
+	final double stepSize;
+
+    /**
+     * Create a new mutation
+     * @param weightRate The chance for every weight to mutate, between 0 and 1
+     * @param biasRate The chance for every bias to mutate, between 0 and 1
+     * @param resetRate The chance that a mutating gene gets a new random value instead of a small change, between 0 and 1
+     * @param stepSize The biggest change of a gene that doesn't get reset
+     */
+	public Mutation(double weightRate, double biasRate, double resetRate, double stepSize) {
+		checkRate(weightRate, "weightRate");
+		checkRate(biasRate, "biasRate");
+		checkRate(resetRate, "resetRate");
+
+		this.weightRate = weightRate;
+		this.biasRate = biasRate;
+		this.resetRate = resetRate;
+		this.stepSize = stepSize;
+	}
+
+    /**
+     * Get the new value of a gene that mutates
+     * @param value The current value
+     * @param random The random object to use
+     * @return The mutated value
+     */
+	double mutate(double value, SplittableRandom random) {
+		if(random.nextDouble() < resetRate) {
+			return random.nextDouble() * 2 - 1;
+		}
+
+		return value + (random.nextDouble() * 2 - 1) * stepSize;
+	}
+
+	private static void checkRate(double rate, String name) {
+		if(rate < 0 || rate > 1) {
+			throw new IllegalArgumentException(String.format("Invalid %s! Expected a value between 0 and 1. Got %f", name, rate));
+		}
+	}
+}
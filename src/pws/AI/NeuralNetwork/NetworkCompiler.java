@@ -0,0 +1,348 @@
+package pws.AI.NeuralNetwork;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the bytecode of a class that does the forward pass of one network with everything unrolled.
+ * Every neuron is a local variable and every weight is a constant, so the code is just loads, multiplications and additions:
+ *
+ *     double h0 = 0.25 + x0 * 0.5 + x1 * -0.75 ...
+ *
+ * Weights that are exactly 0 are left out. The code has no branches, so the class file doesn't need a StackMapTable.
+ * The generated class implements {@link CompiledNetwork.Kernel}.
+ */
+final class NetworkCompiler {
+
+	//The JIT doesn't compile methods with more bytecode than this (HugeMethodLimit), so a bigger network can't be compiled
+	static final int MAX_CODE_SIZE = 8000;
+
+	private static final String KERNEL = "pws/AI/NeuralNetwork/CompiledNetwork$Kernel";
+	private static final String ACTIVATION = "pws/AI/NeuralNetwork/Activation";
+
+	//The opcodes we use
+	private static final int ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, DCONST_0 = 0x0e, DCONST_1 = 0x0f, LDC2_W = 0x14;
+	private static final int DLOAD = 0x18, DLOAD_0 = 0x26, DSTORE = 0x39, DSTORE_0 = 0x47, WIDE = 0xc4;
+	private static final int ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ALOAD_2 = 0x2c, FALOAD = 0x30, FASTORE = 0x51;
+	private static final int DADD = 0x63, DMUL = 0x6b, DDIV = 0x6f, DNEG = 0x77, F2D = 0x8d, D2F = 0x90;
+	private static final int RETURN = 0xb1, GETSTATIC = 0xb2, INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8;
+
+	//The first local that holds a neuron, 0 is this, 1 is the input array and 2 is the output array
+	private static final int FIRST_NEURON = 3;
+
+	private final ByteArrayOutputStream constantBytes = new ByteArrayOutputStream();
+	private final DataOutputStream constants = new DataOutputStream(constantBytes);
+	private final Map<String, Integer> constantIndices = new HashMap<>();
+	private int constantCount = 1;
+
+	private final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+	private final DataOutputStream code = new DataOutputStream(codeBytes);
+
+	private NetworkCompiler() {
+	}
+
+    /**
+     * Generate the class for a network
+     * @param network The network to compile, later changes to it don't change the class
+     * @param className The binary name of the class, with / between the packages
+     * @return The class file, or null when the network is too big
+     */
+	static byte[] compile(NeuralNetwork network, String className) {
+		try {
+			return new NetworkCompiler().write(network, className);
+		} catch (IOException e) {
+			//Only writing to memory, so this can't happen
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private byte[] write(NeuralNetwork network, String className) throws IOException {
+		int thisClass = classConstant(className);
+		int objectClass = classConstant("java/lang/Object");
+		int kernelClass = classConstant(KERNEL);
+		int codeName = utf8("Code");
+		int initName = utf8("<init>");
+		int initType = utf8("()V");
+		int objectInit = methodConstant("java/lang/Object", "<init>", "()V");
+		int evaluateName = utf8("evaluate");
+		int evaluateType = utf8("([F[F)V");
+
+		int maxLocals = writeForwardPass(network);
+		if(codeBytes.size() > MAX_CODE_SIZE) return null;
+
+		ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(classBytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		//Java 8
+		out.writeShort(52);
+		out.writeShort(constantCount);
+		constantBytes.writeTo(out);
+
+		//public final class className extends Object implements Kernel
+		out.writeShort(0x0001 | 0x0010 | 0x0020);
+		out.writeShort(thisClass);
+		out.writeShort(objectClass);
+		out.writeShort(1);
+		out.writeShort(kernelClass);
+		out.writeShort(0);
+
+		out.writeShort(2);
+
+		//public <init>() { super(); }
+		byte[] init = new byte[] {(byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit, (byte) RETURN};
+		writeMethod(out, initName, initType, codeName, 1, 1, init);
+
+		//public void evaluate(float[] input, float[] output)
+		writeMethod(out, evaluateName, evaluateType, codeName, 12, maxLocals, codeBytes.toByteArray());
+
+		out.writeShort(0);
+		return classBytes.toByteArray();
+	}
+
+	private static void writeMethod(DataOutputStream out, int name, int type, int codeName, int maxStack, int maxLocals, byte[] code) throws IOException {
+		out.writeShort(0x0001);
+		out.writeShort(name);
+		out.writeShort(type);
+		out.writeShort(1);
+
+		out.writeShort(codeName);
+		out.writeInt(2 + 2 + 4 + code.length + 2 + 2);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.length);
+		out.write(code);
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+
+    /**
+     * Write the code of evaluate
+     * @return The amount of locals the code uses
+     */
+	private int writeForwardPass(NeuralNetwork network) throws IOException {
+		int inputCount = network.getInputCount();
+		int[] current = new int[inputCount];
+		int nextLocal = FIRST_NEURON;
+
+		//Read the input once into doubles
+		for(int i = 0; i < inputCount; i++) {
+			code.writeByte(ALOAD_1);
+			pushInt(i);
+			code.writeByte(FALOAD);
+			code.writeByte(F2D);
+			current[i] = nextLocal;
+			storeDouble(nextLocal);
+			nextLocal += 2;
+		}
+
+		int last = network.weights.size() - 1;
+		for(int l = 0; l <= last; l++) {
+			ExtendedMatrix weight = network.weights.get(l);
+			ExtendedMatrix bias = network.bias.get(l);
+			Activation activation = network.getActivation(l);
+			int[] next = new int[weight.numRows()];
+
+			for(int r = 0; r < next.length; r++) {
+				//The output layer writes straight to the output array, the array and index go on the stack first
+				if(l == last) {
+					code.writeByte(ALOAD_2);
+					pushInt(r);
+				}
+
+				beginActivation(activation);
+
+				pushDouble(bias.get(r));
+				for(int c = 0; c < current.length; c++) {
+					double value = weight.get(r, c);
+					if(value == 0) continue;
+
+					loadDouble(current[c]);
+					pushDouble(value);
+					code.writeByte(DMUL);
+					code.writeByte(DADD);
+				}
+
+				endActivation(activation);
+
+				if(l == last) {
+					code.writeByte(D2F);
+					code.writeByte(FASTORE);
+				} else {
+					next[r] = nextLocal;
+					storeDouble(nextLocal);
+					nextLocal += 2;
+				}
+			}
+
+			current = next;
+		}
+
+		code.writeByte(RETURN);
+		return nextLocal;
+	}
+
+    /**
+     * Sigmoid and tanh are written out, the others call Activation.apply on the constant so they give exactly the same values.
+     * Sigmoid needs the 1 of 1/(1+e^-x) and the others need the activation on the stack before the sum.
+     */
+	private void beginActivation(Activation activation) throws IOException {
+		switch(activation) {
+		case SIGMOID:
+			code.writeByte(DCONST_1);
+			break;
+		case TANH:
+		case LINEAR:
+			break;
+		default:
+			code.writeByte(GETSTATIC);
+			code.writeShort(fieldConstant(ACTIVATION, activation.name(), "L" + ACTIVATION + ";"));
+			break;
+		}
+	}
+
+	private void endActivation(Activation activation) throws IOException {
+		switch(activation) {
+		case SIGMOID:
+			//1 / (1 + Math.exp(-sum)), the 1 is already on the stack
+			code.writeByte(DNEG);
+			code.writeByte(INVOKESTATIC);
+			code.writeShort(methodConstant("java/lang/Math", "exp", "(D)D"));
+			code.writeByte(DCONST_1);
+			code.writeByte(DADD);
+			code.writeByte(DDIV);
+			break;
+		case TANH:
+			code.writeByte(INVOKESTATIC);
+			code.writeShort(methodConstant("java/lang/Math", "tanh", "(D)D"));
+			break;
+		case LINEAR:
+			break;
+		default:
+			code.writeByte(INVOKEVIRTUAL);
+			code.writeShort(methodConstant(ACTIVATION, "apply", "(D)D"));
+			break;
+		}
+	}
+
+	private void pushInt(int value) throws IOException {
+		if(value <= 5) {
+			code.writeByte(ICONST_0 + value);
+		} else if(value <= Byte.MAX_VALUE) {
+			code.writeByte(BIPUSH);
+			code.writeByte(value);
+		} else {
+			code.writeByte(SIPUSH);
+			code.writeShort(value);
+		}
+	}
+
+	private void pushDouble(double value) throws IOException {
+		//Compare the bits, so -0.0 is still loaded as a constant
+		if(Double.doubleToRawLongBits(value) == 0) {
+			code.writeByte(DCONST_0);
+		} else if(value == 1) {
+			code.writeByte(DCONST_1);
+		} else {
+			code.writeByte(LDC2_W);
+			code.writeShort(doubleConstant(value));
+		}
+	}
+
+	private void loadDouble(int local) throws IOException {
+		writeLocal(DLOAD_0, DLOAD, local);
+	}
+
+	private void storeDouble(int local) throws IOException {
+		writeLocal(DSTORE_0, DSTORE, local);
+	}
+
+	private void writeLocal(int shortOpcode, int opcode, int local) throws IOException {
+		if(local <= 3) {
+			code.writeByte(shortOpcode + local);
+		} else if(local <= 255) {
+			code.writeByte(opcode);
+			code.writeByte(local);
+		} else {
+			code.writeByte(WIDE);
+			code.writeByte(opcode);
+			code.writeShort(local);
+		}
+	}
+
+	//The constant pool, every constant is only added once
+
+	private int utf8(String value) throws IOException {
+		Integer index = constantIndices.get("U" + value);
+		if(index != null) return index;
+
+		constants.writeByte(1);
+		constants.writeUTF(value);
+		return add("U" + value, 1);
+	}
+
+	private int classConstant(String name) throws IOException {
+		Integer index = constantIndices.get("C" + name);
+		if(index != null) return index;
+
+		int nameIndex = utf8(name);
+		constants.writeByte(7);
+		constants.writeShort(nameIndex);
+		return add("C" + name, 1);
+	}
+
+	private int doubleConstant(double value) throws IOException {
+		String key = "D" + Double.doubleToRawLongBits(value);
+		Integer index = constantIndices.get(key);
+		if(index != null) return index;
+
+		constants.writeByte(6);
+		constants.writeDouble(value);
+		//A double takes two entries of the constant pool
+		return add(key, 2);
+	}
+
+	private int nameAndType(String name, String type) throws IOException {
+		Integer index = constantIndices.get("N" + name + ":" + type);
+		if(index != null) return index;
+
+		int nameIndex = utf8(name);
+		int typeIndex = utf8(type);
+		constants.writeByte(12);
+		constants.writeShort(nameIndex);
+		constants.writeShort(typeIndex);
+		return add("N" + name + ":" + type, 1);
+	}
+
+	private int fieldConstant(String owner, String name, String type) throws IOException {
+		return memberConstant(9, owner, name, type);
+	}
+
+	private int methodConstant(String owner, String name, String type) throws IOException {
+		return memberConstant(10, owner, name, type);
+	}
+
+	private int memberConstant(int tag, String owner, String name, String type) throws IOException {
+		String key = "M" + tag + owner + "." + name + ":" + type;
+		Integer index = constantIndices.get(key);
+		if(index != null) return index;
+
+		int ownerIndex = classConstant(owner);
+		int nameAndTypeIndex = nameAndType(name, type);
+		constants.writeByte(tag);
+		constants.writeShort(ownerIndex);
+		constants.writeShort(nameAndTypeIndex);
+		return add(key, 1);
+	}
+
+	private int add(String key, int size) {
+		int index = constantCount;
+		constantIndices.put(key, index);
+		constantCount += size;
+		return index;
+	}
+}
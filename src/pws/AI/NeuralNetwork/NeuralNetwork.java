@@ -1,8 +1,13 @@
 package pws.AI.NeuralNetwork;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ejml.data.MatrixType;
 
 import pws.AI.BaseAI;
 
@@ -20,8 +25,27 @@ public class NeuralNetwork extends BaseAI {
 	public final List<ExtendedMatrix> weights = new ArrayList<>();
 	public final List<ExtendedMatrix> bias = new ArrayList<>();
 
-	//Random object for mutation and crossover
-	private final Random random = new Random();
+	//Random object for mutation and crossover, copies and children get a split of it so a seeded network stays deterministic
+	private SplittableRandom random = new SplittableRandom();
+
+	//The rates used by mutate
+	private Mutation mutation = Mutation.DEFAULT;
+
+	//The activation function of every layer, index i belongs to weights.get(i)
+	private final Activation[] activations;
+
+	//Decides how the gradients change the weights and biases, null means plain gradient descent
+	private Optimizer optimizer;
+
+	//The precision of the weights and biases, the backend does all of the math for that precision
+	private final Precision precision;
+
+	//The amount of neurons in the biggest layer (the input layer included), used to size the workspace
+	private final int maxLayerSize;
+
+	//Every change to the weights, biases or activation functions gives the network a new version, a copy keeps the version until it changes
+	private static final AtomicLong VERSIONS = new AtomicLong();
+	private long version = VERSIONS.incrementAndGet();
 
     /**
      * Create a new neural network. The weights and biases are all 0
@@ -30,23 +54,68 @@ public class NeuralNetwork extends BaseAI {
      * @param hiddenLayers An array with an index i saying how many neurons are at layer i+1 (Input is layer 0)
      */
 	public NeuralNetwork(int inputCount, int outputCount, int[] hiddenLayers) {
+		this(inputCount, outputCount, hiddenLayers, Precision.DOUBLE);
+	}
+
+    /**
+     * Create a new neural network with the given precision. The weights and biases are all 0
+     * @param inputCount The number of input neurons
+     * @param outputCount The number of output neurons
+     * @param hiddenLayers An array with an index i saying how many neurons are at layer i+1 (Input is layer 0)
+     * @param precision Whether the weights, biases and activations are stored as doubles or as floats
+     */
+	public NeuralNetwork(int inputCount, int outputCount, int[] hiddenLayers, Precision precision) {
 		this.inputCount = inputCount;
 		this.outputCount = outputCount;
 		this.layers = hiddenLayers;
+		this.precision = precision;
+
+		MatrixType type = precision.matrixType;
 
 		//Each matrix has the weights going from one layer to the next
-		this.weights.add(new ExtendedMatrix(hiddenLayers[0], inputCount));
-		this.bias.add(new ExtendedMatrix(hiddenLayers[0]));
+		this.weights.add(new ExtendedMatrix(hiddenLayers[0], inputCount, type));
+		this.bias.add(new ExtendedMatrix(hiddenLayers[0], type));
 
 		//Create all of the weights for the hidden layers
         for(int i = 1; i < hiddenLayers.length; i++) {
-            this.weights.add(new ExtendedMatrix(hiddenLayers[i], hiddenLayers[i-1]));
-            this.bias.add(new ExtendedMatrix(hiddenLayers[i]));
+            this.weights.add(new ExtendedMatrix(hiddenLayers[i], hiddenLayers[i-1], type));
+            this.bias.add(new ExtendedMatrix(hiddenLayers[i], type));
         }
 
         //Create the last weights for the last layer
-        this.weights.add(new ExtendedMatrix(outputCount, hiddenLayers[hiddenLayers.length-1]));
-        this.bias.add(new ExtendedMatrix(outputCount));
+        this.weights.add(new ExtendedMatrix(outputCount, hiddenLayers[hiddenLayers.length-1], type));
+        this.bias.add(new ExtendedMatrix(outputCount, type));
+
+        int maxLayerSize = Math.max(inputCount, outputCount);
+        for(int layer : hiddenLayers) {
+            maxLayerSize = Math.max(maxLayerSize, layer);
+        }
+        this.maxLayerSize = maxLayerSize;
+
+        //Every layer uses the sigmoid function unless it is changed
+        this.activations = new Activation[this.weights.size()];
+        Arrays.fill(this.activations, Activation.SIGMOID);
+	}
+
+    /**
+     * Create a copy-on-write copy of a network, used by copy
+     * @param original The network to copy
+     */
+	private NeuralNetwork(NeuralNetwork original) {
+		this.inputCount = original.inputCount;
+		this.outputCount = original.outputCount;
+		this.layers = original.layers;
+		this.precision = original.precision;
+		this.maxLayerSize = original.maxLayerSize;
+		this.activations = original.activations.clone();
+		this.mutation = original.mutation;
+		this.random = original.random.split();
+		this.version = original.version;
+
+		for(int i = 0; i < original.weights.size(); i++) {
+			this.weights.add(original.weights.get(i).shareCopy());
+			this.bias.add(original.bias.get(i).shareCopy());
+		}
 	}
 
     /**
@@ -54,6 +123,8 @@ public class NeuralNetwork extends BaseAI {
      * @return this
      */
 	public NeuralNetwork randomise() {
+		changed();
+
 		for(ExtendedMatrix matrix : weights) {
 			matrix.randomise();
 		}
@@ -65,51 +136,108 @@ public class NeuralNetwork extends BaseAI {
 		return this;
 	}
 
+    /**
+     * Randomize the weights and biases with the given random object, the random object of mutate and crossOver is seeded from it too.
+     * With a seeded random object the network (and everything bred from it) is the same every run.
+     * @param random The random object to use
+     * @return this
+     */
+	public NeuralNetwork randomise(Random random) {
+		changed();
+
+		for(int i = 0; i < weights.size(); i++) {
+			weights.get(i).randomise(random);
+			bias.get(i).randomise(random);
+		}
+
+		this.random = new SplittableRandom(random.nextLong());
+		return this;
+	}
+
     /**
      * Get the answer the network produces for a given input
      * @param input An array with the data for the network to use. Array should be the same length as the input cout
      * @return An array with the same size as the outputCount and the values the network produced.
      */
 	public float[] evaluate(float[] input) {
+		return evaluate(input, new float[this.outputCount]);
+	}
+
+    /**
+     * Get the answer the network produces for a given input and write it to output.
+     * The layers are calculated in buffers that are reused, so this method doesn't allocate anything.
+     * @param input An array with the data for the network to use. Array should be the same length as the input count
+     * @param output The array to write the values the network produced to. Array should be the same length as the output count
+     * @return output
+     */
+	@Override
+	public float[] evaluate(float[] input, float[] output) {
 		if(input.length != this.inputCount) {
 			throw new IllegalArgumentException(String.format("Invalid input! Size expected: %d. Got size %d", this.inputCount, input.length));
 		}
 
-		//Create a matrix from the input array
-		ExtendedMatrix inputMatrix = ExtendedMatrix.fromArray(input);
+		if(output.length != this.outputCount) {
+			throw new IllegalArgumentException(String.format("Invalid output! Size expected: %d. Got size %d", this.outputCount, output.length));
+		}
 
-		ExtendedMatrix output = null;
-		for(int i = 0; i < this.weights.size(); i++) {
-		    //Multiply the input/outputs from the previous layer with the weights
-			ExtendedMatrix weightInput = (ExtendedMatrix) this.weights.get(i).mult(inputMatrix);
+		this.precision.backend.evaluate(this, input, output);
 
-			//No we add the bias
-			ExtendedMatrix preActivation = (ExtendedMatrix) weightInput.plus(this.bias.get(i));
+		return output;
+	}
 
-			//And finally we apply the activation function
-			output = preActivation.apply(NeuralNetwork::activationFunction);
+    /**
+     * Get which output of the network is the highest, without allocating anything.
+     * The outputs are never converted to floats and the activation of the output layer is skipped when it can't change which output is the highest.
+     * Only when evaluate gives multiple outputs the same highest value this can choose a different one of them, because the sums are compared before they are rounded.
+     * @param input An array with the data for the network to use. Array should be the same length as the input count
+     * @return The index of the highest output
+     */
+	@Override
+	public int decide(float[] input) {
+		if(input.length != this.inputCount) {
+			throw new IllegalArgumentException(String.format("Invalid input! Size expected: %d. Got size %d", this.inputCount, input.length));
+		}
+
+		return this.precision.backend.decide(this, input);
+	}
 
-			//This could be written as activation(weights*input + bias)
-            //Where weights is the weight matrix for this layer
-            //Input is for the first layer the input for this method, else it is the output of the last layer.
-            //The bias is the bias matrix for this layer
+    /**
+     * Get the answers the network produces for a whole batch of inputs.
+     * @param inputs The inputs after each other, should contain batchSize*inputCount values
+     * @param batchSize How many inputs there are
+     * @return The outputs after each other, contains batchSize*outputCount values
+     */
+	@Override
+	public float[] evaluateBatch(float[] inputs, int batchSize) {
+		return evaluateBatch(inputs, batchSize, new float[batchSize * this.outputCount]);
+	}
 
-            //Set the inputMatrix to the output of this layer so we can use it in the next layer
-			inputMatrix = output;
+    /**
+     * Get the answers the network produces for a whole batch of inputs and write them to outputs.
+     * Instead of doing a matrix-vector multiplication for every input, every layer is one matrix-matrix multiplication for the whole batch.
+     * @param inputs The inputs after each other, should contain batchSize*inputCount values
+     * @param batchSize How many inputs there are
+     * @param outputs The array to write the outputs to, should have room for batchSize*outputCount values
+     * @return outputs
+     */
+	@Override
+	public float[] evaluateBatch(float[] inputs, int batchSize, float[] outputs) {
+		if(batchSize <= 0 || inputs.length != batchSize * this.inputCount) {
+			throw new IllegalArgumentException(String.format("Invalid input! Size expected: %d. Got size %d", batchSize * this.inputCount, inputs.length));
 		}
 
-		//Convert the matrix to an array
-		float[] outputs = new float[output.getNumElements()];
-		
-		for(int i = 0; i < output.getNumElements(); i++) {
-			outputs[i] = (float) output.get(i);
+		if(outputs.length != batchSize * this.outputCount) {
+			throw new IllegalArgumentException(String.format("Invalid output! Size expected: %d. Got size %d", batchSize * this.outputCount, outputs.length));
 		}
- 		
+
+		this.precision.backend.evaluateBatch(this, inputs, batchSize, outputs);
+
 		return outputs;
 	}
 
     /**
-     * Train the network using gradient descent and backpropagation
+     * Train the network using gradient descent and backpropagation, with a learning rate of 1 or the learning rate of the optimizer.
+     * Nothing is allocated, the weights and biases are updated in place.
      * @param input The input
      * @param target The target output for the given input
      */
@@ -122,151 +250,193 @@ public class NeuralNetwork extends BaseAI {
 			throw new IllegalArgumentException(String.format("Invalid target! Size expected: %d. Got size %d", this.outputCount, target.length));
 		}
 
-		//Convert the input and targets to a matrix
-		ExtendedMatrix inputMatrix = ExtendedMatrix.fromArray(input);
-		ExtendedMatrix targetMatrix = ExtendedMatrix.fromArray(target);
+		ensureOwned();
+		changed();
 
-		//We need to keep track of the weightedSums (The value just before the activation function) and the neuronOutputs
-		List<ExtendedMatrix> weightedSums = new ArrayList<>();
-		List<ExtendedMatrix> neuronOutputs = new ArrayList<>();
+		//The backend does the forward pass, the backpropagation and the update directly on the arrays of the matrices.
+		//From here we run the gradient descent algorithm with help from backpropagation (http://neuralnetworksanddeeplearning.com/chap2.html#warm_up_a_fast_matrix-based_approach_to_computing_the_output_from_a_neural_network)
+		this.precision.backend.trainSample(this, input, target, 1);
+	}
 
-		//Same algorithm as evaluate
-		ExtendedMatrix output;
-		for(int i = 0; i < this.weights.size(); i++) {
-			ExtendedMatrix weightInput = (ExtendedMatrix) this.weights.get(i).mult(inputMatrix);
+    /**
+     * Train the network on a whole batch at once using mini-batch gradient descent.
+     * The batch goes through the network as matrix-matrix multiplications, the gradients of all of the inputs are added together
+     * and the weights and biases are changed once with the average gradient.
+     * @param inputs The inputs after each other, should contain batchSize*inputCount values
+     * @param targets The target outputs after each other, should contain batchSize*outputCount values
+     * @param batchSize How many inputs there are
+     * @param learningRate How much of the average gradient is subtracted from the weights and biases
+     */
+	@Override
+	public void trainBatch(float[] inputs, float[] targets, int batchSize, float learningRate) {
+		if(batchSize <= 0 || inputs.length != batchSize * this.inputCount) {
+			throw new IllegalArgumentException(String.format("Invalid input! Size expected: %d. Got size %d", batchSize * this.inputCount, inputs.length));
+		}
 
-			ExtendedMatrix preActivation = (ExtendedMatrix) weightInput.plus(this.bias.get(i));
+		if(targets.length != batchSize * this.outputCount) {
+			throw new IllegalArgumentException(String.format("Invalid target! Size expected: %d. Got size %d", batchSize * this.outputCount, targets.length));
+		}
 
-			//We need to save this for Gradient descent
-			weightedSums.add(preActivation);
+		ensureOwned();
+		changed();
+		this.precision.backend.trainBatch(this, inputs, targets, batchSize, learningRate);
+	}
 
-			output = preActivation.apply(NeuralNetwork::activationFunction);
+    /**
+     * Do one step of gradient descent for one input, working directly on the arrays of the weight and bias matrices.
+     * Nothing is allocated and no locks are taken, the weights are read and changed in place.
+     * This is used by the HogwildTrainer, where multiple threads call this at the same time on the same network.
+     * The HogwildTrainer doesn't allow an optimizer, its state would be changed by all of the threads at once.
+     * @param input The input
+     * @param target The target output for the given input
+     * @param learningRate How much of the gradient is subtracted from the weights and biases
+     */
+	void trainSample(float[] input, float[] target, float learningRate) {
+		ensureOwned();
+		this.precision.backend.trainSample(this, input, target, learningRate);
+	}
 
-			//this also needs to be saved
-			neuronOutputs.add(output);
-			
-			inputMatrix = output;
+    /**
+     * Make sure no other network shares the weights and biases of this network, this has to be called before the backend changes them.
+     * Only copies the layers that are still shared with a copy.
+     */
+	void ensureOwned() {
+		for(int i = 0; i < weights.size(); i++) {
+			weights.get(i).ensureOwned();
+			bias.get(i).ensureOwned();
 		}
+	}
 
-		//The errors calculated which will be used to determine how much to change the weight
-		ExtendedMatrix[] layerErrors = new ExtendedMatrix[this.weights.size()];
+    /**
+     * Change the activation function of a layer
+     * @param layer The index of the layer, 0 is the first hidden layer and the last index is the output layer
+     * @param activation The new activation function
+     * @return this
+     */
+	public NeuralNetwork setActivation(int layer, Activation activation) {
+		changed();
+		this.activations[layer] = activation;
+		return this;
+	}
 
-		//From here we will run the gradient descent algorithm with help from backpropagation (http://neuralnetworksanddeeplearning.com/chap2.html#warm_up_a_fast_matrix-based_approach_to_computing_the_output_from_a_neural_network)
-		for(int i = this.weights.size()-1; i>=0; i--) {
+    /**
+     * Change the activation function of all of the hidden layers and of the output layer
+     * @param hidden The activation function for the hidden layers
+     * @param output The activation function for the output layer
+     * @return this
+     */
+	public NeuralNetwork setActivations(Activation hidden, Activation output) {
+		changed();
+		Arrays.fill(this.activations, 0, this.activations.length-1, hidden);
+		this.activations[this.activations.length-1] = output;
+		return this;
+	}
 
-		    //The output layer uses a different calculation
-			if(i==this.weights.size()-1) {
-			    //We calculate how close the value was to the target
-				ExtendedMatrix a = (ExtendedMatrix) neuronOutputs.get(i).minus(targetMatrix);
+    /**
+     * Use an optimizer for training instead of plain gradient descent.
+     * The optimizer can only be used by one network and its state is reset.
+     * When an optimizer is set its learning rate is used, the learning rate given to trainBatch is ignored.
+     * @param optimizer The optimizer to use, or null for plain gradient descent
+     * @return this
+     */
+	public NeuralNetwork setOptimizer(Optimizer optimizer) {
+		if(optimizer != null) optimizer.init(this);
+		this.optimizer = optimizer;
+		return this;
+	}
 
-				//Here we calculate how fast the activation would change for the given value, which will be used to determine how much to change the weight
-				ExtendedMatrix b = weightedSums.get(i).apply(NeuralNetwork::dActivationFunction);
+	Optimizer getOptimizer() {
+		return optimizer;
+	}
 
-				//Calculate the error
-				layerErrors[i] = (ExtendedMatrix) a.elementMult(b);
-			} else {
+    /**
+     * Does the other network have the same amount of neurons in every layer?
+     * @param other The other network
+     * @return true if the weights and biases of both networks have the same sizes
+     */
+	public boolean hasSameLayers(NeuralNetwork other) {
+		return inputCount == other.inputCount && outputCount == other.outputCount && Arrays.equals(layers, other.layers);
+	}
 
-			    //Here we backpropagate the error.
-				ExtendedMatrix transposed = (ExtendedMatrix) this.weights.get(i+1).transpose();
-				ExtendedMatrix multipliedErrors = (ExtendedMatrix) transposed.mult(layerErrors[i+1]);
+	public Activation getActivation(int layer) {
+		return activations[layer];
+	}
 
-				ExtendedMatrix d = weightedSums.get(i).apply(NeuralNetwork::dActivationFunction);
+	public Precision getPrecision() {
+		return precision;
+	}
 
-				layerErrors[i] = (ExtendedMatrix) multipliedErrors.elementMult(d);
-			}
-		}
+	int getInputCount() {
+		return inputCount;
+	}
 
-		//Apply the errors to the current weights
-		for(int l = 0; l < this.weights.size(); l++) {
-			for(int row = 0; row < this.weights.get(l).numRows(); row++) {
-				for(int col = 0; col < this.weights.get(l).numCols(); col++) {
-					float activation;
-
-					//First layer uses the input, the other layers use the outputs from the previous layers
-					if (l == 0) {
-                        activation = (float) input[col];
-                    } else {
-                        activation = (float) neuronOutputs.get(l - 1).get(col);
-                    }
-
-                    float error = (float) layerErrors[l].get(row);
-					float gradient = activation * error;
-
-					float currentValue = (float) this.weights.get(l).get(row, col);
-					//We substract the gradient because the gradient says how to go up, but we want to go down
-					this.weights.get(l).set(row, col, currentValue-gradient);
-                }
-			}
-		}
+	int getOutputCount() {
+		return outputCount;
+	}
 
-		//Apply the errors to the biases
-		for(int i = 0; i < this.bias.size(); i++) {
-			ExtendedMatrix biasGradient = layerErrors[i];
-			this.bias.set(i, (ExtendedMatrix) this.bias.get(i).minus(biasGradient));
-		}
+	int getMaxLayerSize() {
+		return maxLayerSize;
 	}
 
     /**
-     * The activation function, currently the sigmoid function
-     * @param f The input to the activation function
-     * @return The output from the activation function
+     * Get the version of the weights, biases and activation functions. Two networks with the same version give the same outputs:
+     * a copy has the version of the original until one of them changes, every change gives the network a version no other network had.
+     * The pool uses this to know which networks don't have to play again. Training with a HogwildTrainer only changes the version when it starts and stops.
+     * @return The version
      */
-	private static float activationFunction(float f) {
-		return (float) (1/(1+Math.exp(-f)));
+	public long getVersion() {
+		return version;
 	}
 
     /**
-     * The derivative of the activation function
-     * @param f The input of the function
-     * @return The output of the function
+     * Give the network a new version, call this whenever the weights, biases or activation functions change
      */
-	private static float dActivationFunction(float f) {
-		return activationFunction(f)*(1-activationFunction(f));
+	void changed() {
+		version = VERSIONS.incrementAndGet();
+	}
+
+    /**
+     * Create a copy of this network, the copy shares the weights and biases with this network until one of them changes them (copy-on-write).
+     * So copying is cheap, and changing the copy never changes this network or the other way around.
+     * The optimizer is not copied, it can only be used by one network.
+     * @return The copy
+     */
+	@Override
+	public NeuralNetwork copy() {
+		return new NeuralNetwork(this);
 	}
 
     /**
-     * Mutate the network, 70% chance for each weight that it will mutate
-     *     - When a weight mutates it has a 1% chance to be set to a value between -1 and 1
+     * Get all weights and biases as one flat vector of genes, changing the genome changes this network
+     * @return A view of the weights and biases
+     */
+	public Genome genome() {
+		return new Genome(this);
+	}
+
+    /**
+     * Set the rates used when this network mutates, children of a crossover get the same rates
+     * @param mutation The new rates
+     * @return this
+     */
+	public NeuralNetwork setMutation(Mutation mutation) {
+		this.mutation = mutation;
+		return this;
+	}
+
+    /**
+     * Mutate the network in place, with the default rates:
+     *     - Every weight has a 70% chance to mutate and every bias a 40% chance
+     *     - When a gene mutates it has a 10% chance to be set to a value between -1 and 1
      *     - When it doesn't get reset it will increase by a value between -0.1 to 0.1
-     * Each bias also has a 40# chance to mutate, when it mutates the same thing can happen as the weight
      */
 	@Override
 	public void mutate() {
-		for(ExtendedMatrix m : this.weights) {
-			m.apply((v)->{
-
-			    //70% chance to mutate
-				if ( random.nextFloat()<0.7) {
-
-				    //And a 10%
-					if(random.nextFloat()<0.1) {
-						return random.nextFloat() *2 - 1;
-					}
-
-					return v + (random.nextFloat()*0.2f-0.1f);
-				} else {
-					return v;
-				}
-			});
-		}
-		
-		for(ExtendedMatrix m : this.bias) {
-			m.apply((v)->{
-				if ( random.nextFloat()<0.4) {
-					if(random.nextFloat()<0.1) {
-						return random.nextFloat() *2 - 1;
-					}
-					
-					return v + (random.nextFloat()*0.2f-0.1f);
-				} else {
-					return v;
-				}
-			});
-		}
+		genome().mutate(mutation, random);
 	}
 
     /**
-     * Do a crossover with another ai. Will randomly choose from which AI the child will get the weight or bias
+     * Do a crossover with another ai. Will randomly choose for every weight and bias from which AI the child will get it
      * @param ai The other AI to do a crossover with
      * @return a new NeuralNetwork
      */
@@ -276,24 +446,13 @@ public class NeuralNetwork extends BaseAI {
 		if(ai instanceof NeuralNetwork) {
 
 			NeuralNetwork other = (NeuralNetwork) ai;
-			NeuralNetwork network = new NeuralNetwork(this.inputCount, this.outputCount, this.layers);
-			for(int i = 0; i < this.weights.size(); i++) {
-
-			    //50% chance to choose a weight from this network, and 50% chance to get the weight from the other network
-				if(random.nextBoolean()) {
-					network.weights.set(i, this.weights.get(i));
-				} else {
-					network.weights.set(i, other.weights.get(i));
-				}
-			}
-			
-			for(int i = 0; i < this.bias.size(); i++) {
-				if(random.nextBoolean()) {
-					network.bias.set(i, this.bias.get(i));
-				} else {
-                    network.bias.set(i, other.bias.get(i));
-                }
-			}
+			NeuralNetwork network = new NeuralNetwork(this.inputCount, this.outputCount, this.layers, this.precision);
+			System.arraycopy(this.activations, 0, network.activations, 0, this.activations.length);
+			network.mutation = this.mutation;
+			network.random = random.split();
+
+			//50% chance to choose a gene from this network, and 50% chance to get it from the other network
+			network.genome().crossOver(this.genome(), other.genome(), random);
 		
 			return network;
 		} else {
@@ -0,0 +1,301 @@
+package pws.AI.NeuralNetwork;
+
+/**
+ * Decides how the gradients change the weights and biases of a network.
+ * Without an optimizer the network uses plain gradient descent, an optimizer can remember earlier gradients to take better steps.
+ *
+ * An optimizer keeps state for every weight and bias, so it belongs to one network and is created with {@link NeuralNetwork#setOptimizer(Optimizer)}.
+ * The buffers for the state are created once when the optimizer is set, after that updating doesn't allocate anything.
+ */
+public abstract class Optimizer {
+
+	//Added to the denominator of RMSProp and Adam so we never divide by 0
+	private static final double EPSILON = 1e-8;
+
+	final double learningRate;
+
+	//The state for every parameter. Slot 2*l holds the weights of layer l and slot 2*l+1 the biases of layer l
+	//Not every optimizer needs both, the ones that aren't needed stay empty
+	double[][] firstMoments = new double[0][];
+	double[][] secondMoments = new double[0][];
+	private final boolean usesFirstMoments;
+	private final boolean usesSecondMoments;
+
+	//How many steps have been taken, Adam uses this to correct the moments at the start
+	int steps = 0;
+
+	private Optimizer(double learningRate, boolean usesFirstMoments, boolean usesSecondMoments) {
+		this.learningRate = learningRate;
+		this.usesFirstMoments = usesFirstMoments;
+		this.usesSecondMoments = usesSecondMoments;
+	}
+
+    /**
+     * Plain gradient descent: parameter -= learningRate * gradient
+     * @param learningRate How big the steps are
+     * @return The optimizer
+     */
+	public static Optimizer sgd(double learningRate) {
+		return new Momentum(learningRate, 0);
+	}
+
+    /**
+     * Gradient descent with momentum, the steps keep going in the direction they went before:
+     * velocity = momentum * velocity + gradient, parameter -= learningRate * velocity
+     * @param learningRate How big the steps are
+     * @param momentum How much of the previous velocity is kept, usually 0.9
+     * @return The optimizer
+     */
+	public static Optimizer momentum(double learningRate, double momentum) {
+		return new Momentum(learningRate, momentum);
+	}
+
+    /**
+     * RMSProp, every parameter gets its own step size based on how big its gradients were recently:
+     * average = decay * average + (1-decay) * gradient^2, parameter -= learningRate * gradient / sqrt(average)
+     * @param learningRate How big the steps are, usually 0.001
+     * @param decay How much of the previous average is kept, usually 0.9
+     * @return The optimizer
+     */
+	public static Optimizer rmsProp(double learningRate, double decay) {
+		return new RmsProp(learningRate, decay);
+	}
+
+    /**
+     * Adam, momentum and RMSProp together, with a correction for the first steps when the averages are still 0.
+     * @param learningRate How big the steps are, usually 0.001
+     * @param beta1 How much of the previous average gradient is kept, usually 0.9
+     * @param beta2 How much of the previous average squared gradient is kept, usually 0.999
+     * @return The optimizer
+     */
+	public static Optimizer adam(double learningRate, double beta1, double beta2) {
+		return new Adam(learningRate, beta1, beta2);
+	}
+
+    /**
+     * Create an optimizer from the values saved in a checkpoint
+     * @param type The value of {@link #type()}
+     * @param learningRate The learning rate
+     * @param settings The values of {@link #settings()}
+     * @return The optimizer, without state
+     */
+	static Optimizer create(int type, double learningRate, double[] settings) {
+		switch(type) {
+		case 0:
+			return new Momentum(learningRate, settings[0]);
+		case 1:
+			return new RmsProp(learningRate, settings[0]);
+		case 2:
+			return new Adam(learningRate, settings[0], settings[1]);
+		default:
+			throw new IllegalArgumentException("Unknown optimizer type " + type);
+		}
+	}
+
+    /**
+     * Which optimizer this is, used to save it
+     * @return 0 for momentum (and sgd), 1 for RMSProp and 2 for Adam
+     */
+	abstract int type();
+
+    /**
+     * The settings next to the learning rate, used to save it
+     * @return The settings in the order create expects them
+     */
+	abstract double[] settings();
+
+    /**
+     * Create an optimizer with the same settings and a copy of the state
+     * @return The copy, it isn't used by a network yet
+     */
+	Optimizer snapshot() {
+		Optimizer copy = create(type(), learningRate, settings());
+		copy.firstMoments = new double[firstMoments.length][];
+		copy.secondMoments = new double[secondMoments.length][];
+		for(int i = 0; i < firstMoments.length; i++) {
+			copy.firstMoments[i] = firstMoments[i].clone();
+			copy.secondMoments[i] = secondMoments[i].clone();
+		}
+		copy.steps = steps;
+		return copy;
+	}
+
+    /**
+     * Create the state buffers for the given network
+     * @param network The network this optimizer is used for
+     */
+	void init(NeuralNetwork network) {
+		int layers = network.weights.size();
+		firstMoments = new double[layers * 2][];
+		secondMoments = new double[layers * 2][];
+
+		for(int l = 0; l < layers; l++) {
+			int weightCount = network.weights.get(l).getNumElements();
+			int biasCount = network.bias.get(l).getNumElements();
+
+			firstMoments[l*2] = new double[usesFirstMoments ? weightCount : 0];
+			firstMoments[l*2+1] = new double[usesFirstMoments ? biasCount : 0];
+			secondMoments[l*2] = new double[usesSecondMoments ? weightCount : 0];
+			secondMoments[l*2+1] = new double[usesSecondMoments ? biasCount : 0];
+		}
+
+		steps = 0;
+	}
+
+    /**
+     * Has to be called once before the parameters of a training step are updated.
+     */
+	void startStep() {
+		steps++;
+	}
+
+    /**
+     * Change the parameters using their gradients
+     * @param parameters The weights or biases to change, in place
+     * @param gradients The (average) gradient for every parameter
+     * @param length How many parameters there are
+     * @param slot Which weights or biases these are, 2*l for the weights of layer l and 2*l+1 for its biases
+     */
+	abstract void update(double[] parameters, double[] gradients, int length, int slot);
+
+    /**
+     * Same as {@link #update(double[], double[], int, int)} for networks that use floats
+     */
+	abstract void update(float[] parameters, float[] gradients, int length, int slot);
+
+	private static final class Momentum extends Optimizer {
+
+		private final double momentum;
+
+		Momentum(double learningRate, double momentum) {
+			super(learningRate, true, false);
+			this.momentum = momentum;
+		}
+
+		@Override
+		int type() {
+			return 0;
+		}
+
+		@Override
+		double[] settings() {
+			return new double[] {momentum};
+		}
+
+		@Override
+		void update(double[] parameters, double[] gradients, int length, int slot) {
+			double[] velocity = firstMoments[slot];
+			for(int i = 0; i < length; i++) {
+				velocity[i] = momentum * velocity[i] + gradients[i];
+				parameters[i] -= learningRate * velocity[i];
+			}
+		}
+
+		@Override
+		void update(float[] parameters, float[] gradients, int length, int slot) {
+			double[] velocity = firstMoments[slot];
+			for(int i = 0; i < length; i++) {
+				velocity[i] = momentum * velocity[i] + gradients[i];
+				parameters[i] -= learningRate * velocity[i];
+			}
+		}
+	}
+
+	private static final class RmsProp extends Optimizer {
+
+		private final double decay;
+
+		RmsProp(double learningRate, double decay) {
+			super(learningRate, false, true);
+			this.decay = decay;
+		}
+
+		@Override
+		int type() {
+			return 1;
+		}
+
+		@Override
+		double[] settings() {
+			return new double[] {decay};
+		}
+
+		@Override
+		void update(double[] parameters, double[] gradients, int length, int slot) {
+			double[] average = secondMoments[slot];
+			for(int i = 0; i < length; i++) {
+				double gradient = gradients[i];
+				average[i] = decay * average[i] + (1 - decay) * gradient * gradient;
+				parameters[i] -= learningRate * gradient / (Math.sqrt(average[i]) + EPSILON);
+			}
+		}
+
+		@Override
+		void update(float[] parameters, float[] gradients, int length, int slot) {
+			double[] average = secondMoments[slot];
+			for(int i = 0; i < length; i++) {
+				double gradient = gradients[i];
+				average[i] = decay * average[i] + (1 - decay) * gradient * gradient;
+				parameters[i] -= learningRate * gradient / (Math.sqrt(average[i]) + EPSILON);
+			}
+		}
+	}
+
+	private static final class Adam extends Optimizer {
+
+		private final double beta1;
+		private final double beta2;
+
+		Adam(double learningRate, double beta1, double beta2) {
+			super(learningRate, true, true);
+			this.beta1 = beta1;
+			this.beta2 = beta2;
+		}
+
+		@Override
+		int type() {
+			return 2;
+		}
+
+		@Override
+		double[] settings() {
+			return new double[] {beta1, beta2};
+		}
+
+        /**
+         * The moments start at 0, so in the first steps they are too small. Dividing the learning rate by these corrections fixes that
+         * @return The learning rate corrected for the current step
+         */
+		private double correctedLearningRate() {
+			return learningRate * Math.sqrt(1 - Math.pow(beta2, steps)) / (1 - Math.pow(beta1, steps));
+		}
+
+		@Override
+		void update(double[] parameters, double[] gradients, int length, int slot) {
+			double[] mean = firstMoments[slot];
+			double[] variance = secondMoments[slot];
+			double stepSize = correctedLearningRate();
+
+			for(int i = 0; i < length; i++) {
+				double gradient = gradients[i];
+				mean[i] = beta1 * mean[i] + (1 - beta1) * gradient;
+				variance[i] = beta2 * variance[i] + (1 - beta2) * gradient * gradient;
+				parameters[i] -= stepSize * mean[i] / (Math.sqrt(variance[i]) + EPSILON);
+			}
+		}
+
+		@Override
+		void update(float[] parameters, float[] gradients, int length, int slot) {
+			double[] mean = firstMoments[slot];
+			double[] variance = secondMoments[slot];
+			double stepSize = correctedLearningRate();
+
+			for(int i = 0; i < length; i++) {
+				double gradient = gradients[i];
+				mean[i] = beta1 * mean[i] + (1 - beta1) * gradient;
+				variance[i] = beta2 * variance[i] + (1 - beta2) * gradient * gradient;
+				parameters[i] -= stepSize * mean[i] / (Math.sqrt(variance[i]) + EPSILON);
+			}
+		}
+	}
+}
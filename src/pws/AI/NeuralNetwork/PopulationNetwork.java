@@ -0,0 +1,301 @@
+package pws.AI.NeuralNetwork;
+
+import java.util.List;
+
+import org.ejml.data.MatrixType;
+
+/**
+ * Evaluates a whole population of neural networks with the same topology at once.
+ * The weights of a layer of every network are stacked in one array, so a layer is a 3-D tensor (network, row, col) instead of a list of small matrices.
+ * Every network gets its own input, so when the games of all networks are updated in lockstep one call to evaluate does the forward pass for all of them.
+ * That is one big pass over contiguous memory per layer instead of a lot of tiny matrix-vector multiplications.
+ *
+ * The weights are copied by load, changes to the networks are only seen after calling load again.
+ * A network can be evaluated multiple times with different inputs, its weights are still only stacked once.
+ * The tensors use the precision of the population, so a population of FLOAT networks gives the same outputs as FloatBackend.
+ * One PopulationNetwork should only be used by one thread at a time.
+ */
+public final class PopulationNetwork {
+
+	private final int inputCount;
+	private final int outputCount;
+
+	//The amount of neurons in every layer, the input layer included
+	private final int[] layerSizes;
+	private final int maxLayerSize;
+	private final Precision precision;
+
+	//The stacked weights and biases of every layer, network i starts at i*rows*cols in weights and at i*rows in biases.
+	//Only the arrays of the precision of the population are used
+	private final double[][] weights;
+	private final double[][] biases;
+	private final float[][] floatWeights;
+	private final float[][] floatBiases;
+	private final Activation[] activations;
+
+	//Every input that is evaluated uses the network at its index in networkIndices
+	private int populationSize = 0;
+	private int[] networkIndices = new int[0];
+
+	//The outputs of the current and next layer for every input
+	private double[] current = new double[0];
+	private double[] next = new double[0];
+	private float[] floatCurrent = new float[0];
+	private float[] floatNext = new float[0];
+
+    /**
+     * Create a new empty population that stores its weights as doubles, use load to fill it
+     * @param inputCount The number of input neurons
+     * @param outputCount The number of output neurons
+     * @param hiddenLayers An array with an index i saying how many neurons are at layer i+1 (Input is layer 0)
+     */
+	public PopulationNetwork(int inputCount, int outputCount, int[] hiddenLayers) {
+		this(inputCount, outputCount, hiddenLayers, Precision.DOUBLE);
+	}
+
+    /**
+     * Create a new empty population, use load to fill it
+     * @param inputCount The number of input neurons
+     * @param outputCount The number of output neurons
+     * @param hiddenLayers An array with an index i saying how many neurons are at layer i+1 (Input is layer 0)
+     * @param precision The precision of the tensors, use the precision of the networks to get the same outputs as they do
+     */
+	public PopulationNetwork(int inputCount, int outputCount, int[] hiddenLayers, Precision precision) {
+		this.inputCount = inputCount;
+		this.outputCount = outputCount;
+
+		this.layerSizes = new int[hiddenLayers.length + 2];
+		this.layerSizes[0] = inputCount;
+		System.arraycopy(hiddenLayers, 0, this.layerSizes, 1, hiddenLayers.length);
+		this.layerSizes[layerSizes.length-1] = outputCount;
+
+		int maxLayerSize = 0;
+		for(int size : layerSizes) {
+			maxLayerSize = Math.max(maxLayerSize, size);
+		}
+		this.maxLayerSize = maxLayerSize;
+		this.precision = precision;
+
+		int layerCount = layerSizes.length-1;
+		this.weights = new double[layerCount][0];
+		this.biases = new double[layerCount][0];
+		this.floatWeights = new float[layerCount][0];
+		this.floatBiases = new float[layerCount][0];
+		this.activations = new Activation[layerCount];
+	}
+
+    /**
+     * Copy the weights and biases of the networks into the tensors, network i gets index i.
+     * All networks should have the topology of this population and use the same activation functions.
+     * @param networks The networks to evaluate
+     * @return this
+     */
+	public PopulationNetwork load(List<NeuralNetwork> networks) {
+		return load(networks, 1);
+	}
+
+    /**
+     * Copy the weights and biases of the networks into the tensors, every network is evaluated runs times with its own inputs.
+     * Index i of the population uses network i/runs, so the runs of a network are next to each other.
+     * All networks should have the topology of this population and use the same activation functions.
+     * @param networks The networks to evaluate
+     * @param runs How many times every network is evaluated
+     * @return this
+     */
+	public PopulationNetwork load(List<NeuralNetwork> networks, int runs) {
+		if(runs <= 0) {
+			throw new IllegalArgumentException("Invalid runs! Should be positive, got " + runs);
+		}
+
+		int layerCount = activations.length;
+
+		for(int i = 0; i < networks.size(); i++) {
+			checkNetwork(networks.get(i), i, networks.get(0));
+		}
+
+		int networkCount = networks.size();
+		if(networkCount > 0) {
+			for(int l = 0; l < layerCount; l++) {
+				activations[l] = networks.get(0).getActivation(l);
+			}
+		}
+
+		for(int l = 0; l < layerCount; l++) {
+			int rows = layerSizes[l+1];
+			int cols = layerSizes[l];
+
+			//Only grow the tensors, a smaller population just uses the start
+			if(precision == Precision.FLOAT) {
+				if(floatWeights[l].length < networkCount * rows * cols) {
+					floatWeights[l] = new float[networkCount * rows * cols];
+					floatBiases[l] = new float[networkCount * rows];
+				}
+
+				for(int i = 0; i < networkCount; i++) {
+					NeuralNetwork network = networks.get(i);
+					copy(network.weights.get(l), floatWeights[l], i * rows * cols);
+					copy(network.bias.get(l), floatBiases[l], i * rows);
+				}
+			} else {
+				if(weights[l].length < networkCount * rows * cols) {
+					weights[l] = new double[networkCount * rows * cols];
+					biases[l] = new double[networkCount * rows];
+				}
+
+				for(int i = 0; i < networkCount; i++) {
+					NeuralNetwork network = networks.get(i);
+					copy(network.weights.get(l), weights[l], i * rows * cols);
+					copy(network.bias.get(l), biases[l], i * rows);
+				}
+			}
+		}
+
+		populationSize = networkCount * runs;
+		if(networkIndices.length < populationSize) {
+			networkIndices = new int[populationSize];
+		}
+		for(int i = 0; i < populationSize; i++) {
+			networkIndices[i] = i / runs;
+		}
+
+		if(precision == Precision.FLOAT) {
+			if(floatCurrent.length < populationSize * maxLayerSize) {
+				floatCurrent = new float[populationSize * maxLayerSize];
+				floatNext = new float[populationSize * maxLayerSize];
+			}
+		} else if(current.length < populationSize * maxLayerSize) {
+			current = new double[populationSize * maxLayerSize];
+			next = new double[populationSize * maxLayerSize];
+		}
+
+		return this;
+	}
+
+    /**
+     * Evaluate every index of the population with its own input.
+     * The arrays can be bigger than needed, this way they don't have to be recreated when indices are removed.
+     * @param inputs The inputs of the population, index i uses inputCount values starting at i*inputCount
+     * @param outputs The array to write the outputs to, index i writes outputCount values starting at i*outputCount
+     * @return outputs
+     */
+	public float[] evaluate(float[] inputs, float[] outputs) {
+		if(inputs.length < populationSize * inputCount) {
+			throw new IllegalArgumentException(String.format("Invalid input! Size expected: %d. Got size %d", populationSize * inputCount, inputs.length));
+		}
+
+		if(outputs.length < populationSize * outputCount) {
+			throw new IllegalArgumentException(String.format("Invalid output! Size expected: %d. Got size %d", populationSize * outputCount, outputs.length));
+		}
+
+		if(precision == Precision.FLOAT) {
+			evaluateFloats(inputs, outputs);
+			return outputs;
+		}
+
+		for(int i = 0; i < populationSize * inputCount; i++) {
+			current[i] = inputs[i];
+		}
+
+		for(int l = 0; l < activations.length; l++) {
+			int rows = layerSizes[l+1];
+
+			//One pass over the weights of every network, then the activation over all outputs at once
+			DenseKernels.INSTANCE.multiplyAddStacked(weights[l], biases[l], networkIndices, current, next, populationSize, rows, layerSizes[l]);
+			activations[l].apply(next, 0, populationSize * rows);
+
+			double[] temp = current;
+			current = next;
+			next = temp;
+		}
+
+		for(int i = 0; i < populationSize * outputCount; i++) {
+			outputs[i] = (float) current[i];
+		}
+
+		return outputs;
+	}
+
+    /**
+     * Same as evaluate for a population that stores its tensors as floats, the inputs and outputs don't have to be converted
+     */
+	private void evaluateFloats(float[] inputs, float[] outputs) {
+		System.arraycopy(inputs, 0, floatCurrent, 0, populationSize * inputCount);
+
+		for(int l = 0; l < activations.length; l++) {
+			int rows = layerSizes[l+1];
+
+			DenseKernels.INSTANCE.multiplyAddStacked(floatWeights[l], floatBiases[l], networkIndices, floatCurrent, floatNext, populationSize, rows, layerSizes[l]);
+			activations[l].apply(floatNext, 0, populationSize * rows);
+
+			float[] temp = floatCurrent;
+			floatCurrent = floatNext;
+			floatNext = temp;
+		}
+
+		System.arraycopy(floatCurrent, 0, outputs, 0, populationSize * outputCount);
+	}
+
+    /**
+     * Remove an index that doesn't need to be evaluated anymore, the last index is moved to its place.
+     * The weights stay where they are, so this is a lot cheaper than calling load again and networks that are done can be removed while the others keep going.
+     * @param index The index to remove
+     */
+	public void remove(int index) {
+		if(index < 0 || index >= populationSize) {
+			throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, populationSize));
+		}
+
+		populationSize--;
+		networkIndices[index] = networkIndices[populationSize];
+	}
+
+    /**
+     * Get the amount of inputs that are evaluated, every network counts once for every run
+     * @return The size of the population
+     */
+	public int size() {
+		return populationSize;
+	}
+
+	private void checkNetwork(NeuralNetwork network, int index, NeuralNetwork first) {
+		if(network.weights.size() != activations.length) {
+			throw new IllegalArgumentException(String.format("Invalid network at index %d! Layers expected: %d. Got %d", index, activations.length, network.weights.size()));
+		}
+
+		for(int l = 0; l < activations.length; l++) {
+			ExtendedMatrix weight = network.weights.get(l);
+			if(weight.numRows() != layerSizes[l+1] || weight.numCols() != layerSizes[l]) {
+				throw new IllegalArgumentException(String.format("Invalid network at index %d! Size of layer %d expected: %dx%d. Got %dx%d", index, l, layerSizes[l+1], layerSizes[l], weight.numRows(), weight.numCols()));
+			}
+
+			//All networks share the activation functions of the first network
+			if(network.getActivation(l) != first.getActivation(l)) {
+				throw new IllegalArgumentException(String.format("Invalid network at index %d! Activation of layer %d expected: %s. Got %s", index, l, first.getActivation(l), network.getActivation(l)));
+			}
+		}
+	}
+
+	private static void copy(ExtendedMatrix matrix, double[] destination, int offset) {
+		if(matrix.getType() == MatrixType.FDRM) {
+			float[] data = matrix.getFDRM().data;
+			int size = matrix.getNumElements();
+			for(int i = 0; i < size; i++) {
+				destination[offset + i] = data[i];
+			}
+		} else {
+			System.arraycopy(matrix.getDDRM().data, 0, destination, offset, matrix.getNumElements());
+		}
+	}
+
+	private static void copy(ExtendedMatrix matrix, float[] destination, int offset) {
+		if(matrix.getType() == MatrixType.DDRM) {
+			double[] data = matrix.getDDRM().data;
+			int size = matrix.getNumElements();
+			for(int i = 0; i < size; i++) {
+				destination[offset + i] = (float) data[i];
+			}
+		} else {
+			System.arraycopy(matrix.getFDRM().data, 0, destination, offset, matrix.getNumElements());
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package pws.AI.NeuralNetwork;
+
+import org.ejml.data.MatrixType;
+
+/**
+ * The precision a network stores its weights, biases and activations in.
+ */
+public enum Precision {
+	//64 bit, the default
+	DOUBLE(MatrixType.DDRM, new DoubleBackend()),
+	//32 bit, uses half the memory and the inputs and outputs don't have to be converted
+	FLOAT(MatrixType.FDRM, new FloatBackend());
+
+	final MatrixType matrixType;
+	final Backend<?> backend;
+
+	Precision(MatrixType matrixType, Backend<?> backend) {
+		this.matrixType = matrixType;
+		this.backend = backend;
+	}
+}
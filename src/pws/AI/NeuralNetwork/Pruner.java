@@ -0,0 +1,202 @@
+package pws.AI.NeuralNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import pws.trainingData.InputOutputPair;
+import pws.trainingData.TrainingData;
+
+/**
+ * Magnitude pruning: sets the weights that are closest to 0 to exactly 0, so a {@link SparseNetwork} can skip them.
+ * The pruner remembers which weights are pruned, so the network can be retrained without the pruned weights growing back.
+ * Pruning a bit at a time and retraining in between loses a lot less accuracy than pruning everything at once.
+ * Only weights are pruned, the biases are kept.
+ */
+public final class Pruner {
+
+	private final NeuralNetwork network;
+
+	//For every layer which weights are pruned, index i is weight i of weights.get(l)
+	private final boolean[][] pruned;
+
+    /**
+     * Create a pruner for a network, the network is changed by the pruner
+     * @param network The network to prune
+     */
+	public Pruner(NeuralNetwork network) {
+		this.network = network;
+		this.pruned = new boolean[network.weights.size()][];
+		for(int l = 0; l < pruned.length; l++) {
+			pruned[l] = new boolean[network.weights.get(l).getNumElements()];
+		}
+	}
+
+    /**
+     * Prune every weight that is closer to 0 than threshold
+     * @param threshold The smallest absolute value a weight should have to be kept
+     * @return this
+     */
+	public Pruner pruneBelow(double threshold) {
+		for(int l = 0; l < pruned.length; l++) {
+			ExtendedMatrix weight = network.weights.get(l);
+			for(int i = 0; i < pruned[l].length; i++) {
+				if(Math.abs(weight.get(i)) < threshold) pruned[l][i] = true;
+			}
+		}
+
+		return applyMask();
+	}
+
+    /**
+     * Prune the smallest weights of every layer until the given part of the layer is pruned. Weights that are already pruned stay pruned.
+     * @param sparsity One value that is used for every layer, or a value for every layer. Between 0 and 1
+     * @return this
+     */
+	public Pruner pruneToSparsity(double... sparsity) {
+		if(sparsity.length != 1 && sparsity.length != pruned.length) {
+			throw new IllegalArgumentException(String.format("Invalid sparsity! Size expected: 1 or %d. Got size %d", pruned.length, sparsity.length));
+		}
+
+		for(int l = 0; l < pruned.length; l++) {
+			double layerSparsity = sparsity.length == 1 ? sparsity[0] : sparsity[l];
+			if(layerSparsity < 0 || layerSparsity > 1) {
+				throw new IllegalArgumentException("Invalid sparsity! It should be between 0 and 1, got " + layerSparsity);
+			}
+
+			pruneLayer(l, (int) Math.round(layerSparsity * pruned[l].length));
+		}
+
+		return applyMask();
+	}
+
+	private void pruneLayer(int layer, int count) {
+		if(count == 0) return;
+
+		ExtendedMatrix weight = network.weights.get(layer);
+		boolean[] mask = pruned[layer];
+
+		//Pruned weights get -1, so they are always the first to count
+		double[] magnitudes = new double[mask.length];
+		for(int i = 0; i < mask.length; i++) {
+			magnitudes[i] = mask[i] ? -1 : Math.abs(weight.get(i));
+		}
+
+		double[] sorted = magnitudes.clone();
+		Arrays.sort(sorted);
+		double cutoff = sorted[count - 1];
+
+		//Everything below the cutoff is pruned, then weights equal to the cutoff until there are enough
+		int prunedCount = 0;
+		for(int i = 0; i < mask.length; i++) {
+			if(magnitudes[i] < cutoff) {
+				mask[i] = true;
+				prunedCount++;
+			}
+		}
+
+		for(int i = 0; i < mask.length && prunedCount < count; i++) {
+			if(magnitudes[i] == cutoff) {
+				mask[i] = true;
+				prunedCount++;
+			}
+		}
+	}
+
+    /**
+     * Set the pruned weights to 0 again, training changes them
+     * @return this
+     */
+	public Pruner applyMask() {
+		network.changed();
+
+		for(int l = 0; l < pruned.length; l++) {
+			ExtendedMatrix weight = network.weights.get(l);
+			for(int i = 0; i < pruned[l].length; i++) {
+				if(pruned[l][i] && weight.get(i) != 0) weight.set(i, 0);
+			}
+		}
+
+		return this;
+	}
+
+    /**
+     * Train the network on random data points, the pruned weights stay 0
+     * @param data The data to train on
+     * @param samples How many data points to train on
+     * @return this
+     */
+	public Pruner retrain(TrainingData data, int samples) {
+		if(!data.hasData()) return this;
+
+		for(int i = 0; i < samples; i++) {
+			InputOutputPair pair = data.getRandomDataPoint();
+			network.train(pair.inputs, pair.outputs);
+			applyMask();
+		}
+
+		return this;
+	}
+
+    /**
+     * Prune to the sparsity in a few rounds, every round prunes a bit more and then retrains.
+     * @param data The data to retrain on
+     * @param sparsity The sparsity at the end, between 0 and 1
+     * @param rounds In how many rounds the sparsity is reached
+     * @param samplesPerRound How many data points are trained on after every round
+     * @return this
+     */
+	public Pruner pruneAndRetrain(TrainingData data, double sparsity, int rounds, int samplesPerRound) {
+		for(int round = 1; round <= rounds; round++) {
+			pruneToSparsity(sparsity * round / rounds);
+			retrain(data, samplesPerRound);
+		}
+
+		return this;
+	}
+
+    /**
+     * Get the part of the weights that is pruned
+     * @return The sparsity, between 0 and 1
+     */
+	public double getSparsity() {
+		int total = 0;
+		int prunedCount = 0;
+		for(boolean[] mask : pruned) {
+			total += mask.length;
+			for(boolean isPruned : mask) {
+				if(isPruned) prunedCount++;
+			}
+		}
+
+		return total == 0 ? 0 : prunedCount / (double) total;
+	}
+
+    /**
+     * Create the sparse version of the pruned network
+     * @return The sparse network
+     */
+	public SparseNetwork toSparse() {
+		return SparseNetwork.of(network);
+	}
+
+    /**
+     * Prune copies of a network to every sparsity and compare them with the network.
+     * @param network The network to prune, it doesn't change
+     * @param data The data to retrain and compare on
+     * @param sparsities The sparsities to try
+     * @param rounds In how many rounds every sparsity is reached, see {@link #pruneAndRetrain(TrainingData, double, int, int)}
+     * @param samplesPerRound How many data points are trained on after every round, 0 to only prune
+     * @return A report for every sparsity
+     */
+	public static List<PruningReport> sweep(NeuralNetwork network, TrainingData data, double[] sparsities, int rounds, int samplesPerRound) {
+		List<PruningReport> reports = new ArrayList<>();
+
+		for(double sparsity : sparsities) {
+			Pruner pruner = new Pruner(network.copy()).pruneAndRetrain(data, sparsity, rounds, samplesPerRound);
+			reports.add(pruner.toSparse().compare(network, data));
+		}
+
+		return reports;
+	}
+}
@@ -0,0 +1,44 @@
+package pws.AI.NeuralNetwork;
+
+/**
+ * What pruning a network did to its accuracy and speed, made by {@link SparseNetwork#compare(NeuralNetwork, pws.trainingData.TrainingData)}.
+ * The differences are between the outputs of the dense and the sparse network, the errors are between the outputs and the expected outputs of the data.
+ */
+public final class PruningReport {
+
+	//The part of the weights that was pruned, between 0 and 1
+	public final double sparsity;
+
+	public final double maxDifference;
+	public final double meanDifference;
+	public final double denseError;
+	public final double sparseError;
+
+	//The average time of one evaluate in nanoseconds
+	public final double denseNanos;
+	public final double sparseNanos;
+
+	PruningReport(double sparsity, double maxDifference, double meanDifference, double denseError, double sparseError, double denseNanos, double sparseNanos) {
+		this.sparsity = sparsity;
+		this.maxDifference = maxDifference;
+		this.meanDifference = meanDifference;
+		this.denseError = denseError;
+		this.sparseError = sparseError;
+		this.denseNanos = denseNanos;
+		this.sparseNanos = sparseNanos;
+	}
+
+    /**
+     * How many times faster the sparse network is
+     * @return The speedup, bigger than 1 when the sparse network is faster
+     */
+	public double speedup() {
+		return sparseNanos > 0 ? denseNanos / sparseNanos : 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Sparsity %.1f%%: error on the data %.5f -> %.5f (%+.5f), mean difference %.5f, max difference %.5f, evaluate %.0fns -> %.0fns (%.2fx)",
+				sparsity * 100, denseError, sparseError, sparseError - denseError, meanDifference, maxDifference, denseNanos, sparseNanos, speedup());
+	}
+}
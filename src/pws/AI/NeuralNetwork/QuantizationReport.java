@@ -0,0 +1,44 @@
+package pws.AI.NeuralNetwork;
+
+/**
+ * How much accuracy a network lost by quantizing it, made by {@link QuantizedNetwork#compare(NeuralNetwork, pws.trainingData.TrainingData)}.
+ * The differences are between the outputs of the original and the quantized network, the errors are between the outputs and the expected outputs of the data.
+ */
+public final class QuantizationReport {
+
+	public final int dataPoints;
+	public final double maxDifference;
+	public final double meanDifference;
+	public final double originalError;
+	public final double quantizedError;
+
+	//The part of the data points where both networks make the same decision (the same biggest output), between 0 and 1
+	public final double sameDecisions;
+
+	//The size of the weights and biases in bytes
+	public final long originalSize;
+	public final long quantizedSize;
+
+	QuantizationReport(int dataPoints, double maxDifference, double meanDifference, double originalError, double quantizedError,
+					   double sameDecisions, long originalSize, long quantizedSize) {
+		this.dataPoints = dataPoints;
+		this.maxDifference = maxDifference;
+		this.meanDifference = meanDifference;
+		this.originalError = originalError;
+		this.quantizedError = quantizedError;
+		this.sameDecisions = sameDecisions;
+		this.originalSize = originalSize;
+		this.quantizedSize = quantizedSize;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Quantized on %d data points:%n" +
+						"    difference with the original network: mean %.5f, max %.5f%n" +
+						"    error on the data: original %.5f, quantized %.5f (%+.5f)%n" +
+						"    same decision: %.2f%%%n" +
+						"    size: %d bytes -> %d bytes",
+				dataPoints, meanDifference, maxDifference, originalError, quantizedError, quantizedError - originalError,
+				sameDecisions * 100, originalSize, quantizedSize);
+	}
+}
@@ -0,0 +1,359 @@
+package pws.AI.NeuralNetwork;
+
+import pws.AI.BaseAI;
+import pws.trainingData.InputOutputPair;
+import pws.trainingData.TrainingData;
+
+/**
+ * An int8 version of a neural network that can only be used for inference.
+ * The weights of every layer are stored as bytes with one scale per layer: weight = byte * weightScale.
+ * The outputs of every layer are also stored as bytes between the layers, with a scale per layer that is calibrated on data.
+ * A layer multiplies bytes and adds them in an int, only the activation function is calculated with floating point numbers.
+ *
+ * The weights take a quarter of the memory of a float network (an eighth of a double network), the biases are ints in the scale of the sums.
+ * Create one with {@link #quantize(NeuralNetwork, TrainingData)} and use {@link #compare(NeuralNetwork, TrainingData)} to see how much accuracy was lost.
+ */
+public final class QuantizedNetwork extends BaseAI {
+
+	//The biggest value a byte is rounded to, -127 is the smallest so 0 is exactly in the middle
+	private static final int MAX_LEVEL = 127;
+
+	private final int inputCount;
+	private final int outputCount;
+
+	//The amount of neurons in every layer, the input layer included
+	private final int[] layerSizes;
+
+	//Per layer: the weights (row by row) as bytes, the biases in the scale of the sums and the scale of the weights
+	private final byte[][] weights;
+	private final int[][] biases;
+	private final float[] weightScales;
+
+	//The scale of the input of every layer, so index 0 is the scale of the input of the network
+	private final float[] inputScales;
+	private final Activation[] activations;
+
+	//Every thread gets its own buffers, so one network can be evaluated by a lot of agents at the same time
+	private final ThreadLocal<byte[][]> workspace;
+
+	private QuantizedNetwork(int[] layerSizes, Activation[] activations) {
+		this.inputCount = layerSizes[0];
+		this.outputCount = layerSizes[layerSizes.length-1];
+		this.layerSizes = layerSizes;
+		this.activations = activations;
+
+		int layerCount = layerSizes.length-1;
+		this.weights = new byte[layerCount][];
+		this.biases = new int[layerCount][];
+		this.weightScales = new float[layerCount];
+		this.inputScales = new float[layerCount];
+
+		int maxLayerSize = 0;
+		for(int size : layerSizes) {
+			maxLayerSize = Math.max(maxLayerSize, size);
+		}
+		int bufferSize = maxLayerSize;
+		this.workspace = ThreadLocal.withInitial(() -> new byte[][] {new byte[bufferSize], new byte[bufferSize]});
+	}
+
+    /**
+     * Quantize a trained network. The network isn't changed and can be thrown away after this.
+     * The inputs of the calibration data are used to find out how big the values between the layers get.
+     * Layers with sigmoid or tanh don't need this, without data the other layers use the biggest value their weights could give which is a lot less precise.
+     * @param network The network to quantize
+     * @param calibration Inputs to calibrate with, can be null or empty
+     * @return The quantized network
+     */
+	public static QuantizedNetwork quantize(NeuralNetwork network, TrainingData calibration) {
+		int layerCount = network.weights.size();
+		int[] layerSizes = new int[layerCount + 1];
+		Activation[] activations = new Activation[layerCount];
+		layerSizes[0] = network.getInputCount();
+		for(int l = 0; l < layerCount; l++) {
+			layerSizes[l+1] = network.weights.get(l).numRows();
+			activations[l] = network.getActivation(l);
+		}
+
+		QuantizedNetwork quantized = new QuantizedNetwork(layerSizes, activations);
+		double[] ranges = calibrate(network, calibration, layerSizes, activations);
+
+		for(int l = 0; l < layerCount; l++) {
+			ExtendedMatrix weight = network.weights.get(l);
+			ExtendedMatrix bias = network.bias.get(l);
+
+			double maxWeight = 0;
+			for(int i = 0; i < weight.getNumElements(); i++) {
+				maxWeight = Math.max(maxWeight, Math.abs(weight.get(i)));
+			}
+
+			float weightScale = scale(maxWeight);
+			float inputScale = scale(ranges[l]);
+			quantized.weightScales[l] = weightScale;
+			quantized.inputScales[l] = inputScale;
+
+			quantized.weights[l] = new byte[weight.getNumElements()];
+			for(int i = 0; i < weight.getNumElements(); i++) {
+				quantized.weights[l][i] = toByte(weight.get(i) / weightScale);
+			}
+
+			//The sum of a layer is in the scale weightScale*inputScale, so the bias is stored in that scale too
+			quantized.biases[l] = new int[bias.getNumElements()];
+			for(int i = 0; i < bias.getNumElements(); i++) {
+				quantized.biases[l][i] = (int) Math.round(bias.get(i) / ((double) weightScale * inputScale));
+			}
+		}
+
+		return quantized;
+	}
+
+    /**
+     * Find the biggest absolute value of the input of every layer
+     * @return The range of the input of every layer
+     */
+	private static double[] calibrate(NeuralNetwork network, TrainingData calibration, int[] layerSizes, Activation[] activations) {
+		int layerCount = activations.length;
+		double[] ranges = new double[layerCount];
+		boolean hasData = calibration != null && calibration.hasData();
+
+		if(hasData) {
+			//Do the forward pass in doubles and remember the biggest value that goes into every layer
+			for(int d = 0; d < calibration.size(); d++) {
+				InputOutputPair pair = calibration.getDataPoint(d);
+				double[] current = new double[layerSizes[0]];
+				for(int i = 0; i < current.length; i++) {
+					current[i] = pair.inputs[i];
+				}
+
+				for(int l = 0; l < layerCount; l++) {
+					for(double value : current) {
+						ranges[l] = Math.max(ranges[l], Math.abs(value));
+					}
+
+					current = forwardLayer(network, l, current);
+				}
+			}
+		} else {
+			//Without data the inputs are expected to be between -1 and 1, and every layer can give at most the sum of its absolute weights and bias
+			ranges[0] = 1;
+			for(int l = 0; l < layerCount - 1; l++) {
+				ExtendedMatrix weight = network.weights.get(l);
+				double max = 0;
+				for(int r = 0; r < weight.numRows(); r++) {
+					double sum = Math.abs(network.bias.get(l).get(r));
+					for(int c = 0; c < weight.numCols(); c++) {
+						sum += Math.abs(weight.get(r, c)) * ranges[l];
+					}
+					max = Math.max(max, Math.max(Math.abs(activations[l].apply(sum)), Math.abs(activations[l].apply(-sum))));
+				}
+				ranges[l+1] = max;
+			}
+		}
+
+		//Sigmoid and tanh never get bigger than 1, so their outputs don't need the data
+		for(int l = 0; l < layerCount - 1; l++) {
+			if(isBounded(activations[l])) ranges[l+1] = 1;
+		}
+
+		return ranges;
+	}
+
+	private static double[] forwardLayer(NeuralNetwork network, int layer, double[] input) {
+		ExtendedMatrix weight = network.weights.get(layer);
+		ExtendedMatrix bias = network.bias.get(layer);
+		double[] output = new double[weight.numRows()];
+
+		for(int r = 0; r < output.length; r++) {
+			double sum = bias.get(r);
+			for(int c = 0; c < input.length; c++) {
+				sum += weight.get(r, c) * input[c];
+			}
+			output[r] = network.getActivation(layer).apply(sum);
+		}
+
+		return output;
+	}
+
+	private static boolean isBounded(Activation activation) {
+		switch(activation) {
+		case SIGMOID:
+		case FAST_SIGMOID:
+		case TANH:
+		case FAST_TANH:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static float scale(double range) {
+		//A layer that is always 0 still needs a scale that isn't 0
+		return range > 0 ? (float) (range / MAX_LEVEL) : 1;
+	}
+
+	private static byte toByte(double value) {
+		long rounded = Math.round(value);
+		if(rounded > MAX_LEVEL) return MAX_LEVEL;
+		if(rounded < -MAX_LEVEL) return -MAX_LEVEL;
+		return (byte) rounded;
+	}
+
+	@Override
+	public float[] evaluate(float[] input) {
+		return evaluate(input, new float[outputCount]);
+	}
+
+    /**
+     * Get the answer the network produces for a given input and write it to output, this doesn't allocate anything.
+     * @param input An array with the data for the network to use. Array should be the same length as the input count
+     * @param output The array to write the values the network produced to. Array should be the same length as the output count
+     * @return output
+     */
+	@Override
+	public float[] evaluate(float[] input, float[] output) {
+		if(input.length != this.inputCount) {
+			throw new IllegalArgumentException(String.format("Invalid input! Size expected: %d. Got size %d", this.inputCount, input.length));
+		}
+
+		if(output.length != this.outputCount) {
+			throw new IllegalArgumentException(String.format("Invalid output! Size expected: %d. Got size %d", this.outputCount, output.length));
+		}
+
+		byte[][] buffers = workspace.get();
+		byte[] current = buffers[0];
+		byte[] next = buffers[1];
+
+		float inverseScale = 1 / inputScales[0];
+		for(int i = 0; i < inputCount; i++) {
+			current[i] = toByte(input[i] * inverseScale);
+		}
+
+		int last = weights.length - 1;
+		for(int l = 0; l <= last; l++) {
+			int rows = layerSizes[l+1];
+			int cols = layerSizes[l];
+			byte[] weight = weights[l];
+			int[] bias = biases[l];
+			Activation activation = activations[l];
+
+			//Turns a sum back into a real number
+			float sumScale = weightScales[l] * inputScales[l];
+			float nextInverseScale = l == last ? 0 : 1 / inputScales[l+1];
+
+			for(int r = 0; r < rows; r++) {
+				int sum = bias[r];
+				int offset = r * cols;
+				for(int c = 0; c < cols; c++) {
+					sum += weight[offset + c] * current[c];
+				}
+
+				double value = activation.apply(sum * sumScale);
+				if(l == last) {
+					output[r] = (float) value;
+				} else {
+					next[r] = toByte(value * nextInverseScale);
+				}
+			}
+
+			byte[] temp = current;
+			current = next;
+			next = temp;
+		}
+
+		return output;
+	}
+
+    /**
+     * Compare this network with the network it was made from on data
+     * @param original The network this network was quantized from
+     * @param data The data to compare on
+     * @return How far the outputs of this network are from the outputs of the original and from the expected outputs
+     */
+	public QuantizationReport compare(NeuralNetwork original, TrainingData data) {
+		float[] originalOutput = new float[outputCount];
+		float[] quantizedOutput = new float[outputCount];
+
+		double maxDifference = 0;
+		double totalDifference = 0;
+		double originalError = 0;
+		double quantizedError = 0;
+		int sameDecisions = 0;
+
+		for(int d = 0; d < data.size(); d++) {
+			InputOutputPair pair = data.getDataPoint(d);
+			original.evaluate(pair.inputs, originalOutput);
+			evaluate(pair.inputs, quantizedOutput);
+
+			for(int o = 0; o < outputCount; o++) {
+				double difference = Math.abs(originalOutput[o] - quantizedOutput[o]);
+				maxDifference = Math.max(maxDifference, difference);
+				totalDifference += difference;
+				originalError += Math.abs(originalOutput[o] - pair.outputs[o]);
+				quantizedError += Math.abs(quantizedOutput[o] - pair.outputs[o]);
+			}
+
+			if(decision(originalOutput) == decision(quantizedOutput)) {
+				sameDecisions++;
+			}
+		}
+
+		int values = Math.max(1, data.size() * outputCount);
+		return new QuantizationReport(data.size(), maxDifference, totalDifference / values, originalError / values, quantizedError / values,
+				data.size() == 0 ? 1 : sameDecisions / (double) data.size(), originalSize(original), size());
+	}
+
+    /**
+     * The decision a game makes with these outputs: the biggest output, or with one output if it is above 0.5
+     */
+	private static int decision(float[] outputs) {
+		if(outputs.length == 1) return outputs[0] > 0.5f ? 1 : 0;
+
+		int best = 0;
+		for(int i = 1; i < outputs.length; i++) {
+			if(outputs[i] > outputs[best]) best = i;
+		}
+		return best;
+	}
+
+	private static long originalSize(NeuralNetwork network) {
+		long size = 0;
+		int bytes = network.getPrecision() == Precision.FLOAT ? 4 : 8;
+		for(int l = 0; l < network.weights.size(); l++) {
+			size += (long) bytes * (network.weights.get(l).getNumElements() + network.bias.get(l).getNumElements());
+		}
+		return size;
+	}
+
+    /**
+     * Get the size of the weights, biases and scales in bytes
+     * @return The size in bytes
+     */
+	public long size() {
+		long size = 0;
+		for(int l = 0; l < weights.length; l++) {
+			size += weights[l].length + 4L * biases[l].length + 8;
+		}
+		return size;
+	}
+
+	public int getInputCount() {
+		return inputCount;
+	}
+
+	public int getOutputCount() {
+		return outputCount;
+	}
+
+	//A quantized network is only used for inference, it can't learn anymore
+	@Override
+	public void train(float[] inputs, float[] outputs) {}
+
+	@Override
+	public void mutate() {}
+
+	@Override
+	public BaseAI crossOver(BaseAI ai) { return this; }
+
+	//Nothing can change a quantized network, so it can be shared
+	@Override
+	public BaseAI copy() { return this; }
+}
@@ -0,0 +1,147 @@
+package pws.AI.NeuralNetwork;
+
+/**
+ * The dense layer loops in plain Java, used when the Vector API isn't available.
+ */
+final class ScalarKernels implements DenseKernels {
+
+	@Override
+	public void multiplyAdd(double[] weights, double[] bias, double[] input, double[] output, int rows, int cols) {
+		int index = 0;
+		for(int row = 0; row < rows; row++) {
+			double sum = bias[row];
+
+			for(int col = 0; col < cols; col++) {
+				sum += weights[index++] * input[col];
+			}
+
+			output[row] = sum;
+		}
+	}
+
+	@Override
+	public void multiplyAdd(float[] weights, float[] bias, float[] input, float[] output, int rows, int cols) {
+		int index = 0;
+		for(int row = 0; row < rows; row++) {
+			float sum = bias[row];
+
+			for(int col = 0; col < cols; col++) {
+				sum += weights[index++] * input[col];
+			}
+
+			output[row] = sum;
+		}
+	}
+
+	@Override
+	public void multiplyAddStacked(double[] weights, double[] bias, int[] layers, double[] inputs, double[] outputs, int count, int rows, int cols) {
+		int row = 0;
+		for(int i = 0; i < count; i++) {
+			int layer = layers[i];
+			int index = layer * rows * cols;
+			int biasIndex = layer * rows;
+			int inputIndex = i * cols;
+
+			for(int r = 0; r < rows; r++, row++) {
+				double sum = bias[biasIndex + r];
+
+				for(int col = 0; col < cols; col++) {
+					sum += weights[index++] * inputs[inputIndex + col];
+				}
+
+				outputs[row] = sum;
+			}
+		}
+	}
+
+	@Override
+	public void multiplyAddStacked(float[] weights, float[] bias, int[] layers, float[] inputs, float[] outputs, int count, int rows, int cols) {
+		int row = 0;
+		for(int i = 0; i < count; i++) {
+			int layer = layers[i];
+			int index = layer * rows * cols;
+			int biasIndex = layer * rows;
+			int inputIndex = i * cols;
+
+			for(int r = 0; r < rows; r++, row++) {
+				float sum = bias[biasIndex + r];
+
+				for(int col = 0; col < cols; col++) {
+					sum += weights[index++] * inputs[inputIndex + col];
+				}
+
+				outputs[row] = sum;
+			}
+		}
+	}
+
+	@Override
+	public void multiplyTransposed(double[] weights, double[] vector, double[] output, int rows, int cols) {
+		for(int col = 0; col < cols; col++) {
+			output[col] = 0;
+		}
+
+		//Walk over the rows so the weights are read in the order they are stored
+		for(int row = 0; row < rows; row++) {
+			double value = vector[row];
+			if(value == 0) continue;
+
+			int index = row * cols;
+			for(int col = 0; col < cols; col++) {
+				output[col] += weights[index + col] * value;
+			}
+		}
+	}
+
+	@Override
+	public void multiplyTransposed(float[] weights, float[] vector, float[] output, int rows, int cols) {
+		for(int col = 0; col < cols; col++) {
+			output[col] = 0;
+		}
+
+		for(int row = 0; row < rows; row++) {
+			float value = vector[row];
+			if(value == 0) continue;
+
+			int index = row * cols;
+			for(int col = 0; col < cols; col++) {
+				output[col] += weights[index + col] * value;
+			}
+		}
+	}
+
+	@Override
+	public void subtractOuterProduct(double[] weights, double[] bias, double[] error, double[] activation, double learningRate, int rows, int cols) {
+		for(int row = 0; row < rows; row++) {
+			double step = learningRate * error[row];
+			if(step == 0) continue;
+
+			bias[row] -= step;
+
+			//We only touch the weights that actually change
+			int index = row * cols;
+			for(int col = 0; col < cols; col++) {
+				if(activation[col] != 0) {
+					weights[index + col] -= step * activation[col];
+				}
+			}
+		}
+	}
+
+	@Override
+	public void subtractOuterProduct(float[] weights, float[] bias, float[] error, float[] activation, float learningRate, int rows, int cols) {
+		for(int row = 0; row < rows; row++) {
+			float step = learningRate * error[row];
+			if(step == 0) continue;
+
+			bias[row] -= step;
+
+			int index = row * cols;
+			for(int col = 0; col < cols; col++) {
+				if(activation[col] != 0) {
+					weights[index + col] -= step * activation[col];
+				}
+			}
+		}
+	}
+}
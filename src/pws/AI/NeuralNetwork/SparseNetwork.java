@@ -0,0 +1,225 @@
+package pws.AI.NeuralNetwork;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.DMatrixSparseCSC;
+import org.ejml.data.MatrixType;
+import org.ejml.ops.ConvertDMatrixStruct;
+
+import pws.AI.BaseAI;
+import pws.trainingData.InputOutputPair;
+import pws.trainingData.TrainingData;
+
+/**
+ * A pruned neural network that only stores and multiplies the weights that aren't 0, it can only be used for inference.
+ * The weights of every layer are a compressed sparse column matrix (DMatrixSparseCSC of ejml-dsparse), so a layer costs as much as it has weights left.
+ * Create one with {@link Pruner#toSparse()} or {@link #of(NeuralNetwork)} and use {@link #compare(NeuralNetwork, TrainingData)} to see what pruning cost and gained.
+ */
+public final class SparseNetwork extends BaseAI {
+
+	private final int inputCount;
+	private final int outputCount;
+
+	private final DMatrixSparseCSC[] weights;
+	private final double[][] biases;
+	private final Activation[] activations;
+
+	//Every thread gets its own buffers, so one network can be evaluated by a lot of agents at the same time
+	private final ThreadLocal<double[][]> workspace;
+
+	private SparseNetwork(DMatrixSparseCSC[] weights, double[][] biases, Activation[] activations) {
+		this.weights = weights;
+		this.biases = biases;
+		this.activations = activations;
+		this.inputCount = weights[0].numCols;
+		this.outputCount = weights[weights.length-1].numRows;
+
+		int maxLayerSize = inputCount;
+		for(DMatrixSparseCSC weight : weights) {
+			maxLayerSize = Math.max(maxLayerSize, weight.numRows);
+		}
+		int bufferSize = maxLayerSize;
+		this.workspace = ThreadLocal.withInitial(() -> new double[][] {new double[bufferSize], new double[bufferSize]});
+	}
+
+    /**
+     * Create a sparse copy of a network, every weight that is exactly 0 is left out. Prune the network first with a {@link Pruner}.
+     * @param network The network to copy
+     * @return The sparse network
+     */
+	public static SparseNetwork of(NeuralNetwork network) {
+		int layerCount = network.weights.size();
+		DMatrixSparseCSC[] weights = new DMatrixSparseCSC[layerCount];
+		double[][] biases = new double[layerCount][];
+		Activation[] activations = new Activation[layerCount];
+
+		for(int l = 0; l < layerCount; l++) {
+			weights[l] = ConvertDMatrixStruct.convert(toDouble(network.weights.get(l)), (DMatrixSparseCSC) null, 0);
+			biases[l] = toDouble(network.bias.get(l)).data.clone();
+			activations[l] = network.getActivation(l);
+		}
+
+		return new SparseNetwork(weights, biases, activations);
+	}
+
+	private static DMatrixRMaj toDouble(ExtendedMatrix matrix) {
+		if(matrix.getType() == MatrixType.DDRM) return matrix.getDDRM();
+
+		DMatrixRMaj result = new DMatrixRMaj(matrix.numRows(), matrix.numCols());
+		for(int i = 0; i < result.getNumElements(); i++) {
+			result.data[i] = matrix.get(i);
+		}
+		return result;
+	}
+
+	@Override
+	public float[] evaluate(float[] input) {
+		return evaluate(input, new float[outputCount]);
+	}
+
+    /**
+     * Get the answer the network produces for a given input and write it to output, this doesn't allocate anything.
+     * @param input An array with the data for the network to use. Array should be the same length as the input count
+     * @param output The array to write the values the network produced to. Array should be the same length as the output count
+     * @return output
+     */
+	@Override
+	public float[] evaluate(float[] input, float[] output) {
+		if(input.length != this.inputCount) {
+			throw new IllegalArgumentException(String.format("Invalid input! Size expected: %d. Got size %d", this.inputCount, input.length));
+		}
+
+		if(output.length != this.outputCount) {
+			throw new IllegalArgumentException(String.format("Invalid output! Size expected: %d. Got size %d", this.outputCount, output.length));
+		}
+
+		double[][] buffers = workspace.get();
+		double[] current = buffers[0];
+		double[] next = buffers[1];
+
+		for(int i = 0; i < inputCount; i++) {
+			current[i] = input[i];
+		}
+
+		for(int l = 0; l < weights.length; l++) {
+			DMatrixSparseCSC weight = weights[l];
+			int rows = weight.numRows;
+			System.arraycopy(biases[l], 0, next, 0, rows);
+
+			//Compressed columns: every input only touches the rows it still has weights to, an input of 0 is skipped completely
+			int[] columnStart = weight.col_idx;
+			int[] nonZeroRows = weight.nz_rows;
+			double[] values = weight.nz_values;
+			for(int c = 0; c < weight.numCols; c++) {
+				double x = current[c];
+				if(x == 0) continue;
+
+				for(int i = columnStart[c]; i < columnStart[c+1]; i++) {
+					next[nonZeroRows[i]] += values[i] * x;
+				}
+			}
+
+			activations[l].apply(next, 0, rows);
+
+			double[] temp = current;
+			current = next;
+			next = temp;
+		}
+
+		for(int i = 0; i < outputCount; i++) {
+			output[i] = (float) current[i];
+		}
+
+		return output;
+	}
+
+    /**
+     * Get the part of the weights that is left out
+     * @return The sparsity, between 0 and 1
+     */
+	public double getSparsity() {
+		long total = 0;
+		long nonZero = 0;
+		for(DMatrixSparseCSC weight : weights) {
+			total += (long) weight.numRows * weight.numCols;
+			nonZero += weight.nz_length;
+		}
+		return total == 0 ? 0 : 1 - nonZero / (double) total;
+	}
+
+    /**
+     * Compare this network with the dense network on data, both for the outputs and for the time one evaluate takes.
+     * The times are measured by evaluating all of the data a few times with both networks, so use enough data for a stable time.
+     * @param dense The network to compare with, normally the unpruned network
+     * @param data The data to compare on
+     * @return The report
+     */
+	public PruningReport compare(NeuralNetwork dense, TrainingData data) {
+		float[] denseOutput = new float[outputCount];
+		float[] sparseOutput = new float[outputCount];
+
+		double maxDifference = 0;
+		double totalDifference = 0;
+		double denseError = 0;
+		double sparseError = 0;
+
+		for(int d = 0; d < data.size(); d++) {
+			InputOutputPair pair = data.getDataPoint(d);
+			dense.evaluate(pair.inputs, denseOutput);
+			evaluate(pair.inputs, sparseOutput);
+
+			for(int o = 0; o < outputCount; o++) {
+				double difference = Math.abs(denseOutput[o] - sparseOutput[o]);
+				maxDifference = Math.max(maxDifference, difference);
+				totalDifference += difference;
+				denseError += Math.abs(denseOutput[o] - pair.outputs[o]);
+				sparseError += Math.abs(sparseOutput[o] - pair.outputs[o]);
+			}
+		}
+
+		int values = Math.max(1, data.size() * outputCount);
+		return new PruningReport(getSparsity(), maxDifference, totalDifference / values, denseError / values, sparseError / values,
+				timeEvaluate(dense, data, denseOutput), timeEvaluate(this, data, sparseOutput));
+	}
+
+    /**
+     * Measure how long one evaluate takes on average, the first passes are a warm up for the JIT
+     * @return The time in nanoseconds
+     */
+	private static double timeEvaluate(BaseAI ai, TrainingData data, float[] output) {
+		if(data.size() == 0) return 0;
+
+		int passes = Math.max(5, 100000 / data.size());
+		long start = 0;
+		for(int pass = 0; pass < passes * 2; pass++) {
+			if(pass == passes) start = System.nanoTime();
+
+			for(int d = 0; d < data.size(); d++) {
+				ai.evaluate(data.getDataPoint(d).inputs, output);
+			}
+		}
+
+		return (System.nanoTime() - start) / ((double) passes * data.size());
+	}
+
+	public int getInputCount() {
+		return inputCount;
+	}
+
+	public int getOutputCount() {
+		return outputCount;
+	}
+
+	//A sparse network is only used for inference, prune and retrain the NeuralNetwork with a Pruner instead
+	@Override
+	public void train(float[] inputs, float[] outputs) {}
+
+	@Override
+	public void mutate() {}
+
+	@Override
+	public BaseAI crossOver(BaseAI ai) { return this; }
+
+	//Nothing can change a sparse network, so it can be shared
+	@Override
+	public BaseAI copy() { return this; }
+}
@@ -9,7 +9,6 @@ public class AIHolder implements Comparable<AIHolder> {
 
 	final BaseAI ai;
 	private float fitness;
-	float normalizedFitness;
 
 	private float topFitness = 0;
 
@@ -62,20 +61,21 @@ public class AIHolder implements Comparable<AIHolder> {
     }
 
     /**
-     * Make the fitness between 0 and 1
-     * @param maxFitness The highest fitness from this generation
+     * Mutate a copy of the ai this holder holds, the ai of this holder doesn't change.
+     * @return A new AIHolder with the mutated ai.
      */
-	void normalizeFitness(float maxFitness) {
-		normalizedFitness = fitness/maxFitness;
+	AIHolder mutate() {
+		AIHolder newHolder = copy();
+		newHolder.ai.mutate();
+		return newHolder;
 	}
 
     /**
-     * Mutate the ai this holder holds.
-     * @return A new AIHolder with the mutated ai.
+     * Create a holder with a copy of the ai, the copy shares the weights of the ai until one of them changes.
+     * @return A new AIHolder with the same topfitness and staleness
      */
-	AIHolder mutate() {
-		this.ai.mutate();
-		AIHolder newHolder = new AIHolder(this.ai);
+	AIHolder copy() {
+		AIHolder newHolder = new AIHolder(this.ai.copy());
 		newHolder.topFitness = topFitness;
 		newHolder.staleness = staleness;
 		return newHolder;
@@ -0,0 +1,43 @@
+package pws.AI.pool;
+
+import pws.AI.BaseAI;
+
+/**
+ * The best AI of a pool at some point during training.
+ * A champion never changes after it is created: the ai is a copy that shares its weights copy-on-write with the network it was copied from,
+ * so the pool can keep mutating and training its own networks while other threads use the champion.
+ */
+public final class Champion {
+
+	private final BaseAI ai;
+	private final float fitness;
+	private final int generation;
+
+    /**
+     * Create a new champion
+     * @param ai A copy of the best ai, nothing may change it after this
+     * @param fitness The fitness of the ai
+     * @param generation The generation the ai got this fitness in
+     */
+	Champion(BaseAI ai, float fitness, int generation) {
+		this.ai = ai;
+		this.fitness = fitness;
+		this.generation = generation;
+	}
+
+    /**
+     * Get the ai, it can be evaluated from any thread but should not be changed
+     * @return The ai
+     */
+	public BaseAI getAI() {
+		return ai;
+	}
+
+	public float getFitness() {
+		return fitness;
+	}
+
+	public int getGeneration() {
+		return generation;
+	}
+}
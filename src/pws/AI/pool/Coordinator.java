@@ -0,0 +1,391 @@
+package pws.AI.pool;
+
+import pws.AI.NeuralNetwork.Checkpoint;
+import pws.AI.NeuralNetwork.NeuralNetwork;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Lets worker processes (see {@link RemoteWorker}) play the games of a pool, so the games of one generation can be played by many JVMs.
+ * The workers connect to the coordinator over TCP on the loopback address.
+ *
+ * The coordinator sends batches of networks: the amount of networks, and for every network an id, the length and the bytes from {@link Checkpoint#toBytes(NeuralNetwork)}.
+ * A worker sends a frame for every network back as soon as its batch is done: the id, whether it played and the fitness.
+ * Every worker gets new batches before it is done with the last one, so it never waits for the coordinator.
+ * Every worker has its own thread that writes its batches, so a worker that stops reading can't block the coordinator.
+ * When a worker disconnects, or takes longer than the job timeout for a network, the networks it didn't finish are sent to the other workers.
+ * When the games of a network crash it is sent again, after MAX_ATTEMPTS times it gets fitness 0.
+ *
+ * The networks are sent as floats, so a double network plays with its weights rounded to floats.
+ */
+public class Coordinator implements AutoCloseable {
+
+	//How many networks are sent at once, and how many networks a worker can have that it didn't finish yet
+	private static final int DEFAULT_BATCH_SIZE = 16;
+	private static final int DEFAULT_MAX_IN_FLIGHT = 64;
+
+	//How many times a network can crash the games before it gets fitness 0
+	private static final int MAX_ATTEMPTS = 3;
+
+	//How long a worker can take for a network by default, in milliseconds
+	private static final long DEFAULT_JOB_TIMEOUT = 5 * 60 * 1000;
+
+	private final ServerSocket serverSocket;
+	private final int batchSize;
+	private final int maxInFlight;
+	private volatile long jobTimeout = DEFAULT_JOB_TIMEOUT;
+
+	//Everything below is guarded by this
+	private final List<Connection> connections = new ArrayList<>();
+	private final ArrayDeque<Job> queue = new ArrayDeque<>();
+	private int nextId = 0;
+	private int unfinished = 0;
+
+    /**
+     * Start listening for workers
+     * @param port The port to listen on, 0 for any free port
+     * @throws IOException When the port can't be used
+     */
+	public Coordinator(int port) throws IOException {
+		this(port, DEFAULT_BATCH_SIZE, DEFAULT_MAX_IN_FLIGHT);
+	}
+
+    /**
+     * Start listening for workers
+     * @param port The port to listen on, 0 for any free port
+     * @param batchSize How many networks are sent at once
+     * @param maxInFlight How many networks a worker can have that it didn't finish yet, at least batchSize
+     * @throws IOException When the port can't be used
+     */
+	public Coordinator(int port, int batchSize, int maxInFlight) throws IOException {
+		if(batchSize < 1 || maxInFlight < batchSize) {
+			throw new IllegalArgumentException(String.format("Invalid batching! Batch size %d should be at least 1 and at most the %d networks in flight", batchSize, maxInFlight));
+		}
+
+		this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		this.batchSize = batchSize;
+		this.maxInFlight = maxInFlight;
+
+		Thread acceptThread = new Thread(this::acceptWorkers, "Coordinator");
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	private void acceptWorkers() {
+		while(!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				Connection connection = new Connection(socket);
+
+				Thread writeThread = new Thread(() -> writeBatches(connection), "Coordinator writer " + socket.getRemoteSocketAddress());
+				writeThread.setDaemon(true);
+				writeThread.start();
+
+				synchronized(this) {
+					connections.add(connection);
+					dispatch();
+				}
+
+				Thread readThread = new Thread(() -> readResults(connection), "Coordinator " + socket.getRemoteSocketAddress());
+				readThread.setDaemon(true);
+				readThread.start();
+			} catch (IOException e) {
+				if(!serverSocket.isClosed()) {
+					e.printStackTrace();
+					System.err.println("Could not accept a worker!");
+				}
+			}
+		}
+	}
+
+    /**
+     * Let the workers play the games of every holder and give the holders their fitness. Waits until every holder is done,
+     * when there are no workers it waits until one connects.
+     * When the thread is interrupted it stops waiting, the holders that are not done keep their fitness and the interrupt flag stays set.
+     * @param holders The holders, their AIs should be neural networks
+     */
+	void evaluate(List<AIHolder> holders) {
+		List<Job> jobs = new ArrayList<>(holders.size());
+		for(AIHolder holder : holders) {
+			if(!(holder.ai instanceof NeuralNetwork)) {
+				throw new IllegalArgumentException("Only neural networks can be sent to workers, got " + holder.ai.getClass().getSimpleName());
+			}
+			jobs.add(new Job(holder, Checkpoint.toBytes((NeuralNetwork) holder.ai)));
+		}
+
+		synchronized(this) {
+			for(Job job : jobs) {
+				job.id = nextId++;
+				queue.add(job);
+			}
+			unfinished += jobs.size();
+			dispatch();
+
+			while(unfinished > 0) {
+				try {
+					//Wake up now and then to find the workers that take too long
+					wait(Math.max(1, jobTimeout / 10));
+				} catch (InterruptedException e) {
+					//Forget the networks that are not done, so the next evaluate doesn't wait for them
+					queue.clear();
+					for(Connection connection : connections) {
+						connection.inFlight.clear();
+					}
+					unfinished = 0;
+
+					Thread.currentThread().interrupt();
+					return;
+				}
+
+				disconnectLateWorkers();
+			}
+		}
+	}
+
+    /**
+     * Disconnect the workers that have a network for longer than the job timeout, only call this while holding the lock.
+     * A worker that hangs without disconnecting would otherwise keep its networks forever
+     */
+	private void disconnectLateWorkers() {
+		long deadline = System.nanoTime() - jobTimeout * 1000000;
+
+		List<Connection> late = new ArrayList<>();
+		for(Connection connection : connections) {
+			for(Job job : connection.inFlight.values()) {
+				if(job.sentAt - deadline < 0) {
+					late.add(connection);
+					break;
+				}
+			}
+		}
+
+		for(Connection connection : late) {
+			System.err.println("A worker took longer than " + jobTimeout + "ms for a network, its networks go to the other workers!");
+			disconnect(connection);
+		}
+	}
+
+    /**
+     * Set how long a worker can take for a network before it is disconnected, this includes the time the network waits for the batches sent before it.
+     * The default is 5 minutes
+     * @param jobTimeout The time in milliseconds, at least 1
+     */
+	public void setJobTimeout(long jobTimeout) {
+		if(jobTimeout < 1) {
+			throw new IllegalArgumentException("Invalid job timeout! It should be at least 1 millisecond, got " + jobTimeout);
+		}
+
+		this.jobTimeout = jobTimeout;
+	}
+
+    /**
+     * Give batches to every worker that has room for them, only call this while holding the lock.
+     * The batches are written by the write thread of the worker, so this never waits for a worker
+     */
+	private void dispatch() {
+		for(Connection connection : connections) {
+			while(!queue.isEmpty() && connection.inFlight.size() + batchSize <= maxInFlight) {
+				List<Job> batch = new ArrayList<>(batchSize);
+				long now = System.nanoTime();
+				while(batch.size() < batchSize && !queue.isEmpty()) {
+					Job job = queue.poll();
+					job.sentAt = now;
+					batch.add(job);
+					connection.inFlight.put(job.id, job);
+				}
+
+				connection.outbox.add(batch);
+			}
+		}
+	}
+
+    /**
+     * Write the batches of a worker until it is disconnected, this is done without the lock because writing can block when the worker stops reading
+     * @param connection The worker
+     */
+	private void writeBatches(Connection connection) {
+		try {
+			while(true) {
+				List<Job> batch = connection.outbox.take();
+				if(batch == Connection.STOP) return;
+
+				connection.send(batch);
+			}
+		} catch (InterruptedException e) {
+			//Nobody interrupts this thread, stop anyway
+		} catch (IOException e) {
+			if(!connection.socket.isClosed()) {
+				e.printStackTrace();
+				System.err.println("Could not send networks to a worker!");
+			}
+
+			//The networks of this worker go to the other workers
+			synchronized(this) {
+				disconnect(connection);
+			}
+		}
+	}
+
+	private void readResults(Connection connection) {
+		try {
+			//noinspection InfiniteLoopStatement
+			while(true) {
+				int id = connection.in.readInt();
+				boolean played = connection.in.readBoolean();
+				float fitness = connection.in.readFloat();
+
+				synchronized(this) {
+					Job job = connection.inFlight.remove(id);
+					if(job == null) continue;
+
+					if(played) {
+						job.holder.setFitness(fitness);
+						unfinished--;
+					} else if(++job.attempts < MAX_ATTEMPTS) {
+						//Try again, maybe on another worker
+						queue.addFirst(job);
+					} else {
+						System.err.println("The games crashed " + MAX_ATTEMPTS + " times for a network, it gets fitness 0!");
+						job.holder.setFitness(0);
+						unfinished--;
+					}
+
+					dispatch();
+					if(unfinished == 0) notifyAll();
+				}
+			}
+		} catch (IOException e) {
+			synchronized(this) {
+				disconnect(connection);
+			}
+		}
+	}
+
+    /**
+     * Remove a worker and put the networks it didn't finish back in the queue, only call this while holding the lock
+     * @param connection The worker
+     */
+	private void disconnect(Connection connection) {
+		if(!connections.remove(connection)) return;
+
+		for(Job job : connection.inFlight.values()) {
+			queue.addFirst(job);
+		}
+		connection.inFlight.clear();
+		connection.close();
+
+		dispatch();
+	}
+
+    /**
+     * Get how many workers are connected
+     * @return The amount of workers
+     */
+	public synchronized int getWorkerCount() {
+		return connections.size();
+	}
+
+    /**
+     * Get the port the coordinator listens on, for when it was created with port 0
+     * @return The port
+     */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+    /**
+     * Stop listening and disconnect every worker, the workers stop when they are disconnected
+     */
+	@Override
+	public void close() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		synchronized(this) {
+			for(Connection connection : connections) {
+				connection.close();
+			}
+			connections.clear();
+		}
+	}
+
+    /**
+     * One network that has to play
+     */
+	private static final class Job {
+		final AIHolder holder;
+		final byte[] network;
+		int id;
+		int attempts = 0;
+
+		//When the network was sent to its worker, from System.nanoTime
+		long sentAt;
+
+		Job(AIHolder holder, byte[] network) {
+			this.holder = holder;
+			this.network = network;
+		}
+	}
+
+    /**
+     * One worker with the networks it is playing
+     */
+	private static final class Connection {
+
+		//Given to the write thread to make it stop
+		static final List<Job> STOP = new ArrayList<>(0);
+
+		final Socket socket;
+		final DataInputStream in;
+		final DataOutputStream out;
+		final Map<Integer, Job> inFlight = new HashMap<>();
+
+		//The batches the write thread still has to send
+		final LinkedBlockingQueue<List<Job>> outbox = new LinkedBlockingQueue<>();
+
+		Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		void send(List<Job> batch) throws IOException {
+			out.writeInt(batch.size());
+			for(Job job : batch) {
+				out.writeInt(job.id);
+				out.writeInt(job.network.length);
+				out.write(job.network);
+			}
+			out.flush();
+		}
+
+		void close() {
+			try {
+				//This also stops a write that is blocked because the worker doesn't read
+				socket.close();
+			} catch (IOException e) {
+				//It is closed anyway
+			}
+
+			outbox.clear();
+			outbox.add(STOP);
+		}
+	}
+}
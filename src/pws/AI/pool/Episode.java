@@ -0,0 +1,136 @@
+package pws.AI.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pws.games.Game;
+import pws.games.flappybird.FlappyBird;
+import pws.games.pong.Pong;
+
+/**
+ * Keeps track of the fitness of one AIHolder while it plays its game a few times.
+ * Call start once and afterUpdate after every update of the game, this way the game can be updated by a RunTask or together with other games.
+ */
+class Episode {
+
+	//We run the game 10 times
+	static final int RUNS = 10;
+
+	//A game is killed when it runs for too long
+	static final int MAX_UPDATES = 36000;
+
+	final Game game;
+	final AIHolder holder;
+	private final int runs;
+
+	private float fitness = 0;
+	private int run = 0;
+	private int updates = 0;
+
+	Episode(Game game, AIHolder holder) {
+		this(game, holder, RUNS);
+	}
+
+    /**
+     * @param game The game to play
+     * @param holder The holder of the AI that plays the game
+     * @param runs How many times the game is played
+     */
+	Episode(Game game, AIHolder holder, int runs) {
+		this.game = game;
+		this.holder = holder;
+		this.runs = runs;
+	}
+
+    /**
+     * Create the games for the runs of one AI, when every run has its own game.
+     * Run r of every AI starts with the same random numbers, like every game does in lockstep
+     * @param game The game to create new instances of
+     * @return RUNS new games
+     */
+	static List<Game> createRunGames(Game game) {
+		List<Game> games = new ArrayList<>(RUNS);
+		for(int r = 0; r < RUNS; r++) {
+			Game runGame = game.newInstance();
+			runGame.setSeed(r);
+			games.add(runGame);
+		}
+		return games;
+	}
+
+    /**
+     * Reset the game and start the first run
+     */
+	void start() {
+		fitness = 0;
+		run = 0;
+		startRun();
+	}
+
+	private void startRun() {
+		//Make sure the game is reset first
+		this.game.reset();
+
+		//Then we start the game
+		this.game.isRunning = true;
+
+		//We keep track of the updates so we can kill the game if it runs for too long
+		updates = 0;
+	}
+
+    /**
+     * Add the fitness for the last update and start the next run when the game ended.
+     * @return true if the game should be updated again, false when all runs are done
+     */
+	boolean afterUpdate() {
+		//Depending on the game we either just increase the fitness by a default value
+		if(this.game instanceof FlappyBird) {
+			fitness+=0.01;
+		} else if (this.game instanceof Pong) {
+			//Or we give more score the closer the bat is to the ball
+			Pong pong = (Pong)this.game;
+
+			float yDelta = pong.player.y - pong.ball.y;
+			float xDelta = pong.player.x - pong.ball.x;
+
+			float distanceToBall = yDelta*yDelta+xDelta*xDelta;
+
+			if(distanceToBall<5f) {
+				fitness += 100;
+			} else {
+				fitness += (5 / (distanceToBall * distanceToBall));
+			}
+		}
+
+		updates++;
+
+		//Keep running until the game ends or we've done 36000 updates
+		if(this.game.isRunning&&updates<MAX_UPDATES) return true;
+
+		//FlappyBird gets 100 points for every point it got. Other games get 500 points if they won the game
+		if(this.game instanceof FlappyBird) {
+			FlappyBird flappyBird = (FlappyBird)game;
+			fitness+=flappyBird.bird.points*100;
+		} else {
+			if (this.game.playerWon()) {
+				fitness+=500;
+			}
+		}
+
+		run++;
+		if(run < runs) {
+			startRun();
+			return true;
+		}
+
+		return false;
+	}
+
+    /**
+     * Get the fitness of the runs so far, give it to the holder when afterUpdate returned false
+     * @return The fitness
+     */
+	float getFitness() {
+		return fitness;
+	}
+}
@@ -0,0 +1,39 @@
+package pws.AI.pool;
+
+import pws.games.Game;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plays all runs of one AIHolder and gives it the fitness.
+ * Every run is its own task with its own game, so the runs of one AI can be played on multiple threads.
+ */
+class EpisodeTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final AIHolder holder;
+	private final List<Game> games;
+
+	EpisodeTask(AIHolder holder, List<Game> games) {
+		this.holder = holder;
+		this.games = games;
+	}
+
+	@Override
+	protected void compute() {
+		RunTask[] runs = new RunTask[games.size()];
+		for(int i = 0; i < runs.length; i++) {
+			runs[i] = new RunTask(games.get(i), holder);
+		}
+		invokeAll(runs);
+
+		//Add the fitness in the order of the runs, so it doesn't depend on which thread was done first
+		float fitness = 0;
+		for(RunTask run : runs) {
+			fitness += run.join();
+		}
+		holder.setFitness(fitness);
+	}
+}
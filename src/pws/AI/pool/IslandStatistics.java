@@ -0,0 +1,31 @@
+package pws.AI.pool;
+
+/**
+ * How one island of {@link Islands} is doing, made by {@link Islands#getStatistics()}.
+ */
+public final class IslandStatistics {
+
+	public final int island;
+	public final int generation;
+
+	//The fitness of the best AI the island had so far and the average fitness of its last generation
+	public final float bestFitness;
+	public final float averageFitness;
+
+	//How many AIs the island got from the other islands
+	public final int immigrants;
+
+	IslandStatistics(int island, int generation, float bestFitness, float averageFitness, int immigrants) {
+		this.island = island;
+		this.generation = generation;
+		this.bestFitness = bestFitness;
+		this.averageFitness = averageFitness;
+		this.immigrants = immigrants;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Island %d: generation %d, best fitness %.2f, average fitness %.2f, %d immigrants",
+				island, generation, bestFitness, averageFitness, immigrants);
+	}
+}
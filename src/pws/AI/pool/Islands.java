@@ -0,0 +1,257 @@
+package pws.AI.pool;
+
+import pws.AI.BaseAI;
+import pws.AI.NeuralNetwork.Precision;
+import pws.games.Game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The island model: a few pools (islands) that evolve on their own thread, with their own random object and games.
+ * The islands never wait for each other. Every migrationInterval generations an island sends copies of its best AIs to another island,
+ * where they take the place of children in the next generation. This way good AIs spread without one big population that has to be sorted every generation.
+ */
+public class Islands extends BaseAI implements Runnable {
+
+    /**
+     * Where an island sends its best AIs
+     */
+	public enum Topology {
+		//Island i sends to island i+1, the last island sends to the first
+		RING,
+		//Every migration goes to a random other island
+		RANDOM
+	}
+
+	//The statistics are printed every STATISTICS_INTERVAL generations of the first island
+	private static final int STATISTICS_INTERVAL = 1000;
+
+	private final Pool[] islands;
+	private final Random[] randoms;
+	private final int outputs;
+
+	private volatile int migrationInterval = 10;
+	private volatile int migrants = 2;
+	private volatile Topology topology = Topology.RING;
+
+	//How many AIs every island got from the other islands
+	private final AtomicIntegerArray received;
+
+	//The best AI of all islands
+	private volatile Champion champion;
+
+    /**
+     * Create the islands
+     * @param layers The amount of neurons in each layer of the neural network
+     * @param islandCount The amount of islands
+     * @param populationCount The amount of networks on every island
+     * @param game The game to train on (Pong and FlappyBird are supported)
+     * @param precision The precision the networks store their weights and biases in
+     */
+	public Islands(int[] layers, int islandCount, int populationCount, Game game, Precision precision) {
+		this(layers, islandCount, populationCount, game, precision, new Random().nextLong());
+	}
+
+    /**
+     * Create the islands, with the same seed the islands start with the same networks and breed them the same way
+     * as long as the generations are done after each other with doGen. With start the islands finish their generations in another order every time
+     * @param layers The amount of neurons in each layer of the neural network
+     * @param islandCount The amount of islands
+     * @param populationCount The amount of networks on every island
+     * @param game The game to train on (Pong and FlappyBird are supported)
+     * @param precision The precision the networks store their weights and biases in
+     * @param seed The seed that the seeds of the islands are made from
+     */
+	public Islands(int[] layers, int islandCount, int populationCount, Game game, Precision precision, long seed) {
+		if(islandCount < 1) {
+			throw new IllegalArgumentException("Invalid island count! It should be at least 1, got " + islandCount);
+		}
+
+		this.islands = new Pool[islandCount];
+		this.randoms = new Random[islandCount];
+		this.outputs = game.getOutputSize();
+		this.received = new AtomicIntegerArray(islandCount);
+
+		Random seeds = new Random(seed);
+		int threadsPerIsland = Math.max(1, Runtime.getRuntime().availableProcessors() / islandCount);
+		for(int i = 0; i < islandCount; i++) {
+			//Every island gets its own games, so no game is shared between threads
+			islands[i] = new Pool(layers, populationCount, game.newInstance(), precision, seeds.nextLong());
+			islands[i].setThreadCount(threadsPerIsland);
+			randoms[i] = new Random(seeds.nextLong());
+		}
+	}
+
+    /**
+     * Set how the islands share their AIs. Call this before start.
+     * @param interval Every how many generations an island sends its best AIs, at least 1
+     * @param migrants How many AIs an island sends
+     * @param topology Where the AIs are sent to
+     */
+	public void setMigration(int interval, int migrants, Topology topology) {
+		if(interval < 1) {
+			throw new IllegalArgumentException("Invalid migration interval! It should be at least 1, got " + interval);
+		}
+
+		this.migrationInterval = interval;
+		this.migrants = migrants;
+		this.topology = topology;
+	}
+
+    /**
+     * Start every island on its own thread
+     */
+	public void start() {
+		for(int i = 0; i < islands.length; i++) {
+			int island = i;
+			Thread thread = new Thread(() -> evolve(island), "Island " + i);
+			thread.start();
+		}
+	}
+
+    /**
+     * Run the islands on the calling thread after each other, one generation each
+     */
+	@Override
+	public void run() {
+		//noinspection InfiniteLoopStatement
+		while(true) {
+			doGen();
+		}
+	}
+
+    /**
+     * Do one generation on every island on this thread, only call this when the islands aren't started
+     */
+	public void doGen() {
+		for(int i = 0; i < islands.length; i++) {
+			doGen(i);
+		}
+	}
+
+	private void evolve(int island) {
+		//noinspection InfiniteLoopStatement
+		while(true) {
+			doGen(island);
+		}
+	}
+
+    /**
+     * Do a generation on one island, send its best AIs away when it is time and update the champion
+     * @param island The index of the island
+     */
+	private void doGen(int island) {
+		Pool pool = islands[island];
+		pool.doGen();
+
+		if(islands.length > 1 && pool.getGeneration() % migrationInterval == 0) {
+			int destination = getDestination(island);
+			//The copies share their weights with the AIs of this island until one of them changes, the shared weights can be copied from any thread
+			List<BaseAI> best = pool.getBest(migrants);
+			for(BaseAI ai : best) {
+				islands[destination].addImmigrant(ai);
+			}
+			received.addAndGet(destination, best.size());
+		}
+
+		Champion islandChampion = pool.getChampion();
+		if(islandChampion != null) updateChampion(islandChampion);
+
+		//Output how the islands are doing
+		if(island == 0 && pool.getGeneration() % STATISTICS_INTERVAL == 0) {
+			for(IslandStatistics statistics : getStatistics()) {
+				System.out.println(statistics);
+			}
+		}
+	}
+
+	private int getDestination(int island) {
+		if(topology == Topology.RING) {
+			return (island + 1) % islands.length;
+		}
+
+		//A random island that isn't this island
+		int destination = randoms[island].nextInt(islands.length - 1);
+		return destination >= island ? destination + 1 : destination;
+	}
+
+	private synchronized void updateChampion(Champion islandChampion) {
+		Champion current = champion;
+		if(current == null || islandChampion.getFitness() > current.getFitness()) {
+			champion = islandChampion;
+		}
+	}
+
+    /**
+     * Get the best AI of all islands so far, this never blocks and can be called from any thread
+     * @return The champion, or null when no island did a generation yet
+     */
+	public Champion getChampion() {
+		return champion;
+	}
+
+    /**
+     * Get the statistics of every island, can be called from any thread
+     * @return The statistics, one for every island
+     */
+	public List<IslandStatistics> getStatistics() {
+		List<IslandStatistics> statistics = new ArrayList<>(islands.length);
+		for(int i = 0; i < islands.length; i++) {
+			Champion islandChampion = islands[i].getChampion();
+			float bestFitness = islandChampion != null ? islandChampion.getFitness() : 0;
+			statistics.add(new IslandStatistics(i, islands[i].getGeneration(), bestFitness, islands[i].getAverageFitness(), received.get(i)));
+		}
+		return statistics;
+	}
+
+    /**
+     * Get the islands, for example to change their selection. Don't call doGen on them
+     * @return The pools of the islands
+     */
+	public List<Pool> getIslands() {
+		return Arrays.asList(islands);
+	}
+
+	@Override
+	public float[] evaluate(float[] inputs) {
+		//Let the best AI we've had determine what to do
+		Champion current = champion;
+		if(current != null) return current.getAI().evaluate(inputs);
+
+		return new float[outputs];
+	}
+
+	@Override
+	public float[] evaluate(float[] inputs, float[] outputs) {
+		Champion current = champion;
+		if(current != null) return current.getAI().evaluate(inputs, outputs);
+
+		Arrays.fill(outputs, 0);
+		return outputs;
+	}
+
+	@Override
+	public int decide(float[] inputs) {
+		Champion current = champion;
+		if(current != null) return current.getAI().decide(inputs);
+
+		return 0;
+	}
+
+	//The islands train themselves, so these don't do anything
+	@Override
+	public void train(float[] inputs, float[] outputs) {}
+
+	@Override
+	public void mutate() {}
+
+	@Override
+	public BaseAI crossOver(BaseAI ai) { return this; }
+
+	@Override
+	public BaseAI copy() { return this; }
+}
@@ -0,0 +1,116 @@
+package pws.AI.pool;
+
+import pws.AI.NeuralNetwork.NeuralNetwork;
+import pws.AI.NeuralNetwork.PopulationNetwork;
+import pws.games.Game;
+import pws.games.SplitUpdateGame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A part of the population that is played in lockstep by one thread, see Pool.playInLockstep.
+ * Every chunk has its own PopulationNetwork and arrays, it is used again every generation.
+ */
+class LockstepChunk {
+
+	//Evaluates all runs of the chunk at once, created with the layers of the first networks that play
+	private PopulationNetwork population;
+	private int inputs;
+	private int outputs;
+
+	private float[] populationInputs = new float[0];
+	private float[] populationOutputs = new float[0];
+
+    /**
+     * Update the games of all AIs together. Every run of every AI has its own game and its own place in the population,
+     * the same way as every run is its own task on the threads. The weights of an AI are only stacked once, all of its runs use them. Every update the inputs of all games are collected,
+     * all networks are evaluated in one pass by the PopulationNetwork and then every game is updated with the outputs of its network.
+     * Runs that are done are removed from the population, the others keep going until every run is done.
+     * @param holders The holders that should play, their AIs should be neural networks with the same layers
+     * @param games The games, game RUNS*i+r is run r of holder i. They should be SplitUpdateGames
+     */
+	void play(List<AIHolder> holders, List<Game> games) {
+		int count = holders.size() * Episode.RUNS;
+		if(count == 0) return;
+
+		List<NeuralNetwork> networks = new ArrayList<>(holders.size());
+		for(AIHolder holder : holders) {
+			networks.add((NeuralNetwork) holder.ai);
+		}
+
+		if(population == null) {
+			createPopulation(networks.get(0));
+		}
+
+		//Index RUNS*i+r of the population is run r of network i, the same as the games
+		population.load(networks, Episode.RUNS);
+
+		if(populationInputs.length < count * inputs) {
+			populationInputs = new float[count * inputs];
+			populationOutputs = new float[count * outputs];
+		}
+
+		//Episode i is index i of the population, run is where its fitness goes
+		Episode[] episodes = new Episode[count];
+		SplitUpdateGame[] splitGames = new SplitUpdateGame[count];
+		int[] run = new int[count];
+		float[] runFitness = new float[count];
+		for(int i = 0; i < count; i++) {
+			episodes[i] = new Episode(games.get(i), holders.get(i / Episode.RUNS), 1);
+			episodes[i].start();
+			splitGames[i] = (SplitUpdateGame) games.get(i);
+			run[i] = i;
+		}
+
+		int running = count;
+		while(running > 0) {
+			for(int i = 0; i < running; i++) {
+				splitGames[i].getAIInputs(populationInputs, i * inputs);
+			}
+
+			population.evaluate(populationInputs, populationOutputs);
+
+			for(int i = 0; i < running; i++) {
+				splitGames[i].update(populationOutputs, i * outputs);
+			}
+
+			//Remove the runs that are done, the last one takes its place in the population and in the episodes
+			for(int i = running-1; i >= 0; i--) {
+				if(!episodes[i].afterUpdate()) {
+					runFitness[run[i]] = episodes[i].getFitness();
+					running--;
+					population.remove(i);
+					episodes[i] = episodes[running];
+					splitGames[i] = splitGames[running];
+					run[i] = run[running];
+				}
+			}
+		}
+
+		//Add the fitness in the order of the runs, like EpisodeTask does
+		for(int h = 0; h < holders.size(); h++) {
+			float fitness = 0;
+			for(int r = 0; r < Episode.RUNS; r++) {
+				fitness += runFitness[h * Episode.RUNS + r];
+			}
+			holders.get(h).setFitness(fitness);
+		}
+	}
+
+    /**
+     * Create the PopulationNetwork with the layers and the precision of a network, so the fitness is the same as when the network plays on its own
+     * @param network The network
+     */
+	private void createPopulation(NeuralNetwork network) {
+		int layerCount = network.weights.size();
+		int[] layers = new int[layerCount - 1];
+		for(int l = 0; l < layers.length; l++) {
+			layers[l] = network.weights.get(l).numRows();
+		}
+
+		inputs = network.weights.get(0).numCols();
+		outputs = network.weights.get(layerCount - 1).numRows();
+		population = new PopulationNetwork(inputs, outputs, layers, network.getPrecision());
+	}
+}
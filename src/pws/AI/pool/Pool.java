@@ -1,18 +1,27 @@
 package pws.AI.pool;
 
 import pws.AI.BaseAI;
+import pws.AI.NeuralNetwork.Checkpoint;
 import pws.AI.NeuralNetwork.NeuralNetwork;
+import pws.AI.NeuralNetwork.Precision;
 import pws.games.Game;
-import pws.games.flappybird.FlappyBird;
-import pws.games.pong.Pong;
+import pws.games.SplitUpdateGame;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The genetic algorithm.
@@ -21,18 +30,73 @@ import java.util.concurrent.TimeUnit;
 public class Pool extends BaseAI implements Runnable {
 
     private final int populationCount;
-    private final Random random = new Random();
+    private final Random random;
 
     private final Game game;
 
     private final int inputs;
     private final int outputs;
     private final int[] layers;
+    private final Precision precision;
 
 	private List<AIHolder> aiHolders = new ArrayList<>();
+	//Only used by the thread that does the generations
 	private AIHolder topAIHolder;
-    private int generation = 0;
-	private final List<Game> games = new ArrayList<>();
+
+	//The best AI so far for the other threads. Every new champion is a new object, so readers only have to read this field once
+	private volatile Champion champion;
+    private volatile int generation = 0;
+
+	//The average fitness of the last generation
+	private volatile float averageFitness = 0;
+
+	//The AIs of the last generation that played, the best first. Only used by the thread that does the generations
+	private List<AIHolder> lastGeneration = new ArrayList<>();
+
+	//AIs from other pools, they are added at the start of the next generation
+	private final ConcurrentLinkedQueue<BaseAI> immigrants = new ConcurrentLinkedQueue<>();
+
+	//The threads the games are played on, created once and used by every generation
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private ForkJoinPool workers;
+
+	//Every run of every AI has its own game, on the threads and in lockstep. The games of AI i are RUNS*i to RUNS*(i+1)
+	private final List<Game> runGames = new ArrayList<>();
+
+	//When this isn't null the games are played by the workers of the coordinator
+	private volatile Coordinator coordinator;
+
+	//Seed the games before every AI plays, so a network always gets the same fitness and networks that didn't change don't have to play again
+	private volatile boolean deterministicEvaluation = false;
+
+	//The fitness of the networks of the last generation by their version, only used by the thread that does the generations
+	private Map<Long, Float> fitnessCache = new HashMap<>();
+
+	//How the parents of a child are chosen
+	private volatile Selection selection = Selection.ROULETTE;
+
+	//Evolve without generations, see evolveSteadyState
+	private volatile boolean steadyState = false;
+
+	//Used by evolveSteadyState, everything below is guarded by the lock
+	private final Object steadyStateLock = new Object();
+	private final ArrayDeque<AIHolder> unevaluated = new ArrayDeque<>();
+	private final ArrayDeque<List<Game>> freeRunGames = new ArrayDeque<>();
+	private long evaluationsLeft = 0;
+	private long evaluations = 0;
+	private int playing = 0;
+	private RuntimeException steadyStateError;
+
+	//The best network is saved to the checkpoint every CHECKPOINT_INTERVAL generations, null when the pool doesn't save
+	private static final int CHECKPOINT_INTERVAL = 100;
+	private volatile Path checkpoint;
+
+	//A network loaded from the checkpoint, it is added to the pool at the start of the next generation
+	private volatile NeuralNetwork loadedNetwork;
+
+	//The games that are updated in lockstep are split in chunks, every chunk evaluates its networks at once. With more than one thread every thread gets LOCKSTEP_CHUNKS_PER_THREAD chunks
+	private static final int LOCKSTEP_CHUNKS_PER_THREAD = 4;
+	private final List<LockstepChunk> lockstepChunks = new ArrayList<>();
 
     /**
      * Create a new pool with networks to train.
@@ -41,66 +105,125 @@ public class Pool extends BaseAI implements Runnable {
      * @param game The game to train on (Pong and FlappyBird are supported)
      */
     public Pool(int[] layers, int populationCount, Game game) {
+        this(layers, populationCount, game, Precision.DOUBLE);
+    }
+
+    /**
+     * Create a new pool with networks to train.
+     * @param layers The amount of neurons in each layer of the neural network
+     * @param populationCount The amount of networks in the pool
+     * @param game The game to train on (Pong and FlappyBird are supported)
+     * @param precision The precision the networks store their weights and biases in
+     */
+    public Pool(int[] layers, int populationCount, Game game, Precision precision) {
+        this(layers, populationCount, game, precision, new Random());
+    }
+
+    /**
+     * Create a new pool with networks to train, with the same seed the pool creates and breeds the same networks every time.
+     * @param layers The amount of neurons in each layer of the neural network
+     * @param populationCount The amount of networks in the pool
+     * @param game The game to train on (Pong and FlappyBird are supported)
+     * @param precision The precision the networks store their weights and biases in
+     * @param seed The seed of the random object
+     */
+    public Pool(int[] layers, int populationCount, Game game, Precision precision, long seed) {
+        this(layers, populationCount, game, precision, new Random(seed));
+    }
+
+    private Pool(int[] layers, int populationCount, Game game, Precision precision, Random random) {
+        this.random = random;
         this.inputs = game.getInputSize();
         this.outputs = game.getOutputSize();
+        this.layers = layers;
+        this.precision = precision;
 
         //Create and randomise neural networks
 		for(int i = 0; i < populationCount; i++) {
-			aiHolders.add(new AIHolder(new NeuralNetwork(inputs, outputs, layers).randomise()));
+			aiHolders.add(new AIHolder(createNetwork()));
 		}
-
-		this.layers = layers;
 		
 		this.populationCount = populationCount;
 		this.game = game;
+	}
 
-		//Start a new thread to do the generations on, makes sure the game wont crash
+    /**
+     * Start doing generations on a new thread, makes sure the game wont crash
+     */
+	public void start() {
 		new Thread(this).start();
 	}
 
 	@Override
 	public void run() {
+		if(steadyState) {
+			evolveSteadyState(Long.MAX_VALUE);
+			return;
+		}
+
 		//noinspection InfiniteLoopStatement
 		while(true) {
-		    //Do a generation and output the best fitness
 	        doGen();
-            if(this.generation%10000==0) {
-			    System.out.println(topAIHolder.getFitness());
-		    }
+	        afterGeneration();
         }
     }
 
     /**
-     * Does a generation, the workload is spread over x threads.
+     * Output the best fitness every 10000 generations and save the checkpoint every CHECKPOINT_INTERVAL generations
+     */
+	private void afterGeneration() {
+        if(this.generation%10000==0) {
+		    System.out.println(topAIHolder.getFitness());
+	    }
+
+        //Save the best network, this happens on another thread so the next generation can start right away
+        Champion current = champion;
+        if(checkpoint != null && this.generation%CHECKPOINT_INTERVAL==0 && current.getAI() instanceof NeuralNetwork) {
+            Path path = checkpoint;
+            Checkpoint.saveAsync((NeuralNetwork) current.getAI(), path).exceptionally((e) -> {
+                e.printStackTrace();
+                System.err.println("Could not save checkpoint " + path.toAbsolutePath() + "!");
+                return null;
+            });
+        }
+	}
+
+    /**
+     * Let start evolve with evolveSteadyState instead of generations. Call this before start.
+     * @param steadyState true to evolve without generations
+     */
+	public void setSteadyState(boolean steadyState) {
+		this.steadyState = steadyState;
+	}
+
+    /**
+     * Does a generation, the workload is spread over the threads of the pool.
      * In ever generation the networks play the game and get a fitness score based on that
      * The fitness score will determine how likely they are to be bred and/or mutated.
+     * This is called by the thread of start, only call it yourself when the pool isn't started.
      */
-	private void doGen() {
-	    //Create a ExecutorService to spread the load
-        int threadCount = 4;
-        ExecutorService es = Executors.newFixedThreadPool(threadCount);
-
-		for(int i = 0; i < this.aiHolders.size(); i++) {
-			AIHolder aiHolder = this.aiHolders.get(i);
-			//Every AI needs its own game
-			if(this.games.size()-1<i) this.games.add(game.newInstance());
-			es.execute(new TrainingThread(this.games.get(i), aiHolder));
+	public void doGen() {
+		//Add the network from the checkpoint
+		NeuralNetwork loaded = loadedNetwork;
+		if(loaded != null) {
+			loadedNetwork = null;
+			aiHolders.set(0, new AIHolder(loaded));
 		}
 
-		//Wait for every AI to finish
-		es.shutdown();
-		try {
-			es.awaitTermination(1, TimeUnit.DAYS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		//The AIs from other pools take the place of the last children
+		int slot = aiHolders.size();
+		BaseAI immigrant;
+		while(slot > 1 && (immigrant = immigrants.poll()) != null) {
+			aiHolders.set(--slot, new AIHolder(immigrant));
 		}
 
-		//Find the highest fitness from this generation
-		float maxFitness = Float.MIN_VALUE;
+		play(aiHolders);
+
+		//Find the best AI so far
+		AIHolder previousTop = topAIHolder;
+		float totalFitness = 0;
 		for(AIHolder holder : aiHolders) {
-		    if(holder.getFitness() >maxFitness) {
-		        maxFitness = holder.getFitness();
-            }
+			totalFitness += holder.getFitness();
 
 			if(topAIHolder == null || holder.getFitness() > topAIHolder.getFitness()) {
 				topAIHolder = holder;
@@ -109,15 +232,18 @@ public class Pool extends BaseAI implements Runnable {
 		
 		generation++;
 
+		//Publish the new best AI. The copy shares the weights, the holder's network can still be mutated and trained because it copies a layer before changing it
+		if(topAIHolder != previousTop) {
+			champion = new Champion(topAIHolder.ai.copy(), topAIHolder.getFitness(), generation);
+		}
+
 		//Make sure the list is sorted
 		aiHolders.sort(Collections.reverseOrder());
+		lastGeneration = aiHolders;
+		averageFitness = totalFitness / aiHolders.size();
 
-		//Normalize (Make every fitness between 0 and 1)
-		float totalWeight = 0;
-		for(AIHolder holder : aiHolders) {
-		    holder.normalizeFitness(maxFitness);
-		    totalWeight+= holder.normalizedFitness;
-        }
+		//Prepare choosing the parents once for the whole generation
+		Selection.Selector selector = prepareSelection(aiHolders);
 
         //This list will contain the new aiholders
 		List<AIHolder> newHolders = new ArrayList<>();
@@ -127,146 +253,574 @@ public class Pool extends BaseAI implements Runnable {
 
 		    //1% chance that a totally random network is created
 		    if(random.nextFloat()<0.01) {
-                aiHolders.add(new AIHolder(new NeuralNetwork(inputs, outputs, layers).randomise()));
+                newHolders.add(new AIHolder(createNetwork()));
             } else {
-		        //Get a random parent, the chance it is chosen depends on the fitness
-                AIHolder parent = getRandomByWeight(aiHolders, totalWeight);
+                newHolders.add(breedChild(aiHolders, selector));
+            }
+        }
 
-                //If the staleness > 15 create a new holder
-                if(parent.staleness>15) {
-                    parent = new AIHolder(new NeuralNetwork(inputs, outputs, layers).randomise());
-                }
+		this.aiHolders = newHolders;
+	}
 
-                //50% chance the parent will mutate
-                if (random.nextFloat() < 0.5) {
-                    parent = parent.mutate();
-                }
+    /**
+     * Let the holders play and give them their fitness. With deterministic evaluation the networks that played in the last generation get their fitness again without playing
+     * @param holders The holders that should get a fitness
+     */
+	private void play(List<AIHolder> holders) {
+		boolean deterministic = deterministicEvaluation;
+		List<AIHolder> toPlay = holders;
+
+		if(deterministic) {
+			toPlay = new ArrayList<>();
+			for(AIHolder holder : holders) {
+				Float fitness = holder.ai instanceof NeuralNetwork ? fitnessCache.get(((NeuralNetwork) holder.ai).getVersion()) : null;
+				if(fitness != null) {
+					holder.setFitness(fitness);
+				} else {
+					toPlay.add(holder);
+				}
+			}
+		}
 
-                //20% chance the parent will do a crossover
-                if (random.nextFloat() < 0.2) {
-                    AIHolder parent2 = getRandomByWeight(aiHolders, totalWeight);
-                    parent = parent.crossOver(parent2);
-                }
+		if(coordinator != null) {
+			coordinator.evaluate(toPlay);
+		} else if(canPlayInLockstep(toPlay)) {
+			playInLockstep(toPlay, deterministic);
+		} else {
+			playOnThreads(toPlay, deterministic);
+		}
 
+		if(deterministic) {
+			//Only this generation is remembered, the children of the next generation can only be copies of it
+			Map<Long, Float> cache = new HashMap<>();
+			for(AIHolder holder : holders) {
+				if(holder.ai instanceof NeuralNetwork) {
+					cache.put(((NeuralNetwork) holder.ai).getVersion(), holder.getFitness());
+				}
+			}
+			fitnessCache = cache;
+		}
+	}
 
-                newHolders.add(parent);
-            }
-        }
+    /**
+     * Seed the games before every AI plays, so the same network always gets the same fitness.
+     * About half of the children are a copy of their parent, those get the fitness of their parent without playing again.
+     * Without it the games keep their random numbers from the last AI that played them. Not used by evolveSteadyState. Call this before start.
+     * @param deterministicEvaluation true to seed the games
+     */
+	public void setDeterministicEvaluation(boolean deterministicEvaluation) {
+		this.deterministicEvaluation = deterministicEvaluation;
+	}
 
-		this.aiHolders = newHolders;
+    /**
+     * Let the workers of a coordinator play the games instead of this pool, the AIs have to be neural networks.
+     * Not used by evolveSteadyState.
+     * @param coordinator The coordinator, or null to play the games in this pool again
+     */
+	public void setCoordinator(Coordinator coordinator) {
+		this.coordinator = coordinator;
+	}
+
+    /**
+     * Set how the parents of a child are chosen, by default this is Selection.ROULETTE
+     * @param selection The selection to use from the next generation on
+     */
+	public void setSelection(Selection selection) {
+		this.selection = selection;
 	}
 
     /**
-     * Get a random holder based on its fitness
+     * Prepare the selection for the fitness of the holders
      * @param holders The holders to choose from
-     * @param totalWeight The total fitness
-     * @return A holder
+     * @return The selector, the index it chooses is the index in holders
+     */
+	private Selection.Selector prepareSelection(List<AIHolder> holders) {
+		float[] fitness = new float[holders.size()];
+		for(int i = 0; i < fitness.length; i++) {
+			fitness[i] = holders.get(i).getFitness();
+		}
+
+		return selection.prepare(fitness);
+	}
+
+    /**
+     * Breed a child from the holders, the holders don't change
+     * @param holders The holders to choose the parents from
+     * @param selector The selector prepared for the holders
+     * @return The child
+     */
+	private AIHolder breedChild(List<AIHolder> holders, Selection.Selector selector) {
+        //Get a random parent, how it is chosen depends on the selection
+        AIHolder parent = holders.get(selector.select(random));
+
+        //If the staleness > 15 create a new holder
+        if(parent.staleness>15) {
+            parent = new AIHolder(createNetwork());
+        }
+
+        AIHolder child = parent;
+
+        //50% chance the parent will mutate
+        if (random.nextFloat() < 0.5) {
+            child = child.mutate();
+        }
+
+        //20% chance the parent will do a crossover
+        if (random.nextFloat() < 0.2) {
+            AIHolder parent2 = holders.get(selector.select(random));
+            child = child.crossOver(parent2);
+        }
+
+        //A parent can be chosen multiple times, every child needs its own ai. The copy shares the weights until it changes them
+        if(child == parent) {
+            child = parent.copy();
+        }
+
+        return child;
+	}
+
+    /**
+     * Evolve without generations, so no thread waits for the slowest AI of a generation.
+     * As soon as an AI is done playing it is added to the population and the worst AI is removed,
+     * then a new AI is bred from the population and starts playing right away.
+     * The AIs of the pool play first, every populationCount AIs that are done count as a generation for the champion and the checkpoint.
+     * The AIs finish in a different order every time, so a seeded pool doesn't give the same result in this mode.
+     * Don't call doGen at the same time.
+     * @param evaluations How many AIs should play, returns when all of them are done
+     * @throws IllegalStateException When something went wrong after an AI was done, the AIs that were playing are finished first
+     */
+	public void evolveSteadyState(long evaluations) {
+		synchronized(steadyStateLock) {
+			unevaluated.addAll(aiHolders);
+			aiHolders = new ArrayList<>();
+			evaluationsLeft = evaluations;
+			steadyStateError = null;
+
+			if(workers == null) {
+				workers = new ForkJoinPool(threadCount);
+			}
+
+			//Two AIs for every thread, so a thread that is done always has another AI to play.
+			//New AIs are bred from the AIs that are done, so at the start only the AIs of the pool can play
+			int start = Math.max(1, Math.min(threadCount * 2, unevaluated.size()));
+			for(int i = 0; i < start; i++) {
+				if(!playNext()) break;
+			}
+
+			while(playing > 0) {
+				try {
+					steadyStateLock.wait();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+					return;
+				}
+			}
+
+			if(steadyStateError != null) {
+				throw new IllegalStateException("Steady state evolution stopped!", steadyStateError);
+			}
+		}
+	}
+
+    /**
+     * Start playing the next AI, only call this with the steady state lock
+     * @return false when no AIs are left to play
+     */
+	private boolean playNext() {
+		if(evaluationsLeft <= 0) return false;
+		evaluationsLeft--;
+
+		AIHolder holder = unevaluated.isEmpty() ? breed() : unevaluated.poll();
+		List<Game> games = freeRunGames.isEmpty() ? Episode.createRunGames(game) : freeRunGames.poll();
+
+		playing++;
+		workers.execute(new SteadyStateTask(this, holder, games));
+		return true;
+	}
+
+    /**
+     * Breed a child from the population, only call this with the steady state lock
+     * @return The child
+     */
+	private AIHolder breed() {
+	    //1% chance that a totally random network is created, there is nothing to breed from when no AI is done yet
+		if(random.nextFloat()<0.01 || aiHolders.isEmpty()) {
+			return new AIHolder(createNetwork());
+		}
+
+		//The population changes after every AI, so the selection is prepared every time
+		return breedChild(aiHolders, prepareSelection(aiHolders));
+	}
+
+    /**
+     * Called by a SteadyStateTask when its AI is done, adds the AI to the population and starts the next one
+     * @param holder The holder of the AI
+     * @param games The games it played on, they can be used again
+     * @param played false when the game crashed, then the AI isn't added
+     */
+	void finishedPlaying(AIHolder holder, List<Game> games, boolean played) {
+		synchronized(steadyStateLock) {
+			playing--;
+
+			try {
+				freeRunGames.add(games);
+
+				if(played) {
+					aiHolders.add(holder);
+
+					//The worst AI makes room
+					if(aiHolders.size() > populationCount) {
+						aiHolders.remove(Collections.min(aiHolders));
+					}
+
+					evaluations++;
+					if(evaluations % populationCount == 0) {
+						generation++;
+					}
+
+					if(topAIHolder == null || holder.getFitness() > topAIHolder.getFitness()) {
+						topAIHolder = holder;
+						champion = new Champion(holder.ai.copy(), holder.getFitness(), generation);
+					}
+
+					if(evaluations % populationCount == 0) {
+						afterGeneration();
+					}
+				}
+
+				playNext();
+			} catch (RuntimeException e) {
+				//Stop starting AIs, evolveSteadyState throws it when the AIs that are still playing are done
+				steadyStateError = e;
+				evaluationsLeft = 0;
+			} finally {
+				if(playing == 0) steadyStateLock.notifyAll();
+			}
+		}
+	}
+
+    /**
+     * Save the best network to a checkpoint every 100 generations. When the checkpoint already exists the network in it is added to the pool.
+     * @param path The file to save to
+     */
+	public void setCheckpoint(Path path) {
+		if(Files.exists(path)) {
+			try {
+				NeuralNetwork network = Checkpoint.load(path);
+
+				//The pool can only use networks with the same layers and activation functions
+				if(fitsPool(network)) {
+					loadedNetwork = network;
+					System.out.println("Loaded checkpoint " + path.toAbsolutePath());
+				} else {
+					System.err.println("The network in " + path.toAbsolutePath() + " has other layers or activation functions than the pool!");
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.err.println("Could not load checkpoint " + path.toAbsolutePath() + "!");
+			}
+		}
+
+		this.checkpoint = path;
+	}
+
+    /**
+     * Can the network be used in this pool?
+     * @param network The network to check
+     * @return true if it has the same layers and activation functions as the networks of this pool
+     */
+	private boolean fitsPool(NeuralNetwork network) {
+		NeuralNetwork reference = createNetwork();
+		if(!reference.hasSameLayers(network)) return false;
+
+		for(int l = 0; l < reference.weights.size(); l++) {
+			if(reference.getActivation(l) != network.getActivation(l)) return false;
+		}
+
+		return true;
+	}
+
+    /**
+     * Save the best network to the checkpoint now and wait until it is written
+     */
+	public void saveCheckpoint() {
+		Path path = checkpoint;
+		Champion current = champion;
+		if(path == null || current == null || !(current.getAI() instanceof NeuralNetwork)) return;
+
+		try {
+			Checkpoint.save((NeuralNetwork) current.getAI(), path);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.err.println("Could not save checkpoint " + path.toAbsolutePath() + "!");
+		}
+	}
+
+    /**
+     * Set how many threads the games are played on, by default there is a thread for every processor.
+     * Call this before start.
+     * @param threadCount The amount of threads, at least 1
+     */
+	public void setThreadCount(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("Invalid thread count! It should be at least 1, got " + threadCount);
+		}
+
+		this.threadCount = threadCount;
+
+		//The next generation creates the threads again
+		if(workers != null) {
+			workers.shutdown();
+			workers = null;
+		}
+	}
+
+    /**
+     * Let every AI play its own games on the threads. Every run is a task of its own,
+     * so the threads that are done with the short runs (FlappyBird dies early) steal the runs of the long ones (Pong can last 36000 updates).
+     * @param holders The holders that should play
+     * @param deterministic Seed run r of every AI with r
+     */
+	private void playOnThreads(List<AIHolder> holders, boolean deterministic) {
+		int count = holders.size();
+		prepareRunGames(count, deterministic);
+
+		if(workers == null) {
+			workers = new ForkJoinPool(threadCount);
+		}
+
+		EpisodeTask[] tasks = new EpisodeTask[count];
+		for(int i = 0; i < count; i++) {
+			tasks[i] = new EpisodeTask(holders.get(i), runGames.subList(i * Episode.RUNS, (i+1) * Episode.RUNS));
+			workers.execute(tasks[i]);
+		}
+
+		//Wait for every AI to finish
+		for(EpisodeTask task : tasks) {
+			task.join();
+		}
+	}
+
+    /**
+     * Make sure there are games for every run of every AI
+     * @param count The amount of AIs
+     * @param deterministic Seed run r of every AI with r
      */
-	private AIHolder getRandomByWeight(List<AIHolder> holders, float totalWeight) {
-        double randomNumber = random.nextDouble() * totalWeight;
+	private void prepareRunGames(int count, boolean deterministic) {
+		while(runGames.size() < count * Episode.RUNS) {
+			runGames.addAll(Episode.createRunGames(game));
+		}
 
-		for (AIHolder holder : holders) {
-			randomNumber -= holder.normalizedFitness;
-			if (randomNumber <= 0) {
-				return holder;
+		if(deterministic) {
+			for(int i = 0; i < count * Episode.RUNS; i++) {
+				runGames.get(i).setSeed(i % Episode.RUNS);
 			}
 		}
+	}
 
-        return holders.get(0);
+    /**
+     * Can all games be updated together? This needs a SplitUpdateGame and only neural networks.
+     * @param holders The holders that should play
+     * @return true if playInLockstep can be used
+     */
+	private boolean canPlayInLockstep(List<AIHolder> holders) {
+		if(!(game instanceof SplitUpdateGame)) return false;
+
+		for(AIHolder holder : holders) {
+			if(!(holder.ai instanceof NeuralNetwork)) return false;
+		}
+
+		return true;
+	}
+
+    /**
+     * Update the games of all AIs together, in chunks on the threads of the pool. See LockstepChunk.
+     * Every run of every AI has its own game, the same games as on the threads, so the fitness doesn't depend on how many threads there are.
+     * @param holders The holders that should play, their AIs should be neural networks
+     * @param deterministic Seed run r of every AI with r
+     */
+	private void playInLockstep(List<AIHolder> holders, boolean deterministic) {
+		int count = holders.size();
+		if(count == 0) return;
+
+		prepareRunGames(count, deterministic);
+
+		//More chunks than threads, so a thread that is done with short games (FlappyBird dies early) takes another chunk
+		int chunkCount = threadCount == 1 ? 1 : Math.min(count, threadCount * LOCKSTEP_CHUNKS_PER_THREAD);
+		while(lockstepChunks.size() < chunkCount) {
+			lockstepChunks.add(new LockstepChunk());
+		}
+
+		if(chunkCount == 1) {
+			lockstepChunks.get(0).play(holders, runGames.subList(0, count * Episode.RUNS));
+			return;
+		}
+
+		if(workers == null) {
+			workers = new ForkJoinPool(threadCount);
+		}
+
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(chunkCount);
+		for(int c = 0; c < chunkCount; c++) {
+			LockstepChunk chunk = lockstepChunks.get(c);
+			int from = count * c / chunkCount;
+			int to = count * (c+1) / chunkCount;
+			List<AIHolder> chunkHolders = holders.subList(from, to);
+			List<Game> chunkGames = runGames.subList(from * Episode.RUNS, to * Episode.RUNS);
+			tasks.add(workers.submit(() -> chunk.play(chunkHolders, chunkGames)));
+		}
+
+		//Wait for every chunk to finish
+		for(ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+	}
+
+    /**
+     * Create a new randomised network with the topology and precision of this pool
+     * @return The new network
+     */
+    private NeuralNetwork createNetwork() {
+	    return new NeuralNetwork(inputs, outputs, layers, precision).randomise(random);
     }
+
+    /**
+     * Get copies of the best AIs of the last generation, only call this from the thread that does the generations
+     * @param count How many AIs
+     * @return The AIs, the best first. Fewer than count when the generation was smaller
+     */
+	public List<BaseAI> getBest(int count) {
+		List<AIHolder> holders = lastGeneration;
+		List<BaseAI> best = new ArrayList<>(count);
+		for(int i = 0; i < count && i < holders.size(); i++) {
+			best.add(holders.get(i).ai.copy());
+		}
+		return best;
+	}
+
+    /**
+     * Add an AI from another pool, it takes the place of a child at the start of the next generation. Can be called from any thread
+     * @param ai The AI, it should not be changed anymore
+     */
+	public void addImmigrant(BaseAI ai) {
+		immigrants.add(ai);
+	}
+
+    /**
+     * Get how many generations are done, can be called from any thread
+     * @return The amount of generations
+     */
+	public int getGeneration() {
+		return generation;
+	}
+
+    /**
+     * Get the average fitness of the last generation, can be called from any thread
+     * @return The average fitness
+     */
+	public float getAverageFitness() {
+		return averageFitness;
+	}
+
+    /**
+     * Get the best AI so far, this never blocks and can be called from any thread
+     * @return The champion, or null when the first generation isn't done yet
+     */
+	public Champion getChampion() {
+		return champion;
+	}
 			
 	@Override
 	public float[] evaluate(float[] inputs) {
 		//Let the best AI we've had determine what to do
-		if(topAIHolder != null) return topAIHolder.ai.evaluate(inputs);
+		Champion current = champion;
+		if(current != null) return current.getAI().evaluate(inputs);
 
 		return new float[outputs];
 	}
 
-    //We need to implement these methods because we extend BaseAI
 	@Override
-	public void train(float[] inputs, float[] outputs) {
-	    //Training happens on another thread
-	}
+	public float[] evaluate(float[] inputs, float[] outputs) {
+		Champion current = champion;
+		if(current != null) return current.getAI().evaluate(inputs, outputs);
 
-	@Override
-	public void mutate() {}
+		Arrays.fill(outputs, 0);
+		return outputs;
+	}
 
 	@Override
-	public BaseAI crossOver(BaseAI ai) { return this; }
+	public int decide(float[] inputs) {
+		Champion current = champion;
+		if(current != null) return current.getAI().decide(inputs);
 
-}
+		return 0;
+	}
 
-/**
- * This class is used to run the game, and will thus run on another thread.
- */
-class TrainingThread implements Runnable {
+	@Override
+	public float[] evaluateBatch(float[] inputs, int batchSize) {
+		Champion current = champion;
+		if(current != null) return current.getAI().evaluateBatch(inputs, batchSize);
 
-	private final Game game;
-	private final AIHolder holder;
-	
-	TrainingThread(Game game, AIHolder holder) {
-		this.game = game;
-		this.holder = holder;
+		return new float[batchSize * outputs];
 	}
-	
-	@Override
-	public void run() {
 
-		float fitness = 0;
+	@Override
+	public float[] evaluateBatch(float[] inputs, int batchSize, float[] outputs) {
+		Champion current = champion;
+		if(current != null) return current.getAI().evaluateBatch(inputs, batchSize, outputs);
 
-		//We run the game 10 times
-        for(int run = 0; run < 10; run++) {
+		Arrays.fill(outputs, 0);
+		return outputs;
+	}
 
-            //Make sure the game is reset first
-			this.game.reset();
+    //We need to implement these methods because we extend BaseAI
+	@Override
+	public void train(float[] inputs, float[] outputs) {
+	    //Training happens on another thread
+	}
 
-			//Then we start the game
-			this.game.isRunning = true;
+	@Override
+	public void trainBatch(float[] inputs, float[] outputs, int batchSize, float learningRate) {
+		//Training happens on another thread
+	}
 
-			//We keep track of the updates so we can kill the game if it runs for too long
-			int updates = 0;
+	@Override
+	public void mutate() {}
 
-			//Keep running this until the game ends or we've done 36000 updates
-			do {
-			    //Update the game!
-				this.game.update(holder.ai);
+	@Override
+	public BaseAI crossOver(BaseAI ai) { return this; }
 
-				//Depending on the game we either just increase the fitness by a default value
-				if(this.game instanceof FlappyBird) {
-                    fitness+=0.01;
-                } else if (this.game instanceof Pong) {
-				    //Or we give more score the closer the bat is to the ball
-				    Pong pong = (Pong)this.game;
+	@Override
+	public BaseAI copy() { return this; }
 
-				    float yDelta = pong.player.y - pong.ball.y;
-				    float xDelta = pong.player.x - pong.ball.x;
+}
 
-				    float distanceToBall = yDelta*yDelta+xDelta*xDelta;
+/**
+ * Plays all runs of one AI for the steady state evolution and tells the pool when it is done.
+ */
+class SteadyStateTask extends RecursiveAction {
 
-				    if(distanceToBall<5f) {
-				        fitness += 100;
-                    } else {
-                        fitness += (5 / (distanceToBall * distanceToBall));
-                    }
-                }
+	private static final long serialVersionUID = 1L;
 
-                updates++;
+	private final Pool pool;
+	private final AIHolder holder;
+	private final List<Game> games;
 
-			} while (this.game.isRunning&&updates<36000);
+	SteadyStateTask(Pool pool, AIHolder holder, List<Game> games) {
+		this.pool = pool;
+		this.holder = holder;
+		this.games = games;
+	}
 
-			//FlappyBird gets 100 points for every point it got. Other games get 500 points if they won the game
-			if(this.game instanceof FlappyBird) {
-                    FlappyBird flappyBird = (FlappyBird)game;
-                    fitness+=flappyBird.bird.points*100;
-            } else {
-                if (this.game.playerWon()) {
-                    fitness+=500;
-                }
-            }
+	@Override
+	protected void compute() {
+		boolean played = false;
+		try {
+			new EpisodeTask(holder, games).invoke();
+			played = true;
+		} finally {
+			//Also when the game crashed, otherwise the pool keeps waiting for this AI
+			pool.finishedPlaying(holder, games, played);
 		}
-
-		holder.setFitness( fitness);
 	}
-	
-}
\ No newline at end of file
+}
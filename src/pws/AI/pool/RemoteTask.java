@@ -0,0 +1,107 @@
+package pws.AI.pool;
+
+import pws.games.Game;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plays one batch of networks for a RemoteWorker and sends the fitness to the coordinator.
+ * When the games crash the coordinator is told the networks didn't play, so it can give them to another worker.
+ */
+class RemoteTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final RemoteWorker worker;
+	private final int[] ids;
+	private final List<AIHolder> holders;
+	private final DataOutputStream out;
+
+	RemoteTask(RemoteWorker worker, int[] ids, List<AIHolder> holders, DataOutputStream out) {
+		this.worker = worker;
+		this.ids = ids;
+		this.holders = holders;
+		this.out = out;
+	}
+
+	@Override
+	protected void compute() {
+		boolean played = false;
+		try {
+			if(worker.canPlayInLockstep()) {
+				playInLockstep();
+			} else {
+				playOnThreads();
+			}
+			played = true;
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			System.err.println("Could not play the networks of the coordinator!");
+		} finally {
+			//Also when the games crashed, otherwise the coordinator keeps waiting for these networks
+			send(played);
+		}
+	}
+
+    /**
+     * Play the batch in lockstep, with the same games as Pool.playInLockstep
+     */
+	private void playInLockstep() {
+		List<List<Game>> runGames = new ArrayList<>(holders.size());
+		List<Game> games = new ArrayList<>(holders.size() * Episode.RUNS);
+		for(int i = 0; i < holders.size(); i++) {
+			runGames.add(worker.takeRunGames());
+			games.addAll(runGames.get(i));
+		}
+
+		LockstepChunk chunk = worker.takeChunk();
+		chunk.play(holders, games);
+
+		worker.returnChunk(chunk);
+		for(List<Game> gamesOfHolder : runGames) {
+			worker.returnRunGames(gamesOfHolder);
+		}
+	}
+
+    /**
+     * Play every network of the batch with its own EpisodeTask, like Pool.playOnThreads
+     */
+	private void playOnThreads() {
+		List<EpisodeTask> tasks = new ArrayList<>(holders.size());
+		List<List<Game>> runGames = new ArrayList<>(holders.size());
+		for(AIHolder holder : holders) {
+			List<Game> games = worker.takeRunGames();
+			runGames.add(games);
+			tasks.add(new EpisodeTask(holder, games));
+		}
+
+		invokeAll(tasks);
+
+		for(List<Game> games : runGames) {
+			worker.returnRunGames(games);
+		}
+	}
+
+    /**
+     * Send a frame for every network: the id, whether it played and the fitness
+     * @param played false when the games crashed, then the fitness is 0
+     */
+	private void send(boolean played) {
+		try {
+			synchronized(out) {
+				for(int i = 0; i < ids.length; i++) {
+					out.writeInt(ids[i]);
+					out.writeBoolean(played);
+					out.writeFloat(played ? holders.get(i).getFitness() : 0);
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			//The connection is gone, the coordinator gives these networks to another worker
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package pws.AI.pool;
+
+import pws.AI.NeuralNetwork.Checkpoint;
+import pws.games.Game;
+import pws.games.SplitUpdateGame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Plays the games for a {@link Coordinator}, usually in another JVM.
+ * Every batch of networks it gets is played on its own threads in the same way as Pool plays them, and the fitness is sent back as soon as the batch is done.
+ * SplitUpdateGames play a batch in lockstep on one thread, so a worker with more threads than batches in flight should get a bigger maxInFlight from the coordinator.
+ * {@link #startLocal(Game, int, int)} runs a worker in this JVM, so a coordinator can be used without starting other processes.
+ */
+public class RemoteWorker {
+
+	private final Game game;
+	private final ForkJoinPool workers;
+
+	//The games of the networks that are done, so the next network can use them
+	private final ConcurrentLinkedQueue<List<Game>> freeRunGames = new ConcurrentLinkedQueue<>();
+
+	//The chunks that are not playing a batch, every batch that is played in lockstep takes one
+	private final ConcurrentLinkedQueue<LockstepChunk> freeChunks = new ConcurrentLinkedQueue<>();
+
+	private volatile Socket socket;
+
+    /**
+     * Create a worker
+     * @param game The game to play, the same game as the pool of the coordinator
+     * @param threadCount How many networks are played at the same time
+     */
+	public RemoteWorker(Game game, int threadCount) {
+		this.game = game;
+		this.workers = new ForkJoinPool(threadCount);
+	}
+
+    /**
+     * Start a worker in this JVM that connects to a coordinator on this machine
+     * @param game The game to play
+     * @param threadCount How many networks are played at the same time
+     * @param port The port of the coordinator
+     * @return The worker, it stops when the coordinator closes or when it is closed
+     */
+	public static RemoteWorker startLocal(Game game, int threadCount, int port) {
+		RemoteWorker worker = new RemoteWorker(game, threadCount);
+
+		Thread thread = new Thread(() -> {
+			try {
+				worker.run(InetAddress.getLoopbackAddress().getHostAddress(), port);
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.err.println("Local worker stopped!");
+			}
+		}, "Local worker");
+		thread.setDaemon(true);
+		thread.start();
+
+		return worker;
+	}
+
+    /**
+     * Connect to the coordinator and play the networks it sends until it disconnects
+     * @param host The host of the coordinator
+     * @param port The port of the coordinator
+     * @throws IOException When the connection failed
+     */
+	public void run(String host, int port) throws IOException {
+		try(Socket socket = new Socket(host, port)) {
+			socket.setTcpNoDelay(true);
+			this.socket = socket;
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			//noinspection InfiniteLoopStatement
+			while(true) {
+				int count = in.readInt();
+
+				int[] ids = new int[count];
+				List<AIHolder> holders = new ArrayList<>(count);
+				for(int i = 0; i < count; i++) {
+					ids[i] = in.readInt();
+					byte[] network = new byte[in.readInt()];
+					in.readFully(network);
+
+					holders.add(new AIHolder(Checkpoint.fromBytes(network)));
+				}
+
+				workers.execute(new RemoteTask(this, ids, holders, out));
+			}
+		} catch (EOFException | RejectedExecutionException e) {
+			//The coordinator is done, or the worker is closed
+		} catch (IOException e) {
+			//Closing the worker closes the socket, that isn't an error
+			if(this.socket == null || !this.socket.isClosed()) throw e;
+		} finally {
+			this.socket = null;
+		}
+	}
+
+    /**
+     * Get the games for one network. Used games get their seed back, so the fitness doesn't depend on which worker played the network or in which order
+     * @return RUNS games
+     */
+	List<Game> takeRunGames() {
+		List<Game> games = freeRunGames.poll();
+		if(games == null) return Episode.createRunGames(game);
+
+		for(int r = 0; r < games.size(); r++) {
+			games.get(r).setSeed(r);
+		}
+		return games;
+	}
+
+	void returnRunGames(List<Game> games) {
+		freeRunGames.add(games);
+	}
+
+    /**
+     * Can the networks be played in lockstep? The networks from the coordinator are always neural networks
+     * @return true if the game is a SplitUpdateGame
+     */
+	boolean canPlayInLockstep() {
+		return game instanceof SplitUpdateGame;
+	}
+
+	LockstepChunk takeChunk() {
+		LockstepChunk chunk = freeChunks.poll();
+		return chunk == null ? new LockstepChunk() : chunk;
+	}
+
+	void returnChunk(LockstepChunk chunk) {
+		freeChunks.add(chunk);
+	}
+
+    /**
+     * Disconnect from the coordinator and stop the threads, the coordinator gives the networks this worker didn't finish to the other workers.
+     * The worker can't be used again
+     */
+	public void close() {
+		Socket current = socket;
+		if(current != null) {
+			try {
+				current.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		//Interrupt the games that are still playing, their results can't be sent anymore
+		workers.shutdownNow();
+	}
+}
@@ -0,0 +1,54 @@
+package pws.AI.pool;
+
+import pws.games.Game;
+import pws.games.SplitUpdateGame;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays one run of the game, this is what the threads of the pool do.
+ */
+class RunTask extends RecursiveTask<Float> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Game game;
+	private final AIHolder holder;
+
+	RunTask(Game game, AIHolder holder) {
+		this.game = game;
+		this.holder = holder;
+	}
+
+	@Override
+	protected Float compute() {
+		Episode episode = new Episode(game, holder, 1);
+		episode.start();
+
+		if(game instanceof SplitUpdateGame) {
+			SplitUpdateGame splitGame = (SplitUpdateGame) game;
+
+			//Play the same way as in lockstep. update(BaseAI) is made for the window, Pong only lets the AI play there when AI mode is on
+			float[] inputs = new float[game.getInputSize()];
+			float[] outputs = new float[game.getOutputSize()];
+
+			//The game only uses the highest output, so the AI only has to decide which one that is.
+			//The decision goes to the game as a one-hot output, which picks the same output again
+			int decision = 0;
+			do {
+				splitGame.getAIInputs(inputs, 0);
+				outputs[decision] = 0;
+				decision = holder.ai.decide(inputs);
+				outputs[decision] = 1;
+				splitGame.update(outputs, 0);
+			} while(episode.afterUpdate());
+		} else {
+			//Update the game until the run is done, the episode keeps track of the fitness
+			do {
+				this.game.update(holder.ai);
+			} while(episode.afterUpdate());
+		}
+
+		return episode.getFitness();
+	}
+}
@@ -0,0 +1,104 @@
+package pws.AI.pool;
+
+import java.util.Random;
+
+/**
+ * How the pool chooses the parents of a child.
+ * A selection is prepared once for the fitness of every generation, after that every parent can be chosen quickly:
+ *     - ROULETTE chooses in O(log n) with a binary search in the sums of the fitness
+ *     - A tournament chooses in O(size), it doesn't depend on the size of the population
+ */
+public abstract class Selection {
+
+	//Fitness proportional, the chance an AI is chosen is its fitness divided by the total fitness. This is what the pool always did
+	public static final Selection ROULETTE = new Roulette();
+
+    /**
+     * Tournament selection, size random AIs are chosen and the best of them is the parent.
+     * Only the order of the fitness matters, a bigger tournament gives the best AIs more children.
+     * @param size How many AIs are in a tournament, at least 1
+     * @return The selection
+     */
+	public static Selection tournament(int size) {
+		if(size < 1) {
+			throw new IllegalArgumentException("Invalid tournament size! It should be at least 1, got " + size);
+		}
+
+		return new Tournament(size);
+	}
+
+    /**
+     * Prepare choosing from a population
+     * @param fitness The fitness of every AI, it should not change while the selector is used
+     * @return The selector that chooses the AIs
+     */
+	public abstract Selector prepare(float[] fitness);
+
+    /**
+     * Chooses AIs from the population a selection was prepared for
+     */
+	public interface Selector {
+
+        /**
+         * Choose an AI
+         * @param random The random object to use
+         * @return The index of the AI
+         */
+		int select(Random random);
+	}
+
+	private static final class Roulette extends Selection {
+
+		@Override
+		public Selector prepare(float[] fitness) {
+			//sums[i] is the total fitness of AI 0 to i
+			double[] sums = new double[fitness.length];
+			double total = 0;
+			for(int i = 0; i < fitness.length; i++) {
+				total += fitness[i];
+				sums[i] = total;
+			}
+
+			double totalFitness = total;
+			return (random) -> {
+				double target = random.nextDouble() * totalFitness;
+
+				//Find the first AI where the sum is at least the target, AIs without fitness are never chosen
+				int low = 0;
+				int high = sums.length - 1;
+				while(low < high) {
+					int middle = (low + high) >>> 1;
+					if(sums[middle] < target) {
+						low = middle + 1;
+					} else {
+						high = middle;
+					}
+				}
+
+				return low;
+			};
+		}
+	}
+
+	private static final class Tournament extends Selection {
+
+		private final int size;
+
+		Tournament(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public Selector prepare(float[] fitness) {
+			return (random) -> {
+				int best = random.nextInt(fitness.length);
+				for(int i = 1; i < size; i++) {
+					int competitor = random.nextInt(fitness.length);
+					if(fitness[competitor] > fitness[best]) best = competitor;
+				}
+
+				return best;
+			};
+		}
+	}
+}
@@ -10,12 +10,29 @@ import java.awt.event.KeyListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import javax.swing.JFrame;
 
 import pws.AI.BaseAI;
+import pws.AI.NeuralNetwork.Activation;
+import pws.AI.NeuralNetwork.Checkpoint;
+import pws.AI.NeuralNetwork.CompiledNetwork;
+import pws.AI.NeuralNetwork.HogwildTrainer;
 import pws.AI.NeuralNetwork.NeuralNetwork;
+import pws.AI.NeuralNetwork.Optimizer;
+import pws.AI.NeuralNetwork.Precision;
+import pws.AI.NeuralNetwork.Pruner;
+import pws.AI.NeuralNetwork.QuantizedNetwork;
+import pws.AI.NeuralNetwork.SparseNetwork;
+import pws.AI.pool.Coordinator;
+import pws.AI.pool.Islands;
 import pws.AI.pool.Pool;
+import pws.AI.pool.RemoteWorker;
+import pws.AI.pool.Selection;
 import pws.games.Game;
 import pws.games.XOR.XOR;
 import pws.games.flappybird.FlappyBird;
@@ -37,6 +54,63 @@ public class Main extends Canvas implements Runnable, KeyListener {
 	
 	private final BaseAI ai;
 
+	//How many data points are trained on every update, and how many of those are in one batch
+	private static final int SAMPLES_PER_UPDATE = 100;
+	private static int batchSize = 1;
+	private static float learningRate = 1;
+	private static boolean learningRateSet = false;
+
+	//When this is bigger than 0 the neural network is trained on this many threads instead of in update
+	private static int trainThreads = 0;
+	private HogwildTrainer trainer;
+
+	//The amount of AIs in the pool, with islands they are split over the islands
+	private static int populationCount = 2000;
+
+	//How many threads the pool plays the games on, 0 for a thread for every processor
+	private static int poolThreads = 0;
+
+	//Let the pool evolve without generations
+	private static boolean steadyState = false;
+
+	//Seed the games of the pool before every AI plays, so the AIs that didn't change don't have to play again
+	private static boolean deterministic = false;
+
+	//How the pool chooses the parents, tournamentSize is only used by a tournament
+	private static String selectionName = "roulette";
+	private static int tournamentSize = 3;
+
+	//The pool is split in this many islands that share their best AIs every migrationInterval generations
+	private static int islandCount = 1;
+	private static int migrationInterval = 10;
+	private static int migrants = 2;
+	private static Islands.Topology topology = Islands.Topology.RING;
+
+	//The port other processes connect to to play the games of the pool, 0 to play them in this process. localWorkers are started in this process
+	private static int coordinatorPort = 0;
+	private static int localWorkers = 0;
+
+	//host:port of the coordinator this process plays the games for, null to run normally
+	private static String workerAddress;
+
+	//The file the neural network or the best network of the pool is loaded from and saved to, null when nothing is saved
+	private static Path checkpoint;
+
+	//Play with an int8 version of the neural network, it doesn't learn anymore
+	private static boolean quantize = false;
+
+	//Play with the neural network compiled to its own class, it doesn't learn anymore
+	private static boolean compile = false;
+
+	//Play with a pruned version of the neural network with this part of the weights removed, 0 to not prune
+	private static double pruneSparsity = 0;
+	private static final int PRUNE_ROUNDS = 5;
+	private static final int PRUNE_SAMPLES_PER_ROUND = 10000;
+
+	//Reused every update to hold the batch
+	private final float[] batchInputs;
+	private final float[] batchOutputs;
+
     /**
      * Arguments can be:
      * game=one of following values xor, flappy_bird, flappybird and pong (default=pong)
@@ -45,6 +119,30 @@ public class Main extends Canvas implements Runnable, KeyListener {
      * ai with=one of following values pool, ga, geneticalgorithm, nn, neuralnetwork (default=nn)
      * ai_type=same as ai
      * layers=an list of numbers in the following format: a,b,c (Numbers with a , as divider)
+     * batch=positive integer, how many data points are used for one step of gradient descent (default=1)
+     * learning_rate=positive number, how big the steps of gradient descent are when batch is bigger than 1 or train_threads is used (default=1)
+     * precision=double or float, how the neural networks store their weights and biases (default=double)
+     * activation=sigmoid, tanh, relu, leaky_relu, linear, fast_sigmoid or fast_tanh, the activation function of the hidden layers of the neural network (default=sigmoid)
+     * output_activation=same values as activation, the activation function of the output layer of the neural network (default=sigmoid)
+     * optimizer=sgd, momentum, rmsprop or adam, how the neural network uses the gradients (default=plain gradient descent)
+     * train_threads=positive integer, train the neural network on this many threads next to the game, can't be used with optimizer (default=0, train in update)
+     * population=positive integer, how many AIs the pool has, with islands they are split over the islands (default=2000)
+     * pool_threads=positive integer, how many threads the pool plays the games on (default=the amount of processors)
+     * steady_state=true or false, let the pool evolve without generations, a new AI starts playing as soon as another one is done (default=false)
+     * deterministic=true or false, every AI of the pool plays the same games, so an AI that didn't change keeps its fitness without playing again (default=false)
+     * selection=roulette or tournament, how the pool chooses the parents of a child (default=roulette)
+     * tournament_size=positive integer, how many AIs are in a tournament when selection=tournament (default=3)
+     * islands=positive integer, split the pool in this many islands that evolve on their own thread, can't be used with pool_threads, steady_state, coordinator or checkpoint (default=1)
+     * migration_interval=positive integer, every how many generations an island sends its best AIs to another island (default=10)
+     * migrants=positive integer, how many AIs an island sends (default=2)
+     * topology=ring or random, where an island sends its AIs: the next island or a random island (default=ring)
+     * coordinator=a port, let the processes that connect to this port play the games of the pool (default=play the games in this process)
+     * local_workers=positive integer, how many workers are started in this process when coordinator is used (default=0)
+     * worker=host:port, don't open a window but play the games for the coordinator on that address until it stops
+     * checkpoint=a file, the neural network (or the best network of the pool) is loaded from it when it exists and saved to it when the program stops
+     * quantize=true or false, play with an int8 version of the neural network and print how much accuracy it lost on the training data (default=false)
+     * compile=true or false, play with the neural network compiled to a class with the weights as constants (default=false)
+     * prune=number between 0 and 1, the part of the weights to remove from the neural network before playing with it, prints the accuracy and speed for a few sparsities (default=0)
      * @param args The programs arguments as described above
      */
 	public static void main(String[] args) {
@@ -53,6 +151,10 @@ public class Main extends Canvas implements Runnable, KeyListener {
 		String gameName = "";
 		String aiType = "";
 		int[] layers = new int[] {5,5};
+		Precision precision = Precision.DOUBLE;
+		Activation hiddenActivation = Activation.SIGMOID;
+		Activation outputActivation = Activation.SIGMOID;
+		String optimizerName = "";
 
 		for(String s : args) {
 
@@ -93,11 +195,117 @@ public class Main extends Canvas implements Runnable, KeyListener {
 					layers[i] = Integer.parseUnsignedInt(layerValues[i]);
 				}
 				
+				break;
+            //Mini-batch gradient descent settings
+			case "batch":
+				batchSize = Integer.parseUnsignedInt(argParts[1]);
+				break;
+			case "learning_rate":
+				learningRate = Float.parseFloat(argParts[1]);
+				learningRateSet = true;
+				break;
+            //Store the networks as doubles or floats
+			case "precision":
+				precision = Precision.valueOf(argParts[1].toUpperCase());
+				break;
+            //The activation functions of the neural network
+			case "activation":
+				hiddenActivation = Activation.valueOf(argParts[1].toUpperCase());
+				break;
+			case "output_activation":
+				outputActivation = Activation.valueOf(argParts[1].toUpperCase());
+				break;
+            //How the gradients are used to change the network
+			case "optimizer":
+				optimizerName = argParts[1];
+				break;
+            //Train on multiple threads instead of in update
+			case "train_threads":
+				trainThreads = Integer.parseUnsignedInt(argParts[1]);
+				break;
+            //The size of the pool
+			case "population":
+				populationCount = Integer.parseUnsignedInt(argParts[1]);
+				break;
+            //Play the games of the pool on this many threads
+			case "pool_threads":
+				poolThreads = Integer.parseUnsignedInt(argParts[1]);
+				break;
+            //Evolve the pool without generations
+			case "steady_state":
+				steadyState = Boolean.parseBoolean(argParts[1]);
+				break;
+            //Seed the games of the pool
+			case "deterministic":
+				deterministic = Boolean.parseBoolean(argParts[1]);
+				break;
+            //How the parents are chosen
+			case "selection":
+				selectionName = argParts[1];
+				break;
+			case "tournament_size":
+				tournamentSize = Integer.parseUnsignedInt(argParts[1]);
+				break;
+            //Split the pool in islands
+			case "islands":
+				islandCount = Integer.parseUnsignedInt(argParts[1]);
+				break;
+			case "migration_interval":
+				migrationInterval = Integer.parseUnsignedInt(argParts[1]);
+				break;
+			case "migrants":
+				migrants = Integer.parseUnsignedInt(argParts[1]);
+				break;
+			case "topology":
+				topology = Islands.Topology.valueOf(argParts[1].toUpperCase());
+				break;
+            //Play the games of the pool in other processes
+			case "coordinator":
+				coordinatorPort = Integer.parseUnsignedInt(argParts[1]);
+				break;
+			case "local_workers":
+				localWorkers = Integer.parseUnsignedInt(argParts[1]);
+				break;
+			case "worker":
+				workerAddress = argParts[1];
+				break;
+            //Where the network is saved
+			case "checkpoint":
+				checkpoint = Paths.get(argParts[1]);
+				break;
+            //Only use the network for inference, with int8 weights
+			case "quantize":
+				quantize = Boolean.parseBoolean(argParts[1]);
+				break;
+            //Generate a class for the network
+			case "compile":
+				compile = Boolean.parseBoolean(argParts[1]);
+				break;
+            //Remove the smallest weights and only use the network for inference
+			case "prune":
+				pruneSparsity = Double.parseDouble(argParts[1]);
 				break;
 			}
 				
 		}
 
+		//The threads of the HogwildTrainer would all change the state of the optimizer at the same time
+		if(trainThreads > 0 && !optimizerName.isEmpty()) {
+			throw new IllegalArgumentException("Invalid arguments! train_threads can't be used together with optimizer");
+		}
+
+		//Every island is a pool with its own thread, these settings only work for one pool
+		if(islandCount > 1) {
+			String unsupported = poolThreads > 0 ? "pool_threads" : steadyState ? "steady_state" : coordinatorPort > 0 ? "coordinator" : checkpoint != null ? "checkpoint" : null;
+			if(unsupported != null) {
+				throw new IllegalArgumentException("Invalid arguments! islands can't be used together with " + unsupported);
+			}
+
+			if(populationCount < islandCount) {
+				throw new IllegalArgumentException("Invalid arguments! Every island needs at least one AI, got a population of " + populationCount + " for " + islandCount + " islands");
+			}
+		}
+
 		Game game;
 		BaseAI ai;
 
@@ -115,16 +323,70 @@ public class Main extends Canvas implements Runnable, KeyListener {
 			break;
 		}
 		
+		//A worker only plays games for the coordinator, it doesn't need a window
+		if(workerAddress != null) {
+			runWorker(game);
+			return;
+		}
+
 		switch(aiType.toLowerCase()) {
 		case "pool":
 		case "ga":
 		case "geneticalgorithm":
-			ai = new Pool(layers, 2000, game);
+			if(islandCount > 1) {
+				//The population is split over the islands
+				Islands islands = new Islands(layers, islandCount, populationCount / islandCount, game, precision);
+				islands.setMigration(migrationInterval, migrants, topology);
+				for(Pool island : islands.getIslands()) island.setDeterministicEvaluation(deterministic);
+				if(selectionName.equalsIgnoreCase("tournament")) {
+					for(Pool island : islands.getIslands()) island.setSelection(Selection.tournament(tournamentSize));
+				}
+				islands.start();
+				ai = islands;
+				break;
+			}
+
+			Pool pool = new Pool(layers, populationCount, game, precision);
+			if(checkpoint != null) pool.setCheckpoint(checkpoint);
+			if(poolThreads > 0) pool.setThreadCount(poolThreads);
+			pool.setSteadyState(steadyState);
+			pool.setDeterministicEvaluation(deterministic);
+			if(selectionName.equalsIgnoreCase("tournament")) pool.setSelection(Selection.tournament(tournamentSize));
+			if(coordinatorPort > 0) startCoordinator(pool, game);
+			pool.start();
+			ai = pool;
 			break;
 		case "nn":
 		case "neuralnetwork":
 		default:
-			ai = new NeuralNetwork(game.getInputSize(), game.getOutputSize(), layers).randomise();
+			NeuralNetwork network = loadCheckpoint(game);
+			if(network == null) {
+				network = new NeuralNetwork(game.getInputSize(), game.getOutputSize(), layers, precision).randomise()
+						.setActivations(hiddenActivation, outputActivation)
+						.setOptimizer(createOptimizer(optimizerName));
+			}
+
+			if(quantize) {
+				//The training data is used to calibrate the quantization and to see how much accuracy is lost
+				QuantizedNetwork quantized = QuantizedNetwork.quantize(network, game.trainingData);
+				System.out.println(quantized.compare(network, game.trainingData));
+				ai = quantized;
+			} else if(compile) {
+				CompiledNetwork compiled = CompiledNetwork.compile(network);
+				if(!compiled.isGenerated()) System.out.println("The network is too big to compile, the normal network is used");
+				ai = compiled;
+			} else if(pruneSparsity > 0) {
+				//Show how the accuracy and speed change on the way to the sparsity, then prune the network itself
+				double[] steps = new double[] {pruneSparsity / 4, pruneSparsity / 2, pruneSparsity * 3 / 4};
+				Pruner.sweep(network, game.trainingData, steps, PRUNE_ROUNDS, PRUNE_SAMPLES_PER_ROUND).forEach(System.out::println);
+
+				NeuralNetwork dense = network.copy();
+				SparseNetwork sparse = new Pruner(network).pruneAndRetrain(game.trainingData, pruneSparsity, PRUNE_ROUNDS, PRUNE_SAMPLES_PER_ROUND).toSparse();
+				System.out.println(sparse.compare(dense, game.trainingData));
+				ai = sparse;
+			} else {
+				ai = network;
+			}
 			break;
 		}
 
@@ -159,6 +421,108 @@ public class Main extends Canvas implements Runnable, KeyListener {
 		main.start();
 	}
 
+    /**
+     * Play the games for the coordinator at workerAddress until it stops
+     * @param game The game to play, the same game as the coordinator uses
+     */
+	private static void runWorker(Game game) {
+		String[] address = workerAddress.split(":");
+		if(address.length != 2) {
+			throw new IllegalArgumentException("Invalid worker address! It should be host:port, got " + workerAddress);
+		}
+
+		int threads = poolThreads > 0 ? poolThreads : Runtime.getRuntime().availableProcessors();
+		RemoteWorker worker = new RemoteWorker(game, threads);
+		try {
+			worker.run(address[0], Integer.parseUnsignedInt(address[1]));
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.err.println("Could not connect to coordinator " + workerAddress + "!");
+		}
+		System.exit(0);
+	}
+
+    /**
+     * Let the workers that connect to coordinatorPort play the games of the pool
+     * @param pool The pool
+     * @param game The game the local workers play
+     */
+	private static void startCoordinator(Pool pool, Game game) {
+		try {
+			Coordinator coordinator = new Coordinator(coordinatorPort);
+			for(int i = 0; i < localWorkers; i++) {
+				RemoteWorker.startLocal(game.newInstance(), Math.max(1, Runtime.getRuntime().availableProcessors() / localWorkers), coordinatorPort);
+			}
+			pool.setCoordinator(coordinator);
+			System.out.println("Waiting for workers on port " + coordinator.getPort());
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.err.println("Could not start coordinator on port " + coordinatorPort + "!");
+		}
+	}
+
+    /**
+     * Load the neural network from the checkpoint, the layers, activation functions and optimizer of the checkpoint are used
+     * @param game The game the network should play
+     * @return The network, or null if there is no checkpoint or it can't be used for the game
+     */
+	private static NeuralNetwork loadCheckpoint(Game game) {
+		if(checkpoint == null || !Files.exists(checkpoint)) return null;
+
+		try {
+			NeuralNetwork network = Checkpoint.load(checkpoint);
+			if(network.evaluate(new float[game.getInputSize()]).length == game.getOutputSize()) {
+				System.out.println("Loaded checkpoint " + checkpoint.toAbsolutePath());
+				return network;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			//The network has another amount of inputs than the game
+		}
+
+		System.err.println("Could not load checkpoint " + checkpoint.toAbsolutePath() + "!");
+		return null;
+	}
+
+    /**
+     * Save the neural network or the best network of the pool to the checkpoint
+     */
+	private void saveCheckpoint() {
+		if(checkpoint == null) return;
+
+		if(ai instanceof Pool) {
+			((Pool) ai).saveCheckpoint();
+		} else if(ai instanceof NeuralNetwork) {
+			try {
+				Checkpoint.save((NeuralNetwork) ai, checkpoint);
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.err.println("Could not save checkpoint " + checkpoint.toAbsolutePath() + "!");
+			}
+		}
+	}
+
+    /**
+     * Create the optimizer with the given name. When no learning rate was given every optimizer uses its usual learning rate
+     * @param name sgd, momentum, rmsprop or adam
+     * @return The optimizer, or null when no optimizer should be used
+     */
+	private static Optimizer createOptimizer(String name) {
+		switch(name.toLowerCase()) {
+		case "sgd":
+			return Optimizer.sgd(learningRateSet ? learningRate : 1);
+		case "momentum":
+			return Optimizer.momentum(learningRateSet ? learningRate : 0.1, 0.9);
+		case "rmsprop":
+			return Optimizer.rmsProp(learningRateSet ? learningRate : 0.001, 0.9);
+		case "adam":
+			return Optimizer.adam(learningRateSet ? learningRate : 0.001, 0.9, 0.999);
+		default:
+			return null;
+		}
+	}
+
     /**
      * The main class is the main controller for everything.
      * From here the update and render methods are called.
@@ -177,12 +541,21 @@ public class Main extends Canvas implements Runnable, KeyListener {
 		this.addKeyListener(runningGame);
 		
 		this.ai = ai;
+
+		this.batchInputs = new float[batchSize * game.getInputSize()];
+		this.batchOutputs = new float[batchSize * game.getOutputSize()];
 	}
 
     /**
      * Starts the game thread
      */
 	private synchronized void start() {
+		//The neural network can be trained on other threads, this doesn't work for the genetic algorithm because it trains itself
+		if(trainThreads > 0 && ai instanceof NeuralNetwork) {
+			trainer = new HogwildTrainer((NeuralNetwork) ai, runningGame.trainingData, trainThreads, learningRate);
+			trainer.start();
+		}
+
 		running = true;
 		thread = new Thread(this);
 		thread.start();
@@ -193,7 +566,9 @@ public class Main extends Canvas implements Runnable, KeyListener {
      */
 	private synchronized void stop() {
 		running = false;
+		if(trainer != null) trainer.stop();
 		runningGame.save();
+		saveCheckpoint();
 		try {
 			thread.join();
 		} catch (InterruptedException e) {
@@ -267,8 +642,16 @@ public class Main extends Canvas implements Runnable, KeyListener {
 	private void update() {
 		runningGame.update(ai);
 
-		for(int i = 0; i < 100; i++) {
-			if(runningGame.trainingData.hasData()) {
+		if(!runningGame.trainingData.hasData() || (trainer != null && trainer.isRunning())) return;
+
+		if(batchSize > 1) {
+		    //Train on the same amount of data points, but in batches
+			for(int i = 0; i < Math.max(1, SAMPLES_PER_UPDATE / batchSize); i++) {
+				runningGame.trainingData.getRandomBatch(batchSize, batchInputs, batchOutputs);
+				ai.trainBatch(batchInputs, batchOutputs, batchSize, learningRate);
+			}
+		} else {
+			for(int i = 0; i < SAMPLES_PER_UPDATE; i++) {
 				InputOutputPair pair = runningGame.trainingData.getRandomDataPoint();
 				ai.train(pair.inputs, pair.outputs);
 			}
@@ -16,10 +16,23 @@ public class Utils {
 	 * @return the index with the highest value
 	 */
 	public static int oneHot(float[] array) {
+		return oneHot(array, 0, array.length);
+	}
+
+	/**
+	 * Returns the index for which a part of the array has the highest value, the index is relative to offset.
+	 * Used when the outputs of multiple AIs are stored in one array.
+	 *
+	 * @param array Array to get the index from
+	 * @param offset The index of the first value to look at
+	 * @param length The amount of values to look at
+	 * @return the index with the highest value
+	 */
+	public static int oneHot(float[] array, int offset, int length) {
 		int maxIndex = 0;
 		
-		for(int i = 0; i < array.length; i++) {
-			if(array[i]>array[maxIndex]) {
+		for(int i = 0; i < length; i++) {
+			if(array[offset + i]>array[offset + maxIndex]) {
 				maxIndex = i;
 			}
 		}
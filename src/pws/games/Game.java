@@ -28,6 +28,14 @@ public abstract class Game implements KeyListener {
 		//Not every game has to reset stuff (XOR for example)
 	}
 
+	/**
+	 * Set the seed of the random numbers of the game, games with the same seed get the same random numbers
+	 * @param seed The seed
+	 */
+	public void setSeed(long seed) {
+		//Not every game uses random numbers (XOR for example)
+	}
+
 	public boolean playerWon() {
 		return true;
 	}
@@ -0,0 +1,23 @@
+package pws.games;
+
+/**
+ * A game where the update of the AI can be split in two halves: what the AI sees and what it decided to do.
+ * A lot of these games can be updated together and the AIs of all of them evaluated at once.
+ * Not every game can be split (XOR for example), those only have update(BaseAI).
+ */
+public interface SplitUpdateGame {
+
+	/**
+	 * Write what the AI sees this update to inputs, the first half of an update where the AI controls the player.
+	 * @param inputs The array to write to
+	 * @param offset The index to write the first input to, getInputSize() values are written
+	 */
+	void getAIInputs(float[] inputs, int offset);
+
+	/**
+	 * Update the game with what the AI decided to do, the second half of an update where the AI controls the player.
+	 * @param aiOutputs The outputs of the AI for the inputs of getAIInputs
+	 * @param offset The index of the first output, getOutputSize() values are read
+	 */
+	void update(float[] aiOutputs, int offset);
+}
@@ -14,12 +14,25 @@ public class XOR extends Game {
 
 	private final float[][] values;
 
+	//Every point of the grid after each other, so the whole grid can be evaluated as one batch
+	private final float[] gridInputs;
+	private final float[] gridOutputs;
+
 	public XOR(int resolution) {
 		super();
 
 		this.resolution = resolution;
 		values = new float[resolution][resolution];
 
+		gridInputs = new float[resolution * resolution * 2];
+		gridOutputs = new float[resolution * resolution];
+		for(int x = 0; x < resolution; x++) {
+			for(int y = 0; y < resolution; y++) {
+				gridInputs[(x * resolution + y) * 2] = x/(float)resolution;
+				gridInputs[(x * resolution + y) * 2 + 1] = y/(float)resolution;
+			}
+		}
+
 		for(int i = 0; i <= 1; i++) {
 			for(int j = 0; j <= 1; j++) {
 				trainingData.addData(new float[] { i,j }, new float[] { i^j });
@@ -29,9 +42,11 @@ public class XOR extends Game {
 
 	@Override
 	public void update(BaseAI ai) {
+		ai.evaluateBatch(gridInputs, resolution * resolution, gridOutputs);
+
 		for(int x = 0; x < resolution; x++) {
 			for(int y = 0; y < resolution; y++) {
-				values[x][y] = ai.evaluate(new float[] {x/(float)resolution, y/(float)resolution})[0]; 
+				values[x][y] = gridOutputs[x * resolution + y];
 			}
 		}
 		isRunning = false;
@@ -11,11 +11,12 @@ import java.util.Random;
 import pws.Utils;
 import pws.AI.BaseAI;
 import pws.games.Game;
+import pws.games.SplitUpdateGame;
 import pws.trainingData.InputOutputPair;
 import pws.trainingData.TrainingData;
 
 @SuppressWarnings("ConstantConditions")
-public class FlappyBird extends Game {
+public class FlappyBird extends Game implements SplitUpdateGame {
 
 	static final int BIRD_SIZE = 25;
 	static final int HOLE_SIZE = 300;
@@ -41,6 +42,9 @@ public class FlappyBird extends Game {
 
 	private boolean useAI = true;
 
+	//The array given to the AI, reused every update
+	private final float[] aiInputs = new float[3];
+
 	public FlappyBird(int width, int height) {
 		this(width, height, true);
 	}
@@ -61,22 +65,7 @@ public class FlappyBird extends Game {
 	public void update(BaseAI ai) {
 
 		if(this.isRunning||useAI) {
-			if(pipes.size()==0||pipes.get(pipes.size()-1).x < width) {
-				pipes.add(new Pipe(this));
-			}
-			Pipe closestPipe = null;
-			float minDist = Float.MAX_VALUE;
-			for(Pipe pipe : pipes) {
-				if(pipe.x<width/2-BIRD_SIZE/2) continue;
-
-				float dist = pipe.x - width/2f-BIRD_SIZE;
-				if(dist < minDist) {
-					minDist = dist;
-					closestPipe = pipe;
-				}
-			}
-
-			debugPipe = closestPipe;
+			Pipe closestPipe = updateClosestPipe();
 			
 			if(isRecording&&!useAI) {
 
@@ -89,58 +78,111 @@ public class FlappyBird extends Game {
 			}
 
 			if(useAI) {
-				float[] output = ai.evaluate(new float[] {
-						bird.y,
-						bird.yVell,
-						closestPipe.y
-				});
+				writeAIInputs(aiInputs, 0, closestPipe);
 
-				this.isPressingSpace = Utils.oneHot(output) == 1;
+				this.isPressingSpace = ai.decide(aiInputs) == 1;
 			}
 
-			if(!dead) {
-				for(Pipe pipe : pipes) {
-					pipe.update();
+			step();
+		}
+	}
 
+	@Override
+	public void getAIInputs(float[] inputs, int offset) {
+		writeAIInputs(inputs, offset, updateClosestPipe());
+	}
 
-					//We are entering the pipe section
-					if(pipe.x-PIPE_WIDTH/2 < width/2 + BIRD_SIZE/2 && pipe.x+PIPE_WIDTH/2 > width/2 - BIRD_SIZE/2) {
-						if(bird.y > pipe.y + HOLE_SIZE/2 || bird.y < pipe.y - HOLE_SIZE/2) {
-							dead = true;
-							this.currentRecording.clear();
-							isPressingSpace = false;
-						} else if(!pipe.counted) {
-							pipe.counted = true;
-							bird.points++;
+	@Override
+	public void update(float[] aiOutputs, int offset) {
+		this.isPressingSpace = Utils.oneHot(aiOutputs, offset, getOutputSize()) == 1;
 
-							this.recordedData.addData(this.currentRecording);
-							this.currentRecording.clear();
-						}
-					}
-				}
+		step();
+	}
 
-				if(isPressingSpace&&jumpDelay<=0) {
-					jumpDelay = 15;
-					bird.yVell = -15;
-				} else if (jumpDelay>0) {
-					jumpDelay--;
-				}
+	/**
+	 * Add a new pipe when needed and find the pipe in front of the bird
+	 * @return The closest pipe in front of the bird
+	 */
+	private Pipe updateClosestPipe() {
+		if(pipes.size()==0||pipes.get(pipes.size()-1).x < width) {
+			pipes.add(new Pipe(this));
+		}
+		Pipe closestPipe = null;
+		float minDist = Float.MAX_VALUE;
+		for(Pipe pipe : pipes) {
+			if(pipe.x<width/2-BIRD_SIZE/2) continue;
+
+			float dist = pipe.x - width/2f-BIRD_SIZE;
+			if(dist < minDist) {
+				minDist = dist;
+				closestPipe = pipe;
+			}
+		}
+
+		debugPipe = closestPipe;
+		return closestPipe;
+	}
+
+	private void writeAIInputs(float[] inputs, int offset, Pipe closestPipe) {
+		inputs[offset] = bird.y;
+		inputs[offset + 1] = bird.yVell;
+		inputs[offset + 2] = closestPipe.y;
+	}
+
+	/**
+	 * Move the pipes and the bird, isPressingSpace should be set before calling this
+	 */
+	private void step() {
+		if(!dead) {
+			for(Pipe pipe : pipes) {
+				pipe.update();
 
-				bird.update();
 
-				if(dead) {
-					reset();
+				//We are entering the pipe section
+				if(pipe.x-PIPE_WIDTH/2 < width/2 + BIRD_SIZE/2 && pipe.x+PIPE_WIDTH/2 > width/2 - BIRD_SIZE/2) {
+					if(bird.y > pipe.y + HOLE_SIZE/2 || bird.y < pipe.y - HOLE_SIZE/2) {
+						dead = true;
+						this.currentRecording.clear();
+						isPressingSpace = false;
+					} else if(!pipe.counted) {
+						pipe.counted = true;
+						bird.points++;
+
+						this.recordedData.addData(this.currentRecording);
+						this.currentRecording.clear();
+					}
 				}
 			}
 
-			pipes.removeIf((pipe)->pipe.x<-PIPE_WIDTH);
+			if(isPressingSpace&&jumpDelay<=0) {
+				jumpDelay = 15;
+				bird.yVell = -15;
+			} else if (jumpDelay>0) {
+				jumpDelay--;
+			}
+
+			bird.update();
+
+			if(dead) {
+				reset();
+			}
 		}
+
+		pipes.removeIf((pipe)->pipe.x<-PIPE_WIDTH);
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		random.setSeed(seed);
 	}
 
 	@Override
 	public void reset() {
 		dead = false;
 		bird.y = height/2f;
+		//The bird doesn't keep the speed and jump delay of the last run, so a run only depends on the seed
+		bird.yVell = 0;
+		jumpDelay = 0;
 		pipes.clear();
 		bird.points = 0;
 		this.currentRecording.clear();
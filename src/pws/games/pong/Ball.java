@@ -1,7 +1,5 @@
 package pws.games.pong;
 
-import java.util.Random;
-
 public class Ball {
 
 	private final Pong instance;
@@ -10,7 +8,6 @@ public class Ball {
 	public float y;
 	private float xVell = 5;
 	private float yVell = 5;
-	private final Random random = new Random();
 
 	public Ball(Pong instance) {
 		this.instance = instance;
@@ -60,11 +57,11 @@ public class Ball {
 
 	public void reset() {
 		this.x = instance.width / 2f;
-		this.y = random.nextInt(instance.height);
+		this.y = instance.random.nextInt(instance.height);
 
-		double angle = 40 + random.nextDouble()*20;
+		double angle = 40 + instance.random.nextDouble()*20;
 		
-		if(random.nextBoolean()) {
+		if(instance.random.nextBoolean()) {
 			angle*=-1;
 		}
 		
@@ -6,14 +6,16 @@ import java.awt.event.KeyEvent;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import pws.Utils;
 import pws.AI.BaseAI;
 import pws.games.Game;
+import pws.games.SplitUpdateGame;
 import pws.trainingData.InputOutputPair;
 import pws.trainingData.TrainingData;
 
-public class Pong extends Game {
+public class Pong extends Game implements SplitUpdateGame {
 
 	enum Direction { UP, STILL, DOWN }
 
@@ -25,6 +27,8 @@ public class Pong extends Game {
 	final Paddle enemy;
 	public final Ball ball;
 
+	//The balls of a game that is played in the window are random, the games of the pool are seeded so every AI gets the same balls
+	final Random random;
 	final int width;
 	final int height;
 
@@ -38,6 +42,9 @@ public class Pong extends Game {
 	private final List<InputOutputPair> currentRecording = new ArrayList<>();
 
 	private boolean lastPlayerWin = false;
+
+	//The array given to the AI, reused every update
+	private final float[] aiInputs = new float[5];
 	
 	public Pong(int width, int height) {
 		this(width, height, true);
@@ -46,6 +53,7 @@ public class Pong extends Game {
 	private Pong(int width, int height, boolean loadData) {
 		this.width = width;
 		this.height = height;
+		this.random = loadData ? new Random() : new Random(0);
 
 		if(loadData) this.trainingData.readFromFile(Paths.get("saves/"), "pong");
 
@@ -64,29 +72,8 @@ public class Pong extends Game {
 		if(!isRunning&&!useAI) return;
 		
 		if(useAI) {
-			float[] outputs = ai.evaluate(new float[] {
-					//					player.getX() / (float) width,
-					player.getY() / (float) height,
-					ball.getX() / (float) width,
-					ball.getY() / (float) height,
-					ball.getXVell() / 6f,
-					ball.getYVell() / 6f
-			});
-
-			int move = Utils.oneHot(outputs);
-
-			switch(move) {
-			case 0:
-				player.move(Direction.UP);
-				break;
-			case 1:
-				player.move(Direction.STILL);
-				break;
-			case 2:
-				player.move(Direction.DOWN);
-				break;
-			}
-
+			getAIInputs(aiInputs, 0);
+			moveAI(ai.decide(aiInputs));
 		} else {
 			if(isRecording) {
 				currentRecording.add(new InputOutputPair(new float[] {
@@ -105,6 +92,42 @@ public class Pong extends Game {
 		ball.update();
 	}
 
+	@Override
+	public void getAIInputs(float[] inputs, int offset) {
+		inputs[offset] = player.getY() / (float) height;
+		inputs[offset + 1] = ball.getX() / (float) width;
+		inputs[offset + 2] = ball.getY() / (float) height;
+		inputs[offset + 3] = ball.getXVell() / 6f;
+		inputs[offset + 4] = ball.getYVell() / 6f;
+	}
+
+	@Override
+	public void update(float[] aiOutputs, int offset) {
+		moveAI(Utils.oneHot(aiOutputs, offset, getOutputSize()));
+
+		player.update();
+		enemy.update();
+		ball.update();
+	}
+
+	/**
+	 * Move the player in the direction the AI chose
+	 * @param move The index of the highest output of the AI
+	 */
+	private void moveAI(int move) {
+		switch(move) {
+		case 0:
+			player.move(Direction.UP);
+			break;
+		case 1:
+			player.move(Direction.STILL);
+			break;
+		case 2:
+			player.move(Direction.DOWN);
+			break;
+		}
+	}
+
 	@Override
 	public void draw(Graphics g) {
 		g.setColor(isRecording?Color.RED:Color.WHITE);
@@ -138,6 +161,11 @@ public class Pong extends Game {
 		ball.reset();
 	}
 
+	@Override
+	public void setSeed(long seed) {
+		random.setSeed(seed);
+	}
+
 	@Override
 	public void reset() {
 		player.reset();
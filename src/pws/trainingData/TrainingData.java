@@ -43,6 +43,33 @@ public class TrainingData {
 		return data.get(rand.nextInt(data.size()));
 	}
 	
+    /**
+     * Fill the arrays with random data points, the inputs and outputs are stored after each other so they can be used with trainBatch
+     * @param batchSize How many data points to get
+     * @param inputs The array to write the inputs to, should have room for batchSize inputs
+     * @param outputs The array to write the outputs to, should have room for batchSize outputs
+     */
+	public void getRandomBatch(int batchSize, float[] inputs, float[] outputs) {
+		for(int i = 0; i < batchSize; i++) {
+			InputOutputPair pair = getRandomDataPoint();
+			System.arraycopy(pair.inputs, 0, inputs, i * pair.inputs.length, pair.inputs.length);
+			System.arraycopy(pair.outputs, 0, outputs, i * pair.outputs.length, pair.outputs.length);
+		}
+	}
+
+    /**
+     * Get the data point at the given index
+     * @param index The index of the data point, between 0 and size()
+     * @return An InputOutputPair
+     */
+	public InputOutputPair getDataPoint(int index) {
+		return data.get(index);
+	}
+
+	public int size() {
+		return data.size();
+	}
+
 	public boolean hasData() {
 		return data.size()>0;
 	}
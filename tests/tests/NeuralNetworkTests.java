@@ -1,13 +1,59 @@
 package tests;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.awt.Graphics;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ejml.data.MatrixType;
 import org.junit.jupiter.api.Test;
 
+import pws.AI.BaseAI;
+import pws.AI.NeuralNetwork.Activation;
+import pws.AI.NeuralNetwork.Checkpoint;
+import pws.AI.NeuralNetwork.CompiledNetwork;
 import pws.AI.NeuralNetwork.ExtendedMatrix;
+import pws.AI.NeuralNetwork.Genome;
+import pws.AI.NeuralNetwork.HogwildTrainer;
+import pws.AI.NeuralNetwork.Mutation;
 import pws.AI.NeuralNetwork.NeuralNetwork;
+import pws.AI.NeuralNetwork.Optimizer;
+import pws.AI.NeuralNetwork.PopulationNetwork;
+import pws.AI.NeuralNetwork.Precision;
+import pws.AI.NeuralNetwork.Pruner;
+import pws.AI.NeuralNetwork.PruningReport;
+import pws.AI.NeuralNetwork.QuantizationReport;
+import pws.AI.NeuralNetwork.QuantizedNetwork;
+import pws.AI.NeuralNetwork.SparseNetwork;
+import pws.AI.pool.Champion;
+import pws.AI.pool.Coordinator;
+import pws.AI.pool.IslandStatistics;
+import pws.AI.pool.Islands;
+import pws.AI.pool.Pool;
+import pws.AI.pool.RemoteWorker;
+import pws.AI.pool.Selection;
+import pws.Utils;
+import pws.games.Game;
+import pws.games.flappybird.FlappyBird;
+import pws.games.pong.Pong;
+import pws.trainingData.TrainingData;
 
 class NeuralNetworkTests {
 
@@ -51,6 +97,925 @@ class NeuralNetworkTests {
 		assertTrue(network.bias.get(0).get(0)!=network.bias.get(0).get(1));
 	}
 
+	@Test
+	void EvaluateIntoOutputArray() {
+		NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {4, 6}).randomise();
+
+		float[] input = new float[] {0.1f, -0.5f, 0.9f};
+		float[] output = new float[2];
+
+		assertSame(output, network.evaluate(input, output), "Evaluate should return the given output array");
+		checkArray(output, network.evaluate(input));
+
+		assertThrows(IllegalArgumentException.class, ()->network.evaluate(input, new float[3]), "Output size is 2, evaluate should expect size of 2");
+	}
+
+	@Test
+	void EvaluateBatchMatchesEvaluate() {
+		NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {4, 6}).randomise();
+
+		float[] inputs = new float[] {0.1f, -0.5f, 0.9f, 1, 0, 0, -1, 2, 0.5f, 0, 0, 0};
+		float[] outputs = network.evaluateBatch(inputs, 4);
+
+		assertEquals(8, outputs.length, "4 inputs with 2 outputs each should give 8 values");
+
+		for(int i = 0; i < 4; i++) {
+			float[] output = network.evaluate(new float[] {inputs[i*3], inputs[i*3+1], inputs[i*3+2]});
+			checkArray(new float[] {outputs[i*2], outputs[i*2+1]}, output, 0.00001f);
+		}
+
+		assertThrows(IllegalArgumentException.class, ()->network.evaluateBatch(inputs, 3), "12 values can't be 3 inputs of size 3");
+	}
+
+	@Test
+	void TrainBatchOfOneMatchesTrain() {
+		NeuralNetwork network = new NeuralNetwork(2, 2, new int[] {3}).randomise();
+		NeuralNetwork batchNetwork = copy(network);
+
+		network.train(new float[] {0.3f, 0.7f}, new float[] {1, 0});
+		batchNetwork.trainBatch(new float[] {0.3f, 0.7f}, new float[] {1, 0}, 1, 1);
+
+		checkNetworksEqual(network, batchNetwork, 0.00001f);
+	}
+
+	@Test
+	void TrainMatchesFiniteDifferenceGradient() {
+		float[] input = new float[] {0.5f, -0.3f, 0.8f};
+		float[] target = new float[] {1, 0};
+
+		for(Precision precision : Precision.values()) {
+			NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {4}, precision).randomise();
+
+			//The loss is calculated with a double network with the same weights, the weights of a float network fit in a double exactly
+			NeuralNetwork reference = toDoubleNetwork(network);
+			NeuralNetwork expected = toDoubleNetwork(network);
+
+			//train does one step of gradient descent with a learning rate of 1 on the loss 0.5*(output-target)^2,
+			//so every weight should go down by the slope of the loss, which we estimate with a central difference
+			double epsilon = 0.001;
+			for(int l = 0; l < reference.weights.size(); l++) {
+				for(ExtendedMatrix[] matrices : new ExtendedMatrix[][] {{reference.weights.get(l), expected.weights.get(l)}, {reference.bias.get(l), expected.bias.get(l)}}) {
+					for(int j = 0; j < matrices[0].getNumElements(); j++) {
+						double value = matrices[0].get(j);
+
+						matrices[0].set(j, value + epsilon);
+						double lossUp = loss(reference, input, target);
+						matrices[0].set(j, value - epsilon);
+						double lossDown = loss(reference, input, target);
+						matrices[0].set(j, value);
+
+						matrices[1].set(j, value - (lossUp - lossDown) / (2 * epsilon));
+					}
+				}
+			}
+
+			network.train(input, target);
+
+			//The outputs are floats, so the estimate of the slope is only accurate to about 1e-4
+			checkNetworksEqual(network, expected, precision == Precision.FLOAT ? 0.001f : 0.0005f);
+		}
+	}
+
+	@Test
+	void TrainBatchOfOneMatchesTrainWithOtherActivations() {
+		for(Activation activation : Activation.values()) {
+			NeuralNetwork network = new NeuralNetwork(2, 2, new int[] {3, 3}).randomise().setActivations(activation, Activation.LINEAR);
+			NeuralNetwork batchNetwork = copy(network).setActivations(activation, Activation.LINEAR);
+
+			network.train(new float[] {0.3f, 0.7f}, new float[] {1, 0});
+			batchNetwork.trainBatch(new float[] {0.3f, 0.7f}, new float[] {1, 0}, 1, 1);
+
+			checkNetworksEqual(network, batchNetwork, 0.0001f);
+		}
+	}
+
+	@Test
+	void LinearActivation() {
+		NeuralNetwork network = new NeuralNetwork(2, 1, new int[] {2}).setActivations(Activation.LINEAR, Activation.LINEAR);
+
+		network.weights.set(0, new ExtendedMatrix(new double[][] {{1, 2}, {3, 4}}));
+		network.weights.set(1, new ExtendedMatrix(new double[][] {{1, -1}}));
+		network.bias.set(1, new ExtendedMatrix(new double[][] {{0.5}}));
+
+		//(1*1+2*2) - (3*1+4*2) + 0.5
+		checkArray(network.evaluate(new float[] {1, 2}), new float[] {-5.5f}, 0.00001f);
+	}
+
+	@Test
+	void FastActivationsStayWithinErrorBound() {
+		for(double x = -20; x <= 20; x += 0.0007) {
+			assertEquals(Activation.SIGMOID.apply(x), Activation.FAST_SIGMOID.apply(x), 3e-6, "Fast sigmoid is too far off at " + x);
+			assertEquals(Activation.TANH.apply(x), Activation.FAST_TANH.apply(x), 6e-6, "Fast tanh is too far off at " + x);
+		}
+	}
+
+	@Test
+	void TrainBatchLearnsXOR() {
+		NeuralNetwork network = new NeuralNetwork(2, 1, new int[] {4}).randomise();
+
+		float[] inputs = new float[] {0, 0, 0, 1, 1, 0, 1, 1};
+		float[] targets = new float[] {0, 1, 1, 0};
+
+		for(int i = 0; i < 20000; i++) {
+			network.trainBatch(inputs, targets, 4, 2);
+		}
+
+		checkArray(network.evaluateBatch(inputs, 4), targets, 0.2f);
+	}
+
+	@Test
+	void SgdOptimizerMatchesPlainGradientDescent() {
+		NeuralNetwork network = new NeuralNetwork(2, 2, new int[] {3}).randomise();
+		NeuralNetwork optimizedNetwork = copy(network).setOptimizer(Optimizer.sgd(0.5));
+
+		float[] inputs = new float[] {0.3f, 0.7f, 1, 0};
+		float[] targets = new float[] {1, 0, 0, 1};
+		network.trainBatch(inputs, targets, 2, 0.5f);
+		optimizedNetwork.trainBatch(inputs, targets, 2, 0.5f);
+		checkNetworksEqual(optimizedNetwork, network, 0.00001f);
+
+		NeuralNetwork sampleNetwork = copy(network).setOptimizer(Optimizer.sgd(1));
+		network.train(new float[] {0.3f, 0.7f}, new float[] {1, 0});
+		sampleNetwork.train(new float[] {0.3f, 0.7f}, new float[] {1, 0});
+		checkNetworksEqual(sampleNetwork, network, 0.00001f);
+	}
+
+	@Test
+	void OptimizersLearnXOR() {
+		Optimizer[] optimizers = new Optimizer[] {
+				Optimizer.momentum(0.5, 0.9),
+				Optimizer.rmsProp(0.01, 0.9),
+				Optimizer.adam(0.05, 0.9, 0.999)
+		};
+
+		float[] inputs = new float[] {0, 0, 0, 1, 1, 0, 1, 1};
+		float[] targets = new float[] {0, 1, 1, 0};
+
+		for(Optimizer optimizer : optimizers) {
+			NeuralNetwork network = new NeuralNetwork(2, 1, new int[] {8}).randomise().setOptimizer(optimizer);
+
+			for(int i = 0; i < 5000; i++) {
+				network.trainBatch(inputs, targets, 4, 1);
+			}
+
+			checkArray(network.evaluateBatch(inputs, 4), targets, 0.2f);
+		}
+	}
+
+	@Test
+	void HogwildTrainerLearnsXOR() throws InterruptedException {
+		NeuralNetwork network = new NeuralNetwork(2, 1, new int[] {4}).randomise();
+
+		TrainingData trainingData = new TrainingData();
+		for(int i = 0; i <= 1; i++) {
+			for(int j = 0; j <= 1; j++) {
+				trainingData.addData(new float[] {i, j}, new float[] {i^j});
+			}
+		}
+
+		HogwildTrainer trainer = new HogwildTrainer(network, trainingData, 4, 1);
+		trainer.start();
+		long end = System.currentTimeMillis() + 10000;
+		while(trainer.getSamplesTrained() < 400000 && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		trainer.stop();
+
+		assertTrue(trainer.getSamplesTrained() > 0, "The workers should have trained on some data");
+		checkArray(network.evaluateBatch(new float[] {0, 0, 0, 1, 1, 0, 1, 1}, 4), new float[] {0, 1, 1, 0}, 0.2f);
+	}
+
+	@Test
+	void HogwildTrainerRejectsOptimizer() {
+		TrainingData trainingData = new TrainingData();
+		trainingData.addData(new float[] {0, 1}, new float[] {1});
+
+		NeuralNetwork optimizedNetwork = new NeuralNetwork(2, 1, new int[] {4}).setOptimizer(Optimizer.adam(0.05, 0.9, 0.999));
+		assertThrows(IllegalArgumentException.class, ()->new HogwildTrainer(optimizedNetwork, trainingData, 2, 1), "The threads can't share the state of an optimizer");
+
+		NeuralNetwork network = new NeuralNetwork(2, 1, new int[] {4});
+		HogwildTrainer trainer = new HogwildTrainer(network, trainingData, 2, 1);
+		network.setOptimizer(Optimizer.sgd(1));
+		assertThrows(IllegalArgumentException.class, trainer::start, "An optimizer set after creating the trainer should be rejected as well");
+		assertFalse(trainer.isRunning(), "The trainer should not have started");
+	}
+
+	@Test
+	void VectorKernelsMatchScalarKernels() throws ReflectiveOperationException {
+		//The vector kernels only exist when the JVM is started with --add-modules jdk.incubator.vector, without them there is nothing to compare
+		Object vector = createKernels("VectorKernels");
+		if(vector == null) return;
+		Object scalar = createKernels("ScalarKernels");
+
+		//13 is not a multiple of any vector length, so the masked end of every row is used as well
+		int rows = 7;
+		int cols = 13;
+		Random random = new Random(8);
+
+		double[] weights = randomArray(random, rows * cols);
+		double[] bias = randomArray(random, rows);
+		double[] error = randomArray(random, rows);
+		double[] activation = randomArray(random, cols);
+		for(int col = 0; col < cols; col += 3) {
+			//Like the output of a relu
+			activation[col] = 0;
+		}
+
+		//The vector kernels add the values in another order and with fma, so the sums can differ a little bit.
+		//The tolerance is 1e-12 for doubles and 1e-5 for floats, far above that rounding and far below the size of the values
+		double[] scalarSums = new double[rows];
+		double[] vectorSums = new double[rows];
+		invokeKernel(scalar, "multiplyAdd", weights, bias, activation, scalarSums, rows, cols);
+		invokeKernel(vector, "multiplyAdd", weights, bias, activation, vectorSums, rows, cols);
+		assertArrayEquals(scalarSums, vectorSums, 1e-12, "Evaluating should give the same weighted sums");
+
+		double[] scalarErrors = new double[cols];
+		double[] vectorErrors = new double[cols];
+		invokeKernel(scalar, "multiplyTransposed", weights, error, scalarErrors, rows, cols);
+		invokeKernel(vector, "multiplyTransposed", weights, error, vectorErrors, rows, cols);
+		assertArrayEquals(scalarErrors, vectorErrors, 1e-12, "Backpropagating should give the same errors");
+
+		//Training rounds the same way as the scalar loop and skips the same weights, so it has to be exactly the same
+		double[] scalarWeights = weights.clone();
+		double[] scalarBias = bias.clone();
+		invokeKernel(scalar, "subtractOuterProduct", scalarWeights, scalarBias, error, activation, 0.5, rows, cols);
+		invokeKernel(vector, "subtractOuterProduct", weights, bias, error, activation, 0.5, rows, cols);
+		assertTrue(Arrays.equals(scalarWeights, weights), "Training should change the weights the same way");
+		assertTrue(Arrays.equals(scalarBias, bias), "Training should change the bias the same way");
+
+		float[] floatWeights = toFloats(weights);
+		float[] floatBias = toFloats(bias);
+		float[] floatError = toFloats(error);
+		float[] floatActivation = toFloats(activation);
+
+		float[] scalarFloatSums = new float[rows];
+		float[] vectorFloatSums = new float[rows];
+		invokeKernel(scalar, "multiplyAdd", floatWeights, floatBias, floatActivation, scalarFloatSums, rows, cols);
+		invokeKernel(vector, "multiplyAdd", floatWeights, floatBias, floatActivation, vectorFloatSums, rows, cols);
+		checkArray(vectorFloatSums, scalarFloatSums, 1e-5f);
+
+		float[] scalarFloatErrors = new float[cols];
+		float[] vectorFloatErrors = new float[cols];
+		invokeKernel(scalar, "multiplyTransposed", floatWeights, floatError, scalarFloatErrors, rows, cols);
+		invokeKernel(vector, "multiplyTransposed", floatWeights, floatError, vectorFloatErrors, rows, cols);
+		checkArray(vectorFloatErrors, scalarFloatErrors, 1e-5f);
+
+		float[] scalarFloatWeights = floatWeights.clone();
+		float[] scalarFloatBias = floatBias.clone();
+		invokeKernel(scalar, "subtractOuterProduct", scalarFloatWeights, scalarFloatBias, floatError, floatActivation, 0.5f, rows, cols);
+		invokeKernel(vector, "subtractOuterProduct", floatWeights, floatBias, floatError, floatActivation, 0.5f, rows, cols);
+		assertTrue(Arrays.equals(scalarFloatWeights, floatWeights), "Training should change the float weights the same way");
+		assertTrue(Arrays.equals(scalarFloatBias, floatBias), "Training should change the float bias the same way");
+	}
+
+	@Test
+	void FloatNetworkMatchesDoubleNetwork() {
+		NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {4, 6}).randomise();
+		NeuralNetwork floatNetwork = new NeuralNetwork(3, 2, new int[] {4, 6}, Precision.FLOAT);
+
+		for(int i = 0; i < network.weights.size(); i++) {
+			for(int j = 0; j < network.weights.get(i).getNumElements(); j++) {
+				floatNetwork.weights.get(i).set(j, network.weights.get(i).get(j));
+			}
+			for(int j = 0; j < network.bias.get(i).getNumElements(); j++) {
+				floatNetwork.bias.get(i).set(j, network.bias.get(i).get(j));
+			}
+		}
+
+		assertEquals(MatrixType.FDRM, floatNetwork.weights.get(0).getType(), "Float networks should store their weights as floats");
+
+		float[] inputs = new float[] {0.1f, -0.5f, 0.9f, 1, 0, 0};
+		checkArray(floatNetwork.evaluate(new float[] {0.1f, -0.5f, 0.9f}), network.evaluate(new float[] {0.1f, -0.5f, 0.9f}), 0.0001f);
+		checkArray(floatNetwork.evaluateBatch(inputs, 2), network.evaluateBatch(inputs, 2), 0.0001f);
+
+		network.train(new float[] {0.1f, -0.5f, 0.9f}, new float[] {1, 0});
+		floatNetwork.train(new float[] {0.1f, -0.5f, 0.9f}, new float[] {1, 0});
+		network.trainBatch(inputs, new float[] {0, 1, 1, 0}, 2, 0.5f);
+		floatNetwork.trainBatch(inputs, new float[] {0, 1, 1, 0}, 2, 0.5f);
+
+		assertEquals(MatrixType.FDRM, floatNetwork.bias.get(0).getType(), "Training should keep the biases as floats");
+		checkNetworksEqual(floatNetwork, network, 0.0001f);
+	}
+
+	@Test
+	void PopulationNetworkMatchesEvaluate() {
+		List<NeuralNetwork> networks = new ArrayList<>();
+		for(int i = 0; i < 5; i++) {
+			networks.add(new NeuralNetwork(3, 2, new int[] {4, 6}, i % 2 == 0 ? Precision.DOUBLE : Precision.FLOAT).randomise());
+		}
+
+		PopulationNetwork population = new PopulationNetwork(3, 2, new int[] {4, 6}).load(networks);
+		assertEquals(5, population.size());
+
+		float[] inputs = new float[5 * 3];
+		for(int i = 0; i < inputs.length; i++) {
+			inputs[i] = i / 7f - 1;
+		}
+
+		float[] outputs = population.evaluate(inputs, new float[5 * 2]);
+		for(int i = 0; i < networks.size(); i++) {
+			float[] expected = networks.get(i).evaluate(Arrays.copyOfRange(inputs, i * 3, i * 3 + 3));
+			checkArray(Arrays.copyOfRange(outputs, i * 2, i * 2 + 2), expected, 0.0001f);
+		}
+
+		//Removing a network moves the last network to its place
+		population.remove(1);
+		assertEquals(4, population.size());
+		System.arraycopy(inputs, 4 * 3, inputs, 3, 3);
+		outputs = population.evaluate(inputs, outputs);
+		checkArray(Arrays.copyOfRange(outputs, 2, 4), networks.get(4).evaluate(Arrays.copyOfRange(inputs, 3, 6)), 0.0001f);
+
+		networks.get(1).setActivation(0, Activation.TANH);
+		assertThrows(IllegalArgumentException.class, () -> population.load(networks), "Networks with other activation functions should throw an exception");
+		networks.set(1, new NeuralNetwork(3, 2, new int[] {4}));
+		assertThrows(IllegalArgumentException.class, () -> population.load(networks), "Networks with another topology should throw an exception");
+		assertThrows(IllegalArgumentException.class, () -> population.evaluate(new float[3], new float[5 * 2]), "Wrong input size should throw an exception");
+	}
+
+	@Test
+	void FloatPopulationMatchesFloatNetworks() {
+		List<NeuralNetwork> networks = new ArrayList<>();
+		for(int i = 0; i < 3; i++) {
+			networks.add(new NeuralNetwork(3, 2, new int[] {5}, Precision.FLOAT).randomise());
+		}
+
+		//Every network is evaluated twice with other inputs, index 2*i+r is run r of network i
+		PopulationNetwork population = new PopulationNetwork(3, 2, new int[] {5}, Precision.FLOAT).load(networks, 2);
+		assertEquals(6, population.size());
+
+		float[] inputs = new float[6 * 3];
+		for(int i = 0; i < inputs.length; i++) {
+			inputs[i] = i / 9f - 1;
+		}
+
+		//The tensors are floats as well, so the outputs are exactly the same as those of the networks
+		float[] outputs = population.evaluate(inputs, new float[6 * 2]);
+		for(int i = 0; i < 6; i++) {
+			float[] expected = networks.get(i / 2).evaluate(Arrays.copyOfRange(inputs, i * 3, i * 3 + 3));
+			checkArray(Arrays.copyOfRange(outputs, i * 2, i * 2 + 2), expected);
+		}
+
+		//Index 1 gets the last run, which uses the last network
+		population.remove(1);
+		assertEquals(5, population.size());
+		System.arraycopy(inputs, 5 * 3, inputs, 3, 3);
+		outputs = population.evaluate(inputs, outputs);
+		checkArray(Arrays.copyOfRange(outputs, 2, 4), networks.get(2).evaluate(Arrays.copyOfRange(inputs, 3, 6)));
+		checkArray(Arrays.copyOfRange(outputs, 0, 2), networks.get(0).evaluate(Arrays.copyOfRange(inputs, 0, 3)));
+	}
+
+	@Test
+	void MutateChangesWeightsInPlace() {
+		NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {4}).randomise();
+		NeuralNetwork original = copy(network);
+		ExtendedMatrix weights = network.weights.get(0);
+
+		network.setMutation(new Mutation(0, 0, 0, 0.1)).mutate();
+		checkNetworksEqual(network, original);
+
+		network.setMutation(new Mutation(1, 1, 0, 0.1)).mutate();
+		assertSame(weights, network.weights.get(0), "Mutation should change the matrices in place");
+
+		Genome genome = network.genome();
+		Genome originalGenome = original.genome();
+		assertEquals(3*4 + 4 + 4*2 + 2, genome.size());
+		for(int i = 0; i < genome.size(); i++) {
+			double change = Math.abs(genome.get(i) - originalGenome.get(i));
+			assertTrue(change > 0 && change <= 0.1, "Every gene should change by at most the step size");
+		}
+
+		//The genome is a view of the network
+		genome.set(3*4, 5);
+		assertEquals(5.0, network.bias.get(0).get(0));
+	}
+
+	@Test
+	void CrossOverPicksEveryGeneFromAParent() {
+		NeuralNetwork first = new NeuralNetwork(3, 2, new int[] {40}).randomise();
+		NeuralNetwork second = new NeuralNetwork(3, 2, new int[] {40}).randomise();
+		NeuralNetwork child = (NeuralNetwork) first.crossOver(second);
+
+		Genome genome = child.genome();
+		int fromFirst = 0;
+		for(int i = 0; i < genome.size(); i++) {
+			if(genome.get(i) == first.genome().get(i)) {
+				fromFirst++;
+			} else {
+				assertEquals(second.genome().get(i), genome.get(i), "Every gene should come from one of the parents");
+			}
+		}
+		assertTrue(fromFirst > genome.size() / 4 && fromFirst < genome.size() * 3 / 4, "Both parents should give about half of the genes");
+
+		//The child has its own weights, so mutating it doesn't change the parents
+		NeuralNetwork firstCopy = copy(first);
+		child.mutate();
+		checkNetworksEqual(first, firstCopy);
+
+		assertThrows(IllegalArgumentException.class, () -> first.crossOver(new NeuralNetwork(3, 2, new int[] {4})), "Crossover with another topology should throw an exception");
+	}
+
+	@Test
+	void CopySharesWeightsUntilWritten() {
+		for(Precision precision : Precision.values()) {
+			NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {4}, precision).randomise();
+			NeuralNetwork original = copy(network);
+			NeuralNetwork copy = network.copy();
+
+			assertSame(data(network.weights.get(0)), data(copy.weights.get(0)), "A copy should share the weights until they change");
+			checkNetworksEqual(copy, network);
+
+			copy.mutate();
+			assertTrue(data(network.weights.get(0)) != data(copy.weights.get(0)), "Mutating a copy should give it its own weights");
+			checkNetworksEqual(network, original);
+
+			NeuralNetwork mutated = copy(copy);
+			NeuralNetwork secondCopy = copy.copy();
+			secondCopy.train(new float[] {1, 0, 1}, new float[] {0, 1});
+			secondCopy.weights.get(1).set(0, 5);
+			checkNetworksEqual(copy, mutated);
+			checkNetworksEqual(network, original);
+		}
+	}
+
+	@Test
+	void MatrixMutatorsDontChangeSharedCopies() {
+		for(Precision precision : Precision.values()) {
+			NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {4}, precision).randomise();
+			NeuralNetwork original = copy(network);
+
+			//Every copy shares the weights with the network, changing one of the copies should never change the network
+			NeuralNetwork copy = network.copy();
+			copy.weights.get(0).setRow(0, 0, 1, 2, 3);
+			copy.weights.get(1).setColumn(0, 0, 4, 5);
+			copy.bias.get(0).fill(6);
+			copy.bias.get(1).zero();
+			checkNetworksEqual(network, original);
+			assertEquals(2, copy.weights.get(0).get(0, 1), 0.0001, "setRow should change the copy");
+			assertEquals(6, copy.bias.get(0).get(3), 0.0001, "fill should change the copy");
+
+			NeuralNetwork secondCopy = network.copy();
+			ExtendedMatrix ones = new ExtendedMatrix(new double[][] {{1, 1}, {1, 1}});
+			secondCopy.weights.get(0).insertIntoThis(1, 1, ones);
+			secondCopy.weights.get(1).set(ones.extractMatrix(0, 2, 0, 1).concatColumns(original.weights.get(1).extractMatrix(0, 2, 1, 4)));
+			checkNetworksEqual(network, original);
+			assertEquals(1, secondCopy.weights.get(0).get(2, 2), 0.0001, "insertIntoThis should change the copy");
+		}
+	}
+
+	@Test
+	void VersionChangesWithTheNetwork() {
+		NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {4}).randomise();
+		NeuralNetwork copy = network.copy();
+		assertEquals(network.getVersion(), copy.getVersion(), "A copy should have the version of the original");
+
+		copy.mutate();
+		assertTrue(network.getVersion() != copy.getVersion(), "Mutating should give a new version");
+
+		NeuralNetwork child = (NeuralNetwork) network.crossOver(network.copy());
+		assertTrue(network.getVersion() != child.getVersion(), "A child should have its own version");
+
+		long version = network.getVersion();
+		network.train(new float[] {1, 0, 1}, new float[] {0, 1});
+		assertTrue(version != network.getVersion(), "Training should give a new version");
+
+		version = network.getVersion();
+		network.genome().set(0, 2);
+		assertTrue(version != network.getVersion(), "Changing a gene should give a new version");
+
+		version = network.getVersion();
+		network.setActivation(0, Activation.TANH);
+		assertTrue(version != network.getVersion(), "Changing an activation function should give a new version");
+	}
+
+	@Test
+	void CheckpointRoundTrip() throws IOException {
+		Path path = Files.createTempFile("checkpoint", ".nn");
+
+		try {
+			for(Precision precision : Precision.values()) {
+				NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {4, 3}, precision).randomise().setOptimizer(Optimizer.adam(0.05, 0.9, 0.999));
+				network.setActivation(1, Activation.RELU);
+				network.train(new float[] {1, 0, 1}, new float[] {0, 1});
+
+				Checkpoint.save(network, path);
+				NeuralNetwork loaded = Checkpoint.load(path);
+
+				//The weights are stored as floats, so a double network is only equal up to float precision
+				assertEquals(loaded.getPrecision(), precision, "The precision should be saved");
+				assertEquals(loaded.getActivation(1), Activation.RELU, "The activation functions should be saved");
+				checkNetworksEqual(loaded, network, 0.000001f);
+				checkArray(loaded.evaluate(new float[] {0.5f, 1, 0}), network.evaluate(new float[] {0.5f, 1, 0}), 0.000001f);
+
+				//The optimizer state is saved too, so training goes on where it stopped
+				network.train(new float[] {0, 1, 1}, new float[] {1, 0});
+				loaded.train(new float[] {0, 1, 1}, new float[] {1, 0});
+				checkNetworksEqual(loaded, network, 0.0001f);
+
+				Checkpoint.saveAsync(network, path).join();
+				checkNetworksEqual(Checkpoint.load(path), network, 0.000001f);
+			}
+
+			Files.write(path, new byte[] {1, 2, 3, 4, 5});
+			assertThrows(IOException.class, () -> Checkpoint.load(path), "Loading a file that isn't a checkpoint should throw an exception");
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test
+	void QuantizedNetworkMatchesNetwork() {
+		TrainingData data = new TrainingData();
+		for(int i = 0; i < 200; i++) {
+			data.addData(new float[] {(i % 7) / 7f, (i % 11) / 11f - 0.5f, (i % 13) / 6.5f - 1}, new float[] {0, 1});
+		}
+
+		for(Activation activation : new Activation[] {Activation.SIGMOID, Activation.TANH, Activation.RELU}) {
+			NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {8, 6}).randomise().setActivations(activation, Activation.SIGMOID);
+			QuantizedNetwork quantized = QuantizedNetwork.quantize(network, data);
+
+			for(int i = 0; i < data.size(); i++) {
+				float[] input = data.getDataPoint(i).inputs;
+				checkArray(quantized.evaluate(input), network.evaluate(input), 0.03f);
+			}
+
+			QuantizationReport report = quantized.compare(network, data);
+			assertEquals(200, report.dataPoints);
+			assertTrue(report.meanDifference < 0.01, "Quantizing should barely change the outputs, mean difference " + report.meanDifference);
+			assertTrue(report.quantizedSize < report.originalSize / 2, "The quantized network should be smaller");
+		}
+
+		NeuralNetwork network = new NeuralNetwork(3, 2, new int[] {4}).randomise();
+		checkArray(QuantizedNetwork.quantize(network, null).evaluate(new float[] {0.5f, -0.5f, 1}), network.evaluate(new float[] {0.5f, -0.5f, 1}), 0.03f);
+	}
+
+	@Test
+	void PrunedSparseNetworkMatchesNetwork() {
+		for(Precision precision : Precision.values()) {
+			NeuralNetwork network = new NeuralNetwork(4, 3, new int[] {10, 8}, precision).randomise().setActivations(Activation.RELU, Activation.SIGMOID);
+			Pruner pruner = new Pruner(network).pruneToSparsity(0.5, 0.75, 0);
+
+			assertEquals(20, countZeros(network.weights.get(0)), "Half of the first layer should be pruned");
+			assertEquals(60, countZeros(network.weights.get(1)), "Three quarters of the second layer should be pruned");
+			assertEquals(0, countZeros(network.weights.get(2)), "The last layer shouldn't be pruned");
+
+			SparseNetwork sparse = pruner.toSparse();
+			assertEquals(80 / 144.0, sparse.getSparsity(), 0.000001);
+			checkArray(sparse.evaluate(new float[] {0.3f, -1, 0, 0.8f}), network.evaluate(new float[] {0.3f, -1, 0, 0.8f}), 0.00001f);
+
+			//Training changes the pruned weights, applyMask sets them to 0 again
+			network.train(new float[] {0.3f, -1, 0, 0.8f}, new float[] {1, 0, 0});
+			pruner.applyMask();
+			assertEquals(20, countZeros(network.weights.get(0)), "Pruned weights should stay pruned after training");
+		}
+
+		TrainingData data = new TrainingData();
+		for(int i = 0; i <= 1; i++) {
+			for(int j = 0; j <= 1; j++) {
+				data.addData(new float[] {i, j}, new float[] {i ^ j});
+			}
+		}
+
+		NeuralNetwork network = new NeuralNetwork(2, 1, new int[] {16}).randomise();
+		List<PruningReport> reports = Pruner.sweep(network, data, new double[] {0.25, 0.5}, 2, 100);
+		assertEquals(2, reports.size());
+		assertEquals(0.25, reports.get(0).sparsity, 0.02);
+		assertEquals(0.5, reports.get(1).sparsity, 0.02);
+	}
+
+	@Test
+	void CompiledNetworkMatchesNetwork() {
+		for(Activation activation : Activation.values()) {
+			for(Precision precision : Precision.values()) {
+				NeuralNetwork network = new NeuralNetwork(5, 3, new int[] {5, 5}, precision).randomise().setActivations(activation, Activation.SIGMOID);
+				CompiledNetwork compiled = CompiledNetwork.compile(network);
+				assertTrue(compiled.isGenerated(), "A small network should be compiled");
+
+				float[] input = new float[] {0.1f, 0.5f, -0.3f, 1, 0};
+				float[] expected = network.evaluate(input);
+
+				//The compiled network doesn't change with the network
+				network.mutate();
+				checkArray(compiled.evaluate(input), expected, 0.00001f);
+			}
+		}
+
+		NeuralNetwork big = new NeuralNetwork(64, 16, new int[] {256, 256}).randomise();
+		CompiledNetwork compiled = CompiledNetwork.compile(big);
+		assertTrue(!compiled.isGenerated(), "A big network should use the normal network");
+		float[] input = new float[64];
+		checkArray(compiled.evaluate(input), big.evaluate(input));
+		assertThrows(IllegalArgumentException.class, () -> compiled.evaluate(new float[3]), "Input size is 64, evaluate should expect size of 64");
+	}
+
+	@Test
+	void DecideMatchesEvaluate() {
+		Random random = new Random(19);
+		for(Activation activation : Activation.values()) {
+			for(Precision precision : Precision.values()) {
+				NeuralNetwork network = new NeuralNetwork(4, 3, new int[] {6}, precision).randomise().setActivations(Activation.TANH, activation);
+
+				for(int i = 0; i < 50; i++) {
+					float[] input = new float[] {random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat()};
+					assertEquals(Utils.oneHot(network.evaluate(input)), network.decide(input), "Decide should choose the highest output of evaluate");
+				}
+			}
+		}
+
+		NeuralNetwork network = new NeuralNetwork(2, 1, new int[] {2});
+		assertThrows(IllegalArgumentException.class, () -> network.decide(new float[3]), "Input size is 2, decide should expect size of 2");
+	}
+
+	@Test
+	void PongNetworksGetTheirOwnFitnessOnThreads() {
+		Pong pong = new Pong(800, 800);
+
+		//Every pool has one other network, a paddle that never moves would give all of them the same fitness
+		List<Float> fitness = new ArrayList<>();
+		for(long seed = 1; seed <= 10; seed++) {
+			Pool pool = new Pool(new int[] {5, 5}, 1, pong, Precision.FLOAT, seed);
+			pool.evolveSteadyState(1);
+			fitness.add(pool.getChampion().getFitness());
+		}
+
+		assertTrue(fitness.stream().distinct().count() > 1, "Different networks should play differently, got " + fitness);
+	}
+
+	@Test
+	void PoolGivesSameChampionOnAnyThreadCount() {
+		Pong pong = new Pong(800, 800);
+		float[] fitness = new float[2];
+		int[] threadCounts = new int[] {1, 4};
+
+		for(int t = 0; t < threadCounts.length; t++) {
+			Pool pool = new Pool(new int[] {5, 5}, 40, pong, Precision.FLOAT, 12);
+			pool.setThreadCount(threadCounts[t]);
+			pool.doGen();
+			pool.doGen();
+			fitness[t] = pool.getChampion().getFitness();
+		}
+
+		assertEquals(fitness[0], fitness[1], "A seeded pool should breed the same champion on 1 and 4 threads");
+	}
+
+	@Test
+	void GenerationsKeepTheirSize() {
+		Pool pool = new Pool(new int[] {5}, 200, new Pong(800, 800), Precision.FLOAT, 3);
+
+		//About 1% of the children are random networks, they are part of the new generation as well
+		for(int i = 0; i < 3; i++) {
+			pool.doGen();
+			assertEquals(200, pool.getBest(1000).size(), "Generation " + pool.getGeneration() + " should have every AI");
+		}
+	}
+
+	@Test
+	void SteadyStateWithSmallPopulation() {
+		Pong pong = new Pong(800, 800);
+
+		//More threads than AIs, so the first AIs that are bred have no population to be bred from
+		Pool pool = new Pool(new int[] {5, 5}, 3, pong, Precision.FLOAT, 5);
+		pool.setThreadCount(4);
+		pool.evolveSteadyState(9);
+
+		assertEquals(3, pool.getGeneration(), "Every 3 AIs that played should count as a generation");
+		assertTrue(pool.getChampion() != null, "The best AI should be published");
+	}
+
+	@Test
+	void SelectionChoosesByFitness() {
+		float[] fitness = new float[] {0, 1, 0, 3, 0};
+		Random random = new Random(22);
+
+		int[] counts = new int[fitness.length];
+		Selection.Selector roulette = Selection.ROULETTE.prepare(fitness);
+		for(int i = 0; i < 40000; i++) {
+			counts[roulette.select(random)]++;
+		}
+		assertEquals(0, counts[0] + counts[2] + counts[4], "Roulette should never choose an AI without fitness");
+		assertEquals(3, counts[3] / (double) counts[1], 0.2, "Roulette should choose AI 3 three times as often as AI 1");
+
+		//With all AIs in the tournament the best always wins
+		Selection.Selector tournament = Selection.tournament(100).prepare(fitness);
+		for(int i = 0; i < 100; i++) {
+			assertEquals(3, tournament.select(random), "A big tournament should choose the best AI");
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> Selection.tournament(0), "A tournament needs at least 1 AI");
+	}
+
+	@Test
+	void DeterministicPoolOnlyPlaysChangedNetworks() {
+		AtomicInteger runs = new AtomicInteger();
+		Pool pool = new Pool(new int[] {2}, 20, new CountingGame(runs), Precision.FLOAT, 11);
+		pool.setDeterministicEvaluation(true);
+
+		pool.doGen();
+		assertEquals(20 * 10, runs.get(), "Every network should play 10 runs in the first generation");
+		Set<Long> played = versions(pool.getBest(20));
+
+		runs.set(0);
+		pool.doGen();
+
+		int changed = 0;
+		List<BaseAI> children = pool.getBest(20);
+		for(BaseAI child : children) {
+			if(!played.contains(((NeuralNetwork) child).getVersion())) changed++;
+		}
+
+		assertTrue(changed > 0 && changed < children.size(), "Some children should be copies and some should be changed");
+		assertEquals(changed * 10, runs.get(), "Only the changed networks should play again, the copies should get the fitness of their parent");
+	}
+
+	private static Set<Long> versions(List<BaseAI> ais) {
+		Set<Long> versions = new HashSet<>();
+		for(BaseAI ai : ais) {
+			versions.add(((NeuralNetwork) ai).getVersion());
+		}
+		return versions;
+	}
+
+	@Test
+	void ChampionKeepsItsFitness() throws IOException {
+		Pong pong = new Pong(800, 800);
+		Pool pool = new Pool(new int[] {5}, 10, pong, Precision.FLOAT, 9);
+		pool.setDeterministicEvaluation(true);
+		pool.doGen();
+
+		Champion first = pool.getChampion();
+		assertEquals(pool.getGeneration(), first.getGeneration(), "The champion should be from the generation that was just done");
+
+		float[] inputs = new float[] {0.1f, 0.2f, 0.3f, 0.4f, 0.5f};
+		float[] outputs = first.getAI().evaluate(inputs).clone();
+
+		Champion latest = first;
+		for(int i = 0; i < 5; i++) {
+			pool.doGen();
+			Champion current = pool.getChampion();
+			assertTrue(current.getFitness() >= latest.getFitness(), "The champion should only be replaced by a better AI");
+			assertTrue(current.getGeneration() <= pool.getGeneration(), "The champion can't be from a generation that isn't done");
+			latest = current;
+		}
+
+		//The pool mutated the children of the champion, the champion shares its weights with them
+		checkArray(first.getAI().evaluate(inputs), outputs);
+
+		//Play the champion again, its fitness should belong to its network
+		Path path = Files.createTempFile("champion", ".nn");
+		try {
+			Checkpoint.save((NeuralNetwork) latest.getAI(), path);
+
+			Pool replay = new Pool(new int[] {5}, 1, pong, Precision.FLOAT, 10);
+			replay.setDeterministicEvaluation(true);
+			replay.setCheckpoint(path);
+			replay.doGen();
+
+			assertEquals(latest.getFitness(), replay.getAverageFitness(), "The champion should have the fitness of its own network");
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test
+	void IslandsShareTheirBestAIs() {
+		Pong pong = new Pong(800, 800);
+		Islands islands = new Islands(new int[] {5}, 2, 10, pong, Precision.FLOAT, 7);
+		islands.setMigration(1, 2, Islands.Topology.RING);
+
+		//The same network gets the same fitness on every island, so a migrant keeps its fitness
+		for(Pool island : islands.getIslands()) {
+			island.setDeterministicEvaluation(true);
+		}
+
+		islands.doGen();
+		List<Pool> pools = islands.getIslands();
+		float first = pools.get(0).getChampion().getFitness();
+		float second = pools.get(1).getChampion().getFitness();
+
+		islands.doGen();
+		for(IslandStatistics statistics : islands.getStatistics()) {
+			assertEquals(4, statistics.immigrants, "Every island should get 2 AIs every generation");
+		}
+		assertTrue(pools.get(0).getChampion().getFitness() >= second, "The best AI of the second island should play on the first island");
+		assertTrue(pools.get(1).getChampion().getFitness() >= first, "The best AI of the first island should play on the second island");
+	}
+
+	@Test
+	void IslandsWithSameSeedAreReproducible() {
+		Pong pong = new Pong(800, 800);
+		Islands first = new Islands(new int[] {5}, 3, 10, pong, Precision.FLOAT, 8);
+		Islands second = new Islands(new int[] {5}, 3, 10, pong, Precision.FLOAT, 8);
+		first.setMigration(1, 2, Islands.Topology.RANDOM);
+		second.setMigration(1, 2, Islands.Topology.RANDOM);
+
+		for(int i = 0; i < 3; i++) {
+			first.doGen();
+			second.doGen();
+		}
+
+		List<IslandStatistics> expected = first.getStatistics();
+		List<IslandStatistics> actual = second.getStatistics();
+		for(int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).bestFitness, actual.get(i).bestFitness, "Islands with the same seed should breed the same AIs");
+			assertEquals(expected.get(i).averageFitness, actual.get(i).averageFitness, "Islands with the same seed should breed the same AIs");
+			assertEquals(expected.get(i).immigrants, actual.get(i).immigrants, "Islands with the same seed should send their AIs to the same islands");
+		}
+	}
+
+	@Test
+	void CoordinatorMatchesLocalPool() throws IOException, InterruptedException {
+		//Never gives the inputs, so the networks on this worker never finish
+		Game hanging = new Pong(800, 800) {
+			@Override
+			public void getAIInputs(float[] inputs, int offset) {
+				try {
+					Thread.sleep(Long.MAX_VALUE);
+				} catch (InterruptedException e) {
+					throw new IllegalStateException("The worker is closed", e);
+				}
+			}
+
+			@Override
+			public Game newInstance() {
+				return this;
+			}
+		};
+
+		for(Game game : new Game[] {new FlappyBird(800, 800), new Pong(800, 800)}) {
+			Pool local = new Pool(new int[] {5}, 20, game, Precision.FLOAT, 24);
+			local.doGen();
+
+			try(Coordinator coordinator = new Coordinator(0, 1, 2)) {
+				coordinator.setJobTimeout(2000);
+				Pool remote = new Pool(new int[] {5}, 20, game, Precision.FLOAT, 24);
+				remote.setCoordinator(coordinator);
+
+				//The first worker hangs, the networks it had are played by the second worker after the timeout
+				RemoteWorker stuck = RemoteWorker.startLocal(hanging, 1, coordinator.getPort());
+				try {
+					waitForWorkers(coordinator, 1);
+					RemoteWorker.startLocal(game, 2, coordinator.getPort());
+					waitForWorkers(coordinator, 2);
+
+					remote.doGen();
+					assertEquals(local.getChampion().getFitness(), remote.getChampion().getFitness(), "The workers should play the networks the same way as the pool");
+					assertEquals(local.getAverageFitness(), remote.getAverageFitness(), "Every network should get the same fitness from the workers as from the pool");
+					assertEquals(1, coordinator.getWorkerCount(), "The worker that hangs should be disconnected");
+				} finally {
+					stuck.close();
+				}
+			}
+		}
+	}
+
+	private static void waitForWorkers(Coordinator coordinator, int count) throws InterruptedException {
+		for(int i = 0; i < 1000 && coordinator.getWorkerCount() < count; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, coordinator.getWorkerCount(), "The workers should connect to the coordinator");
+	}
+
+	private static int countZeros(ExtendedMatrix matrix) {
+		int zeros = 0;
+		for(int i = 0; i < matrix.getNumElements(); i++) {
+			if(matrix.get(i) == 0) zeros++;
+		}
+		return zeros;
+	}
+
+	@Test
+	void CoordinatorStopsWaitingWhenInterrupted() throws IOException, InterruptedException {
+		Pong pong = new Pong(800, 800);
+
+		try(Coordinator coordinator = new Coordinator(0)) {
+			Pool pool = new Pool(new int[] {5}, 20, pong, Precision.FLOAT, 24);
+			pool.setCoordinator(coordinator);
+
+			//There are no workers, so the generation waits until it is interrupted
+			boolean[] interrupted = new boolean[1];
+			Thread generation = new Thread(() -> {
+				pool.doGen();
+				interrupted[0] = Thread.currentThread().isInterrupted();
+			});
+			generation.start();
+			Thread.sleep(200);
+			generation.interrupt();
+			generation.join(10000);
+
+			assertFalse(generation.isAlive(), "An interrupted generation should stop waiting for the workers");
+			assertTrue(interrupted[0], "The interrupt flag should stay set");
+
+			//The networks of the interrupted generation are forgotten, the next generation only waits for its own networks
+			RemoteWorker worker = RemoteWorker.startLocal(pong, 1, coordinator.getPort());
+			try {
+				waitForWorkers(coordinator, 1);
+				pool.doGen();
+				assertEquals(2, pool.getGeneration(), "The next generation should be played by the worker");
+			} finally {
+				worker.close();
+			}
+		}
+	}
+
 	@Test
 	void TestExceptions() {
 		NeuralNetwork network = new NeuralNetwork(2, 1, new int[] {2});
@@ -59,12 +1024,181 @@ class NeuralNetworkTests {
 		assertThrows(IllegalArgumentException.class, ()->network.train(new float[] {2,1}, new float[] {1,2}), "Output size is 2, train should expect size of 1");
 	}
 	
+	private static NeuralNetwork copy(NeuralNetwork network) {
+		NeuralNetwork copy = new NeuralNetwork(network.weights.get(0).numCols(), network.bias.get(network.bias.size()-1).numRows(), hiddenLayers(network));
+
+		for(int i = 0; i < network.weights.size(); i++) {
+			copy.weights.set(i, (ExtendedMatrix) network.weights.get(i).copy());
+			copy.bias.set(i, (ExtendedMatrix) network.bias.get(i).copy());
+		}
+
+		return copy;
+	}
+
+	private static NeuralNetwork toDoubleNetwork(NeuralNetwork network) {
+		NeuralNetwork doubleNetwork = new NeuralNetwork(network.weights.get(0).numCols(), network.bias.get(network.bias.size()-1).numRows(), hiddenLayers(network));
+
+		for(int i = 0; i < network.weights.size(); i++) {
+			for(int j = 0; j < network.weights.get(i).getNumElements(); j++) {
+				doubleNetwork.weights.get(i).set(j, network.weights.get(i).get(j));
+			}
+			for(int j = 0; j < network.bias.get(i).getNumElements(); j++) {
+				doubleNetwork.bias.get(i).set(j, network.bias.get(i).get(j));
+			}
+		}
+
+		return doubleNetwork;
+	}
+
+	private static double loss(NeuralNetwork network, float[] input, float[] target) {
+		float[] output = network.evaluate(input);
+
+		double loss = 0;
+		for(int i = 0; i < output.length; i++) {
+			loss += 0.5 * (output[i] - target[i]) * (output[i] - target[i]);
+		}
+		return loss;
+	}
+
+	private static Object createKernels(String name) {
+		try {
+			Constructor<?> constructor = Class.forName("pws.AI.NeuralNetwork." + name).getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return constructor.newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	private static void invokeKernel(Object kernels, String name, Object... args) throws ReflectiveOperationException {
+		//The kernels are package private, so the methods are found by the types of the arguments
+		Class<?>[] types = new Class<?>[args.length];
+		for(int i = 0; i < args.length; i++) {
+			Class<?> type = args[i].getClass();
+			types[i] = type == Integer.class ? int.class : type == Double.class ? double.class : type == Float.class ? float.class : type;
+		}
+
+		Method method = Class.forName("pws.AI.NeuralNetwork.DenseKernels").getMethod(name, types);
+		method.setAccessible(true);
+		method.invoke(kernels, args);
+	}
+
+	private static double[] randomArray(Random random, int length) {
+		double[] values = new double[length];
+		for(int i = 0; i < length; i++) {
+			values[i] = random.nextDouble() * 2 - 1;
+		}
+		return values;
+	}
+
+	private static float[] toFloats(double[] values) {
+		float[] floats = new float[values.length];
+		for(int i = 0; i < values.length; i++) {
+			floats[i] = (float) values[i];
+		}
+		return floats;
+	}
+
+	private static Object data(ExtendedMatrix matrix) {
+		return matrix.getType() == MatrixType.FDRM ? matrix.getFDRM().data : matrix.getDDRM().data;
+	}
+
+	private static int[] hiddenLayers(NeuralNetwork network) {
+		int[] layers = new int[network.bias.size()-1];
+		for(int i = 0; i < layers.length; i++) {
+			layers[i] = network.bias.get(i).numRows();
+		}
+		return layers;
+	}
+
+	private static void checkNetworksEqual(NeuralNetwork value, NeuralNetwork expected, float delta) {
+		for(int i = 0; i < expected.weights.size(); i++) {
+			for(int j = 0; j < expected.weights.get(i).getNumElements(); j++) {
+				assertEquals(expected.weights.get(i).get(j), value.weights.get(i).get(j), delta, "Weight " + j + " of layer " + i + " is different");
+			}
+
+			for(int j = 0; j < expected.bias.get(i).getNumElements(); j++) {
+				assertEquals(expected.bias.get(i).get(j), value.bias.get(i).get(j), delta, "Bias " + j + " of layer " + i + " is different");
+			}
+		}
+	}
+
+	private static void checkNetworksEqual(NeuralNetwork value, NeuralNetwork expected) {
+		for(int i = 0; i < expected.weights.size(); i++) {
+			for(int j = 0; j < expected.weights.get(i).getNumElements(); j++) {
+				assertEquals(expected.weights.get(i).get(j), value.weights.get(i).get(j), "Weight " + j + " of layer " + i + " is different");
+			}
+
+			for(int j = 0; j < expected.bias.get(i).getNumElements(); j++) {
+				assertEquals(expected.bias.get(i).get(j), value.bias.get(i).get(j), "Bias " + j + " of layer " + i + " is different");
+			}
+		}
+	}
+
 	private static void checkArray(float[] value, float[] expected, float delta) {
-		assertEquals(value.length, expected.length, "Array size is " + value.length + " while " + expected.length + " was expected!");
+		assertEquals(expected.length, value.length, "Array size is " + value.length + " while " + expected.length + " was expected!");
 		
 		for(int i = 0; i < value.length; i++) {
-			assertEquals(value[i], expected[i], delta, "Expected " + expected[i] + " with delta " + delta +  " but got " + value[i]);
+			assertEquals(expected[i], value[i], delta, "Expected " + expected[i] + " with delta " + delta +  " but got " + value[i]);
+		}
+	}
+
+	private static void checkArray(float[] value, float[] expected) {
+		assertEquals(expected.length, value.length, "Array size is " + value.length + " while " + expected.length + " was expected!");
+
+		for(int i = 0; i < value.length; i++) {
+			assertEquals(expected[i], value[i], "Expected exactly " + expected[i] + " but got " + value[i]);
+		}
+	}
+
+    /**
+     * A game that ends after one update and counts how many times a run is started
+     */
+	private static class CountingGame extends Game {
+
+		private final AtomicInteger runs;
+
+		CountingGame(AtomicInteger runs) {
+			this.runs = runs;
+		}
+
+		@Override
+		public void update(BaseAI ai) {
+			ai.evaluate(new float[] {1});
+			isRunning = false;
+		}
+
+		@Override
+		public void reset() {
+			runs.incrementAndGet();
+		}
+
+		@Override
+		public void draw(Graphics g) {}
+
+		@Override
+		public int getInputSize() {
+			return 1;
+		}
+
+		@Override
+		public int getOutputSize() {
+			return 1;
 		}
+
+		@Override
+		public Game newInstance() {
+			return new CountingGame(runs);
+		}
+
+		@Override
+		public void keyTyped(KeyEvent e) {}
+
+		@Override
+		public void keyPressed(KeyEvent e) {}
+
+		@Override
+		public void keyReleased(KeyEvent e) {}
 	}
 
 }